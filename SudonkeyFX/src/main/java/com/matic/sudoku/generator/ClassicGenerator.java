@@ -0,0 +1,268 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.generator;
+
+import java.util.Random;
+
+import com.matic.sudoku.logic.LogicSolver;
+import com.matic.sudoku.logic.LogicSolver.Grading;
+
+/**
+ * Creates puzzles by filling a grid at random and then removing givens, in symmetric
+ * groups and in random order, for as long as the puzzle keeps a unique solution and
+ * doesn't get harder than the targeted grading. The created puzzle is graded once
+ * more at the end, as it may turn out easier than targeted.
+ * 
+ * Puzzles which the logic solver can solve have a unique solution, so a brute force
+ * search for a second solution is only needed when targeting DIABOLIC puzzles.
+ * 
+ * The generator holds no state of its own and can be used from many threads at once.
+ * 
+ * @author vedran
+ *
+ */
+public class ClassicGenerator implements Generator {
+
+	@Override
+	public GeneratorResult createNew(final int dimension, final Grading grading,
+			final Symmetry symmetry, final Random random) {
+		final Backtracker backtracker = new Backtracker(dimension);
+		final LogicSolver solver = new LogicSolver(dimension);
+		
+		final int[] solution = backtracker.fillRandomly(random);
+		final int[] puzzle = solution.clone();
+		
+		final int[][] groups = getCellGroups(dimension * dimension, symmetry);
+		for(int i = groups.length - 1; i > 0; --i) {
+			final int j = random.nextInt(i + 1);
+			final int[] group = groups[i];
+			groups[i] = groups[j];
+			groups[j] = group;
+		}
+		
+		for(final int[] group : groups) {
+			if(Thread.currentThread().isInterrupted()) {
+				return null;
+			}
+			for(final int cell : group) {
+				puzzle[cell] = 0;
+			}
+			if(!isAcceptable(puzzle, grading, solver, backtracker)) {
+				for(final int cell : group) {
+					puzzle[cell] = solution[cell];
+				}
+			}
+		}
+		return new GeneratorResult(dimension, puzzle, solution, solver.grade(puzzle), symmetry);
+	}
+	
+	private boolean isAcceptable(final int[] puzzle, final Grading targetGrading, 
+			final LogicSolver solver, final Backtracker backtracker) {
+		final Grading grading = solver.grade(puzzle);
+		if(grading == null || grading.compareTo(targetGrading) > 0) {
+			return false;
+		}
+		//The logic solver got stuck, only brute force can tell whether the solution is unique
+		return grading != Grading.DIABOLIC || backtracker.countSolutions(puzzle, 2) == 1;
+	}
+	
+	//Group each cell with its symmetric counterpart (the groups have one or two cells)
+	private static int[][] getCellGroups(final int unit, final Symmetry symmetry) {
+		final int cellCount = unit * unit;
+		final boolean[] grouped = new boolean[cellCount];
+		final int[][] groups = new int[cellCount][];
+		int groupCount = 0;
+		
+		for(int row = 0; row < unit; ++row) {
+			for(int column = 0; column < unit; ++column) {
+				final int cell = row * unit + column;
+				if(grouped[cell]) {
+					continue;
+				}
+				final int counterpart = getCounterpart(unit, symmetry, row, column);
+				grouped[cell] = grouped[counterpart] = true;
+				groups[groupCount++] = counterpart == cell? new int[] {cell} : new int[] {cell, counterpart};
+			}
+		}
+		final int[][] result = new int[groupCount][];
+		System.arraycopy(groups, 0, result, 0, groupCount);
+		return result;
+	}
+	
+	private static int getCounterpart(final int unit, final Symmetry symmetry, final int row, final int column) {
+		final int last = unit - 1;
+		switch(symmetry) {
+		case ROTATIONAL_180:
+			return (last - row) * unit + last - column;
+		case VERTICAL_MIRRORING:
+			return row * unit + last - column;
+		case HORIZONTAL_MIRRORING:
+			return (last - row) * unit + column;
+		case DIAGONAL:
+			return column * unit + row;
+		case ANTI_DIAGONAL:
+			return (last - column) * unit + last - row;
+		default:
+			return row * unit + column;
+		}
+	}
+	
+	/**
+	 * A brute force solver, used for filling an empty grid at random and for counting
+	 * the solutions of a puzzle. It always continues with the cell having the fewest
+	 * candidates.
+	 */
+	private static final class Backtracker {
+		
+		private final int dimension;
+		private final int unit;
+		private final int allDigits;
+		
+		private final int[] grid;
+		
+		//Digits used in each row, column and box (bit digit - 1 is set if used)
+		private final int[] rowDigits;
+		private final int[] columnDigits;
+		private final int[] boxDigits;
+		
+		Backtracker(final int dimension) {
+			this.dimension = dimension;
+			unit = dimension * dimension;
+			allDigits = (1 << unit) - 1;
+			
+			grid = new int[unit * unit];
+			rowDigits = new int[unit];
+			columnDigits = new int[unit];
+			boxDigits = new int[unit];
+		}
+		
+		int[] fillRandomly(final Random random) {
+			start(new int[grid.length]);
+			search(random, 1);
+			return grid.clone();
+		}
+		
+		/**
+		 * Count the solutions of a puzzle, stopping at a limit
+		 * 
+		 * @param puzzle Cell values (0 for empty cells), row by row
+		 * @param limit Count at which to stop searching
+		 * @return Number of solutions found (at most the limit)
+		 */
+		int countSolutions(final int[] puzzle, final int limit) {
+			return start(puzzle)? search(null, limit) : 0;
+		}
+		
+		private boolean start(final int[] puzzle) {
+			for(int i = 0; i < unit; ++i) {
+				rowDigits[i] = columnDigits[i] = boxDigits[i] = 0;
+			}
+			for(int cell = 0; cell < grid.length; ++cell) {
+				grid[cell] = 0;
+				if(puzzle[cell] > 0) {
+					final int bit = 1 << (puzzle[cell] - 1);
+					if((getCandidates(cell) & bit) == 0) {
+						return false;
+					}
+					set(cell, bit);
+				}
+			}
+			return true;
+		}
+		
+		//Try the candidates of the most constrained cell, in random order if random isn't null
+		private int search(final Random random, final int limit) {
+			int bestCell = -1;
+			int bestCandidates = 0;
+			int bestCount = unit + 1;
+			for(int cell = 0; cell < grid.length && bestCount > 1; ++cell) {
+				if(grid[cell] == 0) {
+					final int candidates = getCandidates(cell);
+					final int count = Integer.bitCount(candidates);
+					if(count == 0) {
+						return 0;
+					}
+					if(count < bestCount) {
+						bestCell = cell;
+						bestCandidates = candidates;
+						bestCount = count;
+					}
+				}
+			}
+			if(bestCell < 0) {
+				//No empty cells are left
+				return 1;
+			}
+			
+			int found = 0;
+			int remaining = bestCandidates;
+			while(remaining != 0) {
+				final int bit = random == null? Integer.lowestOneBit(remaining) : 
+					pickRandomBit(remaining, random);
+				remaining &= ~bit;
+				set(bestCell, bit);
+				found += search(random, limit - found);
+				if(found >= limit) {
+					//Leave the last found solution in the grid
+					return found;
+				}
+				clear(bestCell, bit);
+			}
+			return found;
+		}
+		
+		private int getCandidates(final int cell) {
+			final int row = cell / unit;
+			final int column = cell % unit;
+			return allDigits & ~(rowDigits[row] | columnDigits[column] | boxDigits[getBox(row, column)]);
+		}
+		
+		private void set(final int cell, final int bit) {
+			final int row = cell / unit;
+			final int column = cell % unit;
+			grid[cell] = Integer.numberOfTrailingZeros(bit) + 1;
+			rowDigits[row] |= bit;
+			columnDigits[column] |= bit;
+			boxDigits[getBox(row, column)] |= bit;
+		}
+		
+		private void clear(final int cell, final int bit) {
+			final int row = cell / unit;
+			final int column = cell % unit;
+			grid[cell] = 0;
+			rowDigits[row] &= ~bit;
+			columnDigits[column] &= ~bit;
+			boxDigits[getBox(row, column)] &= ~bit;
+		}
+		
+		private int getBox(final int row, final int column) {
+			return (row / dimension) * dimension + column / dimension;
+		}
+		
+		private static int pickRandomBit(final int bits, final Random random) {
+			int bit = bits;
+			for(int skip = random.nextInt(Integer.bitCount(bits)); skip > 0; --skip) {
+				bit &= bit - 1;
+			}
+			return Integer.lowestOneBit(bit);
+		}
+	}
+}
@@ -20,9 +20,24 @@
 
 package com.matic.sudoku.generator;
 
-import com.matic.sudoku.Resources;;
+import java.util.Random;
+
+import com.matic.sudoku.Resources;
+import com.matic.sudoku.logic.LogicSolver.Grading;
 
 public interface Generator {
+	
+	/**
+	 * Create a new puzzle with a unique solution. Implementations should give up
+	 * and return null promptly when the calling thread is interrupted.
+	 * 
+	 * @param dimension Puzzle dimension (3 for a 9x9 puzzle)
+	 * @param grading Targeted puzzle grading
+	 * @param symmetry Symmetry to be used when placing the givens
+	 * @param random Source of randomness to be used during puzzle creation
+	 * @return Created puzzle, or null if no puzzle with targeted grading could be created
+	 */
+	GeneratorResult createNew(int dimension, Grading grading, Symmetry symmetry, Random random);
 
 	public enum Symmetry {
 		NONE(Resources.getTranslation("symmetry.none")), 
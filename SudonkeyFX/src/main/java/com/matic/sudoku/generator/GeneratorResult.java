@@ -0,0 +1,115 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.generator;
+
+import java.util.Arrays;
+
+import com.matic.sudoku.generator.Generator.Symmetry;
+import com.matic.sudoku.logic.LogicSolver.Grading;
+
+/**
+ * A puzzle created by a generator, together with its solution and properties.
+ * Both the puzzle and the solution are stored row by row, with empty cells
+ * in the puzzle having the value 0.
+ * 
+ * @author vedran
+ *
+ */
+public class GeneratorResult {
+	
+	private final Symmetry symmetry;
+	private final Grading grading;
+	
+	private final int[] puzzle;
+	private final int[] solution;
+	
+	private final int dimension;
+
+	public GeneratorResult(final int dimension, final int[] puzzle, final int[] solution,
+			final Grading grading, final Symmetry symmetry) {
+		this.dimension = dimension;
+		this.puzzle = puzzle;
+		this.solution = solution;
+		this.grading = grading;
+		this.symmetry = symmetry;
+	}
+
+	public int getDimension() {
+		return dimension;
+	}
+
+	public int[] getPuzzle() {
+		return puzzle;
+	}
+
+	public int[] getSolution() {
+		return solution;
+	}
+
+	public Grading getGrading() {
+		return grading;
+	}
+
+	public Symmetry getSymmetry() {
+		return symmetry;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + dimension;
+		result = prime * result + ((grading == null) ? 0 : grading.hashCode());
+		result = prime * result + Arrays.hashCode(puzzle);
+		result = prime * result + Arrays.hashCode(solution);
+		result = prime * result
+				+ ((symmetry == null) ? 0 : symmetry.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		GeneratorResult other = (GeneratorResult) obj;
+		if (dimension != other.dimension)
+			return false;
+		if (grading != other.grading)
+			return false;
+		if (!Arrays.equals(puzzle, other.puzzle))
+			return false;
+		if (!Arrays.equals(solution, other.solution))
+			return false;
+		if (symmetry != other.symmetry)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "GeneratorResult [dimension=" + dimension + ", grading=" + grading
+				+ ", symmetry=" + symmetry + ", puzzle=" + Arrays.toString(puzzle) + "]";
+	}
+}
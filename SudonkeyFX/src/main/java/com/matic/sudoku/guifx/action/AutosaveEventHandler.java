@@ -0,0 +1,134 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+package com.matic.sudoku.guifx.action;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.matic.sudoku.guifx.board.BoardEditListener;
+import com.matic.sudoku.guifx.board.Cell;
+import com.matic.sudoku.guifx.board.ClassicGameBoard;
+import com.matic.sudoku.io.GameJournal;
+import com.matic.sudoku.io.SavedGame;
+
+/**
+ * A handler that autosaves the game board, by appending the player's edits to a game
+ * journal. The last autosaved game is restored when the game is started.
+ * 
+ * @author vedran
+ *
+ */
+public class AutosaveEventHandler implements BoardEditListener {
+	
+	//Snapshot of the autosaved game, with the journal stored next to it
+	private static final Path AUTOSAVE_PATH = Paths.get(System.getProperty("user.home"),
+			".sudonkey", "autosave." + SavedGame.EXTENSION);
+	
+	private final GameJournal journal = new GameJournal(AUTOSAVE_PATH);
+	private final ClassicGameBoard gameBoard;
+	
+	//Whether autosaving is active (it is stopped if the journal can't be written)
+	private boolean active = false;
+	
+	public AutosaveEventHandler(final ClassicGameBoard gameBoard) {
+		this.gameBoard = gameBoard;
+	}
+	
+	/**
+	 * Restore the last autosaved game (if any) onto the game board and start autosaving
+	 */
+	public void onStart() {
+		try {
+			final SavedGame game = GameJournal.restore(AUTOSAVE_PATH);
+			if(game != null) {
+				gameBoard.onGridChanged(game.getDimension(), gameBoard.getSymbolType());
+				gameBoard.setCells(game.getCells());
+			}
+		}
+		catch(final IOException e) {
+			//Damaged autosave, start with the current board instead
+		}
+		
+		try {
+			Files.createDirectories(AUTOSAVE_PATH.getParent());
+			active = true;
+		}
+		catch(final IOException e) {
+			return;
+		}
+		gameBoard.setEditListener(this);
+		compact();
+	}
+	
+	/**
+	 * Store the board as a snapshot and stop autosaving
+	 */
+	public void onStop() {
+		gameBoard.setEditListener(null);
+		compact();
+		stop();
+	}
+
+	@Override
+	public void onCellEdited(final int row, final int column, final Cell cell) {
+		if(!active) {
+			return;
+		}
+		try {
+			journal.append(row, column, cell);
+		}
+		catch(final IOException e) {
+			stop();
+			return;
+		}
+		if(journal.isCompactionNeeded()) {
+			compact();
+		}
+	}
+
+	@Override
+	public void onBoardReplaced() {
+		compact();
+	}
+	
+	private void compact() {
+		if(!active) {
+			return;
+		}
+		try {
+			journal.start(new SavedGame(gameBoard.getDimension(), gameBoard.getCellsCopy()));
+		}
+		catch(final IOException e) {
+			stop();
+		}
+	}
+	
+	private void stop() {
+		active = false;
+		try {
+			journal.close();
+		}
+		catch(final IOException e) {
+			//Nothing more to write, ignore
+		}
+	}
+}
@@ -21,29 +21,269 @@
 package com.matic.sudoku.guifx.action;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.DoubleConsumer;
 
+import javafx.concurrent.Task;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.TextInputDialog;
 import javafx.stage.FileChooser;
 import javafx.stage.Window;
 
+import com.matic.sudoku.Resources;
+import com.matic.sudoku.guifx.board.BoardRasterizer;
+import com.matic.sudoku.guifx.board.Cell;
+import com.matic.sudoku.guifx.board.ClassicGameBoard;
 import com.matic.sudoku.guifx.window.GameWindowFX;
 import com.matic.sudoku.guifx.window.PdfExporterOptions;
 import com.matic.sudoku.guifx.window.PdfExporterWindow;
+import com.matic.sudoku.io.CompressedInput;
+import com.matic.sudoku.io.CompressedPuzzleReader;
+import com.matic.sudoku.io.ImageFileWriter;
+import com.matic.sudoku.io.PackedPuzzleFormat;
+import com.matic.sudoku.io.PackedPuzzleReader;
+import com.matic.sudoku.io.PuzzleCollectionIndex;
+import com.matic.sudoku.io.PuzzleCollectionReader;
+import com.matic.sudoku.io.PuzzleFormat;
+import com.matic.sudoku.io.SavedGame;
 
 public class FileActionEventHandler {
+	
+	//Default width and height (in pixels) of an exported board image
+	private static final int DEFAULT_IMAGE_SIZE = 2000;
+	
+	//Limits of the board image size the player can choose
+	private static final int MIN_IMAGE_SIZE = 100;
+	private static final int MAX_IMAGE_SIZE = 8192;
+	
+	//How many read files are kept for reopening (matches the size of the recent file list)
+	private static final int PREFETCHED_FILE_LIMIT = 5;
+	
+	//How many puzzles to read between progress updates, when counting the puzzles of a file
+	private static final int PROGRESS_INTERVAL = 16 * 1024;
+	
+	//Files that have already been read, by path, for opening them without waiting on the disk
+	private final Map<String, OpenedFile> prefetchedFiles = Collections.synchronizedMap(
+			new LinkedHashMap<String, OpenedFile>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
 
-	public void onOpenFileAction(final Window parent, final GameWindowFX gameWindow) {
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<String, OpenedFile> eldest) {
+					return size() > PREFETCHED_FILE_LIMIT;
+				}
+			});
+	
+	//Counts the puzzles of the most recently opened collection, if they weren't known when opened
+	private Task<Long> puzzleCountTask = null;
+	
+	//Reads the most recently opened file, until it is shown
+	private Task<OpenedFile> fileOpenTask = null;
+
+	public void onOpenFileAction(final Window parent, final GameWindowFX gameWindow,
+			final ClassicGameBoard gameBoard) {
 		final FileChooser fileChooser = new FileChooser();
 		fileChooser.setInitialDirectory(new File(System.getProperty("user.home")));
+		fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("All Files", "*.*"));
+		for(final PuzzleFormat puzzleFormat : PuzzleFormat.values()) {
+			fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(
+					puzzleFormat.getDescription(), "*." + puzzleFormat.getExtension(),
+					"*." + puzzleFormat.getExtension() + "." + CompressedInput.EXTENSION));
+		}
 		fileChooser.getExtensionFilters().addAll(
-                new FileChooser.ExtensionFilter("All Files", "*.*"),
-                new FileChooser.ExtensionFilter("SudoCue puzzles", "*.sdk"));
+				new FileChooser.ExtensionFilter(Resources.getTranslation("format.packed"), 
+						"*." + PackedPuzzleFormat.EXTENSION, 
+						"*." + PackedPuzzleFormat.EXTENSION + "." + CompressedInput.EXTENSION),
+				new FileChooser.ExtensionFilter(Resources.getTranslation("format.game"), 
+						"*." + SavedGame.EXTENSION));
 		fileChooser.setTitle("Open puzzle");
 		
 		final File selectedFile = fileChooser.showOpenDialog(parent);
 		
 		if(selectedFile != null) {
-			//TODO: Open selected file
-			gameWindow.onUpdateRecentFileList(selectedFile.getAbsolutePath());
+			openFile(parent, gameWindow, gameBoard, selectedFile.toPath());
+		}
+	}
+	
+	/**
+	 * Open a saved game, or show the first puzzle of a puzzle collection. The file is
+	 * read in the background, while only the final board update is done on the JavaFX
+	 * thread. The first puzzle of a collection is shown as soon as it has been read, and
+	 * the collection's puzzles are counted afterwards (building its index, if needed).
+	 * 
+	 * @param parent Owner of the shown dialogs
+	 * @param gameWindow Game window showing the loading progress
+	 * @param gameBoard Board to show the loaded game on
+	 * @param path Path of the file to open
+	 */
+	public void openFile(final Window parent, final GameWindowFX gameWindow,
+			final ClassicGameBoard gameBoard, final Path path) {
+		if(puzzleCountTask != null) {
+			//The puzzle count of the previously opened collection is no longer needed
+			puzzleCountTask.cancel();
+			puzzleCountTask = null;
+		}
+		if(fileOpenTask != null) {
+			//Only the most recently opened file is shown
+			fileOpenTask.cancel();
+			fileOpenTask = null;
+		}
+		
+		final OpenedFile prefetchedFile = getPrefetchedFile(path);
+		if(prefetchedFile != null) {
+			showOpenedFile(gameWindow, gameBoard, path, prefetchedFile);
+			return;
+		}
+		
+		final Task<OpenedFile> openTask = new Task<OpenedFile>() {
+			@Override
+			protected OpenedFile call() throws Exception {
+				updateMessage(Resources.getTranslation("status.loading") + " " + path.getFileName());
+				return readFile(path);
+			}
+		};
+		openTask.setOnSucceeded(event -> {
+			fileOpenTask = null;
+			showOpenedFile(gameWindow, gameBoard, path, openTask.getValue());
+		});
+		openTask.setOnFailed(event -> {
+			fileOpenTask = null;
+			onOpenFailed(parent);
+		});
+		
+		fileOpenTask = openTask;
+		gameWindow.runBackgroundTask(openTask, "file-open");
+	}
+	
+	/**
+	 * Read and parse files on a low priority background thread, so that they can be shown
+	 * right away when opened later. This is used for the recently opened files at startup.
+	 * 
+	 * @param filePaths Paths of the files to read
+	 */
+	public void prefetchFiles(final List<String> filePaths) {
+		final Thread prefetchThread = new Thread(() -> {
+			for(final String filePath : filePaths) {
+				try {
+					prefetchedFiles.put(filePath, readFile(Paths.get(filePath)));
+				}
+				catch(final IOException | RuntimeException e) {
+					//Missing or damaged file, opening it will report the error
+				}
+			}
+		}, "file-prefetch");
+		prefetchThread.setPriority(Thread.MIN_PRIORITY);
+		prefetchThread.setDaemon(true);
+		prefetchThread.start();
+	}
+	
+	private void showOpenedFile(final GameWindowFX gameWindow, final ClassicGameBoard gameBoard,
+			final Path path, final OpenedFile openedFile) {
+		//The board edits its cells, keep the opened file's content intact for later reopening
+		final SavedGame game = openedFile.game.copy();
+		prefetchedFiles.put(path.toString(), openedFile);
+		
+		gameBoard.onGridChanged(game.getDimension(), gameBoard.getSymbolType());
+		gameBoard.setCells(game.getCells());
+		gameWindow.onFileOpened(path.toString(), openedFile.isSavedGame, openedFile.puzzleCount);
+		if(openedFile.puzzleCount == OpenedFile.UNKNOWN_PUZZLE_COUNT) {
+			startPuzzleCount(gameWindow, path, openedFile);
+		}
+	}
+	
+	//Count the puzzles of an opened collection in the background and show the count once done
+	private void startPuzzleCount(final GameWindowFX gameWindow, final Path path, 
+			final OpenedFile openedFile) {
+		final Task<Long> countTask = new Task<Long>() {
+			@Override
+			protected Long call() throws Exception {
+				updateMessage(Resources.getTranslation("status.counting") + " " + path.getFileName());
+				return countPuzzles(path, progress -> updateProgress(progress, 1));
+			}
+		};
+		countTask.setOnSucceeded(event -> {
+			final long puzzleCount = countTask.getValue();
+			prefetchedFiles.replace(path.toString(), openedFile, openedFile.withPuzzleCount(puzzleCount));
+			gameWindow.onPuzzlesCounted(puzzleCount);
+		});
+		
+		puzzleCountTask = countTask;
+		gameWindow.runBackgroundTask(countTask, "puzzle-count");
+	}
+	
+	//Get a previously read file, unless it has been modified since
+	private OpenedFile getPrefetchedFile(final Path path) {
+		final OpenedFile openedFile = prefetchedFiles.get(path.toString());
+		if(openedFile == null) {
+			return null;
+		}
+		try {
+			if(Files.getLastModifiedTime(path).toMillis() == openedFile.lastModified) {
+				return openedFile;
+			}
+		}
+		catch(final IOException e) {
+			//File removed, open it as usual to report the error
+		}
+		prefetchedFiles.remove(path.toString());
+		return null;
+	}
+	
+	/**
+	 * Save the board's content as a game file. The board is copied on the JavaFX
+	 * thread, while the file is written in the background.
+	 * 
+	 * @param parent Owner of the shown dialogs
+	 * @param gameWindow Game window showing the saving progress
+	 * @param gameBoard Board to save
+	 * @param path Path of the saved game file
+	 */
+	public void onSaveAction(final Window parent, final GameWindowFX gameWindow,
+			final ClassicGameBoard gameBoard, final Path path) {
+		final SavedGame game = new SavedGame(gameBoard.getDimension(), gameBoard.getCellsCopy());
+		
+		final Task<Void> saveTask = new Task<Void>() {
+			@Override
+			protected Void call() throws Exception {
+				updateMessage(Resources.getTranslation("status.saving") + " " + path.getFileName());
+				game.store(path);
+				updateProgress(1, 1);
+				return null;
+			}
+		};
+		saveTask.setOnSucceeded(event -> {
+			prefetchedFiles.remove(path.toString());
+			gameWindow.onFileSaved(path.toString());
+		});
+		saveTask.setOnFailed(event -> onSaveFailed(parent));
+		
+		gameWindow.runBackgroundTask(saveTask, "file-save");
+	}
+	
+	public void onSaveAsAction(final Window parent, final GameWindowFX gameWindow,
+			final ClassicGameBoard gameBoard) {
+		final FileChooser fileChooser = new FileChooser();
+		fileChooser.setInitialDirectory(new File(System.getProperty("user.home")));
+		fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(
+				Resources.getTranslation("format.game"), "*." + SavedGame.EXTENSION));
+		fileChooser.setTitle(Resources.getTranslation("game.save_as"));
+		
+		final File selectedFile = fileChooser.showSaveDialog(parent);
+		
+		if(selectedFile != null) {
+			final String fileName = selectedFile.getName();
+			final Path path = fileName.contains(".")? selectedFile.toPath() : 
+				selectedFile.toPath().resolveSibling(fileName + "." + SavedGame.EXTENSION);
+			onSaveAction(parent, gameWindow, gameBoard, path);
 		}
 	}
 	
@@ -54,7 +294,15 @@ public class FileActionEventHandler {
 		System.out.println(pdfExporterOptions);
 	}
 	
-	public void onExportToImageAction(final Window parent) {
+	/**
+	 * Export the board to an image file of player selected size. The board is rendered
+	 * off-screen on the FX thread, while the (much slower) image encoding and writing
+	 * is done in the background.
+	 * 
+	 * @param parent Owner of the shown dialogs
+	 * @param gameBoard Board to export
+	 */
+	public void onExportToImageAction(final Window parent, final ClassicGameBoard gameBoard) {
 		final FileChooser fileChooser = new FileChooser();
 		fileChooser.setInitialDirectory(new File(System.getProperty("user.home")));
 		fileChooser.getExtensionFilters().addAll(                
@@ -65,9 +313,199 @@ public class FileActionEventHandler {
 		
 		final File selectedFile = fileChooser.showSaveDialog(parent);
 		
-		if(selectedFile != null) {
-			//Export puzzle to image file
-			System.out.println(selectedFile.getAbsolutePath());
+		if(selectedFile == null) {
+			return;
+		}
+		
+		final int imageSize = askImageSize(parent);
+		if(imageSize <= 0) {
+			//Player cancelled the image size choice
+			return;
+		}
+		
+		//Copy the board's content, it is rasterized and encoded off the JavaFX thread
+		final Cell[][] cells = gameBoard.getCellsCopy();
+		final int pencilmarkMask = gameBoard.getPencilmarkMask();
+		final BoardRasterizer rasterizer = new BoardRasterizer(gameBoard.getDimension(),
+				gameBoard.getSymbolType(), imageSize);
+		
+		//Export puzzle to image file
+		final Task<Void> imageExportTask = new Task<Void>() {
+			@Override
+			protected Void call() throws Exception {
+				final int[] pixels = new int[imageSize * imageSize];
+				rasterizer.render(cells, pencilmarkMask, pixels);
+				ImageFileWriter.write(pixels, imageSize, imageSize, selectedFile.toPath());
+				return null;
+			}
+		};
+		imageExportTask.setOnFailed(event -> onExportFailed(parent));
+		
+		final Thread exportThread = new Thread(imageExportTask, "image-export");
+		exportThread.setDaemon(true);
+		exportThread.start();
+	}
+	
+	//Ask for the image size until a valid one is entered, or the player cancels
+	private int askImageSize(final Window parent) {
+		String imageSizeText = String.valueOf(DEFAULT_IMAGE_SIZE);
+		while(true) {
+			final TextInputDialog sizeDialog = new TextInputDialog(imageSizeText);
+			sizeDialog.initOwner(parent);
+			sizeDialog.setTitle(Resources.getTranslation("game.export_as_image"));
+			sizeDialog.setContentText(Resources.getTranslation("export.image_size") + ": ");
+			sizeDialog.setHeaderText(null);
+			
+			final Optional<String> result = sizeDialog.showAndWait();
+			if(!result.isPresent()) {
+				return -1;
+			}
+			imageSizeText = result.get().trim();
+			try {
+				final int imageSize = Integer.parseInt(imageSizeText);
+				if(imageSize >= MIN_IMAGE_SIZE && imageSize <= MAX_IMAGE_SIZE) {
+					return imageSize;
+				}
+			}
+			catch(final NumberFormatException e) {
+				//Not a number, ask again
+			}
+			
+			final Alert errorAlert = new Alert(AlertType.ERROR);
+			errorAlert.initOwner(parent);
+			errorAlert.setContentText(Resources.getTranslation("export.image_size.error.message") + 
+					" " + MIN_IMAGE_SIZE + " - " + MAX_IMAGE_SIZE + ".");
+			errorAlert.setTitle(Resources.getTranslation("export.invalid_input"));
+			errorAlert.setHeaderText(null);
+			errorAlert.showAndWait();
+		}
+	}
+	
+	//Runs on a background thread
+	private static OpenedFile readFile(final Path path) throws IOException {
+		final long lastModified = Files.getLastModifiedTime(path).toMillis();
+		if(CompressedInput.isCompressed(path)) {
+			return readCompressedFile(path, lastModified);
+		}
+		if(SavedGame.isSavedGameFile(path)) {
+			return new OpenedFile(SavedGame.load(path), true, 1, lastModified);
+		}
+		if(PackedPuzzleFormat.isPackedFile(path)) {
+			try(final PackedPuzzleReader reader = new PackedPuzzleReader(path)) {
+				if(reader.getPuzzleCount() == 0) {
+					throw new IOException("No puzzles found in " + path);
+				}
+				final int[] puzzle = new int[PackedPuzzleFormat.getCellCount(reader.getDimension())];
+				reader.read(0, puzzle);
+				return new OpenedFile(SavedGame.fromPuzzle(reader.getDimension(), puzzle), 
+						false, reader.getPuzzleCount(), lastModified);
+			}
+		}
+		try(final PuzzleCollectionReader reader = new PuzzleCollectionReader(path)) {
+			final int[] puzzle = new int[PackedPuzzleFormat.getCellCount(reader.getDimension())];
+			if(!reader.read(puzzle)) {
+				throw new IOException("No puzzles found in " + path);
+			}
+			
+			//Scanning a collection without a cached index is left to the puzzle count
+			final PuzzleCollectionIndex index = PuzzleCollectionIndex.openCached(path);
+			return new OpenedFile(SavedGame.fromPuzzle(reader.getDimension(), puzzle), false, 
+					index != null? index.getPuzzleCount() : OpenedFile.UNKNOWN_PUZZLE_COUNT, lastModified);
+		}
+	}
+	
+	//Runs on a background thread, building and caching the index of a text collection
+	private static long countPuzzles(final Path path, final DoubleConsumer progressListener)
+			throws IOException {
+		if(CompressedInput.isCompressed(path)) {
+			return countCompressedPuzzles(path, progressListener);
+		}
+		try(final PuzzleCollectionReader reader = new PuzzleCollectionReader(path)) {
+			return PuzzleCollectionIndex.open(reader, path, progressListener).getPuzzleCount();
+		}
+	}
+	
+	//The puzzles of a compressed collection are counted later, by reading all of them
+	private static OpenedFile readCompressedFile(final Path path, final long lastModified)
+			throws IOException {
+		try(final CompressedPuzzleReader reader = new CompressedPuzzleReader(path)) {
+			final int[] puzzle = new int[PackedPuzzleFormat.getCellCount(reader.getDimension())];
+			if(!reader.read(puzzle)) {
+				throw new IOException("No puzzles found in " + path);
+			}
+			return new OpenedFile(SavedGame.fromPuzzle(reader.getDimension(), puzzle), 
+					false, OpenedFile.UNKNOWN_PUZZLE_COUNT, lastModified);
+		}
+	}
+	
+	//A compressed collection has no index, so its puzzles are counted by reading all of them
+	private static long countCompressedPuzzles(final Path path, final DoubleConsumer progressListener)
+			throws IOException {
+		try(final CompressedPuzzleReader reader = new CompressedPuzzleReader(path)) {
+			final int[] cells = new int[PackedPuzzleFormat.getCellCount(reader.getDimension())];
+			long puzzleCount = 0;
+			while(reader.read(cells)) {
+				if(++puzzleCount % PROGRESS_INTERVAL == 0) {
+					if(Thread.currentThread().isInterrupted()) {
+						throw new InterruptedIOException("Reading cancelled: " + path);
+					}
+					progressListener.accept(reader.getProgress());
+				}
+			}
+			return puzzleCount;
+		}
+	}
+	
+	private void onOpenFailed(final Window parent) {
+		final Alert errorAlert = new Alert(AlertType.ERROR);
+		errorAlert.initOwner(parent);
+		errorAlert.setContentText(Resources.getTranslation("file.open.error.message"));
+		errorAlert.setTitle(Resources.getTranslation("file.open.error.title"));
+		errorAlert.setHeaderText(null);
+		errorAlert.showAndWait();
+	}
+	
+	private void onSaveFailed(final Window parent) {
+		final Alert errorAlert = new Alert(AlertType.ERROR);
+		errorAlert.initOwner(parent);
+		errorAlert.setContentText(Resources.getTranslation("file.write.error.message"));
+		errorAlert.setTitle(Resources.getTranslation("file.write.error.title"));
+		errorAlert.setHeaderText(null);
+		errorAlert.showAndWait();
+	}
+	
+	private void onExportFailed(final Window parent) {
+		final Alert errorAlert = new Alert(AlertType.ERROR);
+		errorAlert.initOwner(parent);
+		errorAlert.setContentText(Resources.getTranslation("export.error.message"));
+		errorAlert.setTitle(Resources.getTranslation("export.error.title"));
+		errorAlert.setHeaderText(null);
+		errorAlert.showAndWait();
+	}
+	
+	//Content of an opened file, handed over from the background thread
+	private static final class OpenedFile {
+		
+		//Puzzle count of a collection whose puzzles haven't been counted yet
+		private static final long UNKNOWN_PUZZLE_COUNT = -1;
+		
+		private final SavedGame game;
+		private final boolean isSavedGame;
+		private final long puzzleCount;
+		
+		//Modification time of the file when it was read
+		private final long lastModified;
+		
+		private OpenedFile(final SavedGame game, final boolean isSavedGame, final long puzzleCount,
+				final long lastModified) {
+			this.game = game;
+			this.isSavedGame = isSavedGame;
+			this.puzzleCount = puzzleCount;
+			this.lastModified = lastModified;
+		}
+		
+		private OpenedFile withPuzzleCount(final long puzzleCount) {
+			return new OpenedFile(game, isSavedGame, puzzleCount, lastModified);
 		}
 	}
-}
\ No newline at end of file
+}
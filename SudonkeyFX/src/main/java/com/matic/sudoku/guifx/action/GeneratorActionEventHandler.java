@@ -20,13 +20,32 @@
 
 package com.matic.sudoku.guifx.action;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javafx.concurrent.Task;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
 import javafx.stage.Window;
 
+import com.matic.sudoku.Resources;
+import com.matic.sudoku.generator.ClassicGenerator;
+import com.matic.sudoku.generator.Generator;
 import com.matic.sudoku.guifx.board.ClassicGameBoard;
+import com.matic.sudoku.guifx.window.ExportProgressWindow;
 import com.matic.sudoku.guifx.window.PuzzleCreatorOptions;
 import com.matic.sudoku.guifx.window.PuzzleCreatorWindow;
 import com.matic.sudoku.guifx.window.PuzzleExporterOptions;
+import com.matic.sudoku.guifx.window.PuzzleExporterOptions.ExportFormat;
 import com.matic.sudoku.guifx.window.PuzzleExporterWindow;
+import com.matic.sudoku.io.PuzzleFormat;
+import com.matic.sudoku.io.export.ImagePuzzleExportWriter;
+import com.matic.sudoku.io.export.PackedPuzzleExportWriter;
+import com.matic.sudoku.io.export.PdfPuzzleExportWriter;
+import com.matic.sudoku.io.export.PuzzleExportWriter;
+import com.matic.sudoku.io.export.PuzzleExporter;
+import com.matic.sudoku.io.export.TextPuzzleExportWriter;
 
 /**
  * An action handler for actions related to the generation of puzzles
@@ -35,6 +54,8 @@ import com.matic.sudoku.guifx.window.PuzzleExporterWindow;
  *
  */
 public class GeneratorActionEventHandler {
+	
+	private final Generator generator = new ClassicGenerator();
 
 	/**
 	 * Act on player choosing to generate and show a new puzzle
@@ -59,7 +80,7 @@ public class GeneratorActionEventHandler {
 	}
 	
 	/**
-	 * Act on player choosing to generate and export puzzles to PDF
+	 * Act on player choosing to generate and export puzzles to PDF, a puzzle collection or images
 	 * 
 	 *  @param owner Dialog owner
 	 */
@@ -72,7 +93,55 @@ public class GeneratorActionEventHandler {
 			return;
 		}
 		
-		//TODO: Process exporterOptions
-		System.out.println(exporterOptions);
+		final PuzzleExporter exporter = new PuzzleExporter(exporterOptions, generator,
+				Resources.RANDOM_INSTANCE);
+		final Task<Void> exportTask = new Task<Void>() {
+			@Override
+			protected Void call() throws Exception {
+				try(final PuzzleExportWriter writer = createExportWriter(exporterOptions)) {
+					exporter.export(writer);
+				}
+				return null;
+			}
+		};
+		exportTask.setOnFailed(event -> onExportFailed(owner));
+		
+		final ExportProgressWindow progressWindow = new ExportProgressWindow(owner,
+				exporterOptions.getGradings(), exporter.getProgress(), exportTask);
+		
+		final Thread exportThread = new Thread(exportTask, "puzzle-export");
+		exportThread.setDaemon(true);
+		exportThread.start();
+		
+		progressWindow.show();
+	}
+	
+	private PuzzleExportWriter createExportWriter(final PuzzleExporterOptions exporterOptions)
+			throws IOException {
+		final Path outputPath = Paths.get(exporterOptions.getOutputPath());
+		final ExportFormat exportFormat = exporterOptions.getExportFormat();
+		
+		final PuzzleFormat puzzleFormat = exportFormat.getPuzzleFormat();
+		if(puzzleFormat != null) {
+			return new TextPuzzleExportWriter(outputPath, puzzleFormat);
+		}
+		if(exportFormat == ExportFormat.PACKED) {
+			return new PackedPuzzleExportWriter(outputPath, PuzzleExporter.EXPORT_DIMENSION);
+		}
+		final String imageExtension = exportFormat.getImageExtension();
+		if(imageExtension != null) {
+			return new ImagePuzzleExportWriter(outputPath, imageExtension, 
+					exporterOptions.getSymbolTypes());
+		}
+		return new PdfPuzzleExportWriter(outputPath, exporterOptions);
+	}
+	
+	private void onExportFailed(final Window owner) {
+		final Alert errorAlert = new Alert(AlertType.ERROR);
+		errorAlert.initOwner(owner);
+		errorAlert.setContentText(Resources.getTranslation("export.error.message"));
+		errorAlert.setTitle(Resources.getTranslation("export.error.title"));
+		errorAlert.setHeaderText(null);
+		errorAlert.showAndWait();
 	}
 }
@@ -0,0 +1,74 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+package com.matic.sudoku.guifx.action.undo;
+
+import com.matic.sudoku.Resources;
+import com.matic.sudoku.guifx.board.ClassicGameBoard;
+
+/**
+ * An undoable action holding all of the cell changes made within a single batch update
+ * of the board. Rather than keeping an action per change, only the changed cells' contents
+ * before and after the update are kept, with each cell's content packed into a single value.
+ * 
+ * @author vedran
+ *
+ */
+public class UndoableBatchEditAction extends UndoableGameBoardAction {
+	
+	public static final String PRESENTATION_NAME = 
+			Resources.getTranslation("action.edit_cells");
+	
+	private final ClassicGameBoard gameBoard;
+	
+	//Changed cells (indexed by row * unit + column) and their packed contents
+	private final int[] cellIndexes;
+	private final long[] oldCellStates;
+	private final long[] newCellStates;
+	
+	/**
+	 * Create an action for a committed batch update
+	 * 
+	 * @param gameBoard Updated board
+	 * @param cellIndexes Indexes of the changed cells (row * unit + column)
+	 * @param oldCellStates Packed cell contents before the update
+	 * @param newCellStates Packed cell contents after the update
+	 */
+	public UndoableBatchEditAction(final ClassicGameBoard gameBoard, final int[] cellIndexes,
+			final long[] oldCellStates, final long[] newCellStates) {
+		this.gameBoard = gameBoard;
+		this.cellIndexes = cellIndexes;
+		this.oldCellStates = oldCellStates;
+		this.newCellStates = newCellStates;
+	}
+	
+	@Override
+	public void undo() {
+		gameBoard.restoreCellStates(cellIndexes, oldCellStates);
+	}
+	
+	@Override
+	public void redo() {
+		gameBoard.restoreCellStates(cellIndexes, newCellStates);
+	}
+	
+	public int getCellCount() {
+		return cellIndexes.length;
+	}
+}
@@ -32,9 +32,29 @@ public class UndoableCellValueEditAction extends UndoableGameBoardAction {
 	public static final String GIVE_CLUE_PRESENTATION_NAME =
 			Resources.getTranslation("action.give_clue");
 
+	private final ClassicGameBoard gameBoard;
+	private final int row;
+	private final int column;
+	private final int oldValue;
+	private final int newValue;
+
 	public UndoableCellValueEditAction(final String presentationName, 
 			final ClassicGameBoard gameBoard,
 			int row, int column, int oldValue, int newValue) {
-		
+		this.gameBoard = gameBoard;
+		this.row = row;
+		this.column = column;
+		this.oldValue = oldValue;
+		this.newValue = newValue;
+	}
+	
+	@Override
+	public void undo() {
+		gameBoard.setCellValue(row, column, oldValue);
+	}
+	
+	@Override
+	public void redo() {
+		gameBoard.setCellValue(row, column, newValue);
 	}
 }
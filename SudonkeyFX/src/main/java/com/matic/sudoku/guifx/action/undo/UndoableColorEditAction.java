@@ -28,7 +28,28 @@ public class UndoableColorEditAction extends UndoableGameBoardAction {
 	private static final String PRESENTATION_NAME = 
 			Resources.getTranslation("action.cell_color");
 	
+	private final ClassicGameBoard gameBoard;
+	private final int row;
+	private final int column;
+	private final int oldValue;
+	private final int newValue;
+	
 	public UndoableColorEditAction(final ClassicGameBoard gameBoard, 
-			int row, int column, int oldValue, int newValue) {		
+			int row, int column, int oldValue, int newValue) {
+		this.gameBoard = gameBoard;
+		this.row = row;
+		this.column = column;
+		this.oldValue = oldValue;
+		this.newValue = newValue;
+	}
+	
+	@Override
+	public void undo() {
+		gameBoard.setCellColor(row, column, oldValue);
+	}
+	
+	@Override
+	public void redo() {
+		gameBoard.setCellColor(row, column, newValue);
 	}
 }
@@ -20,6 +20,21 @@
 
 package com.matic.sudoku.guifx.action.undo;
 
+/**
+ * A player's change of the board that can be reverted and then applied again.
+ * 
+ * @author vedran
+ *
+ */
 public abstract class UndoableGameBoardAction {
 
+	/**
+	 * Revert the board's cells to their contents prior to this action
+	 */
+	public abstract void undo();
+	
+	/**
+	 * Apply this action to the board's cells again, after it was undone
+	 */
+	public abstract void redo();
 }
@@ -30,6 +30,12 @@ public class UndoablePencilmarkEditAction extends UndoableGameBoardAction {
 	public static final String DELETE_PENCILMARK_PRESENTATION_NAME =
 			Resources.getTranslation("action.delete_pencilmark");
 	
+	private final ClassicGameBoard board;
+	private final int row;
+	private final int column;
+	private final boolean deleted;
+	private final int[] values;
+	
 	/**
 	* Undoable action generated when a pencilmark is added/removed by the player
 	* 
@@ -41,6 +47,21 @@ public class UndoablePencilmarkEditAction extends UndoableGameBoardAction {
 	* @param oldValues Pencilmark values prior to this modification
 	*/
 	public UndoablePencilmarkEditAction(final String presentationName, final ClassicGameBoard board, 
-			final int row, final int column, final boolean deleted, final int... oldValues) {	
+			final int row, final int column, final boolean deleted, final int... oldValues) {
+		this.board = board;
+		this.row = row;
+		this.column = column;
+		this.deleted = deleted;
+		this.values = oldValues;
+	}
+	
+	@Override
+	public void undo() {
+		board.setPencilmarkValues(row, column, deleted, false, values);
+	}
+	
+	@Override
+	public void redo() {
+		board.setPencilmarkValues(row, column, !deleted, false, values);
 	}
 }
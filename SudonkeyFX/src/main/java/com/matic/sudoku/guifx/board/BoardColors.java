@@ -0,0 +1,50 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.guifx.board;
+
+import javafx.scene.paint.Color;
+
+/**
+ * Colors used for drawing a board. They are kept apart from the board itself, so that
+ * they can be used without loading any JavaFX scene graph classes (which would start
+ * the JavaFX toolkit).
+ * 
+ * @author vedran
+ *
+ */
+public final class BoardColors {
+	
+	static final Color THICK_LINE_COLOR = Color.BLACK;
+	static final Color INNER_LINE_COLOR = Color.BLACK;
+	
+	static final Color DEFAULT_BACKGROUND_COLOR = Color.rgb(234,184,57);
+	public static final Color NORMAL_FONT_COLOR = Color.BLACK;
+	static final Color PENCILMARK_FONT_COLOR = Color.rgb(0, 43, 54);
+	
+	//Available colors the player can use for cell selections
+	public static final Color[] CELL_SELECTION_COLORS = {DEFAULT_BACKGROUND_COLOR,
+		Color.rgb(253, 188, 75), Color.rgb(255, 144, 150),
+		Color.rgb(244, 119, 80), Color.rgb(29, 153, 243),
+		Color.rgb(46, 204, 113)};
+	
+	//Prevent instantiation of this class
+	private BoardColors() {}
+}
@@ -0,0 +1,44 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+package com.matic.sudoku.guifx.board;
+
+/**
+ * A listener that gets notified whenever the content of a game board changes, either
+ * by editing a single cell or by replacing the whole board.
+ * 
+ * @author vedran
+ *
+ */
+public interface BoardEditListener {
+
+	/**
+	 * Called after a cell's digit, pencilmarks or background color has been changed
+	 * 
+	 * @param row Row index of the edited cell
+	 * @param column Column index of the edited cell
+	 * @param cell Edited cell
+	 */
+	void onCellEdited(int row, int column, Cell cell);
+	
+	/**
+	 * Called after the board's content has been replaced, for instance by a new puzzle
+	 */
+	void onBoardReplaced();
+}
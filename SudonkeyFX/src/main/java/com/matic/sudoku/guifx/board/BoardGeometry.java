@@ -0,0 +1,239 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.guifx.board;
+
+import java.util.Arrays;
+
+/**
+ * Positions and sizes (in pixels) of a board's grid lines, cells and symbols when
+ * the board is drawn within an area of a given size. The geometry is shared by the
+ * on-screen board and by the software rasterizer, so that both draw identical boards.
+ * 
+ * @author vedran
+ *
+ */
+public class BoardGeometry {
+	
+	//Returned by hit tests for positions on a grid line or outside of the board
+	public static final int NO_CELL = -1;
+	
+	//Font family used for drawing given and entered digits
+	static final String DIGIT_FONT_FAMILY = "DejaVu Sans";
+	
+	//Font family used for drawing pencilmarks
+	static final String PENCILMARK_FONT_FAMILY = "Monospaced";
+	
+	//How wide a thick line should be relative to the board size (in percent)
+	private static final double THICK_LINE_THICKNESS = 0.008; //0.012;
+	
+	//How wide an inner grid line should be relative to the board size (in percent)
+	private static final double INNER_LINE_THICKNESS = 0.004;
+	
+	//How much space (in percent) around the board we should leave empty
+	private static final double DRAWING_AREA_MARGIN = 0.08;
+	
+	//How big portion of a cell a digit should occupy when drawn (determines the font size)
+	private static final double NORMAL_FONT_SIZE_PERCENT = 0.75; //0.8
+	
+	//How big portion of its allocated piece of a cell a pencilmark should occupy when drawn
+	private static final double PENCILMARK_FONT_SIZE_PERCENT = 0.9;
+	
+	//Board size, for a 9x9 board, the dimension is 3
+	private final int dimension;
+	
+	//Size of a region (box, row or column), 9 for a 9x9 board
+	private final int unit;
+	
+	//Width of a board's inner box (in pixels)
+	private final int boxWidth;
+	
+	//Width of the board (in pixels, including the surrounding thick grid lines)
+	private final int boardWidth;
+	
+	//Thickness (in pixels) of the thick grid lines (surrounding the board and separating boxes)
+	private final int thickLineWidth;
+	
+	//Thickness (in pixels) of the inner grid lines (separating the cells)
+	private final int innerLineWidth;
+	
+	//x-coordinate for the start of the board (including the thick border line)
+	private final int boardStartX;
+	
+	//y-coordinate for the start of the board (including the thick border line)
+	private final int boardStartY;
+	
+	//Distance (in pixels) between two adjacent inner grid lines
+	private final int cellWidth;
+	
+	//Area within a cell available to a pencilmark to draw itself (cellWidth / dimension)
+	private final int pencilmarkWidth;
+	
+	//Row or column index at each pixel offset from the board's start, or NO_CELL on lines
+	private final int[] cellIndexes;
+	
+	/**
+	 * Compute the geometry of a board drawn centered within an area
+	 * 
+	 * @param dimension Board dimension (3 for a 9x9 board)
+	 * @param width Width of the drawing area, in pixels
+	 * @param height Height of the drawing area, in pixels
+	 */
+	public BoardGeometry(final int dimension, final double width, final double height) {
+		this.dimension = dimension;
+		unit = dimension * dimension;
+		
+		// Either width or height is smaller, this is our available drawing area (with margins)
+		final int totalDrawArea = Math.min((int)width, (int)height);
+		
+		// Actual usable drawing area, margins not included
+		final int usableDrawArea = totalDrawArea - (int) (DRAWING_AREA_MARGIN * totalDrawArea);
+		
+		// Prevent lines from not being drawn if too thin
+		thickLineWidth = Math.max(1, (int)(THICK_LINE_THICKNESS * usableDrawArea));
+		innerLineWidth = Math.max(1, (int)(INNER_LINE_THICKNESS * usableDrawArea));
+		
+		// How many horizontal/vertical thick lines there are
+		final int thickLinesCount = dimension + 1;
+		
+		// How many horizontal/vertical inner lines there are
+		final int innerLinesCount = dimension * (dimension - 1);
+		
+		final int innerLinesWidthInBox = (dimension - 1) * innerLineWidth;
+		
+		// How many pixels of drawing area are occupied by thick and inner lines
+		final int totalLineWidth = thickLinesCount * thickLineWidth + innerLinesCount * innerLineWidth;
+		
+		// Area remaining for a cell to be drawn after subtracting grid lines from drawing area
+		cellWidth = (usableDrawArea - totalLineWidth) / unit;		
+		pencilmarkWidth = cellWidth / dimension;
+		
+		boardWidth = cellWidth * unit + totalLineWidth;		
+		boardStartX = (int)width / 2 - (boardWidth / 2);
+		boardStartY = (int)height / 2 - (boardWidth / 2);
+		
+		boxWidth = dimension * cellWidth + innerLinesWidthInBox;
+		
+		//The board is square, so the same table serves both axes
+		cellIndexes = new int[Math.max(0, boardWidth)];
+		Arrays.fill(cellIndexes, NO_CELL);
+		for(int i = 0; i < unit && cellWidth > 0; ++i) {
+			final int cellStart = getCellStart(0, i);
+			Arrays.fill(cellIndexes, cellStart, cellStart + cellWidth, i);
+		}
+	}
+	
+	/**
+	 * Find the column of the cell at an x-coordinate
+	 * 
+	 * @param x The x-coordinate
+	 * @return Cell column, or NO_CELL if the coordinate is on a grid line or outside of the board
+	 */
+	public int getColumnAt(final double x) {
+		return getCellIndexAt(x - boardStartX);
+	}
+	
+	/**
+	 * Find the row of the cell at a y-coordinate
+	 * 
+	 * @param y The y-coordinate
+	 * @return Cell row, or NO_CELL if the coordinate is on a grid line or outside of the board
+	 */
+	public int getRowAt(final double y) {
+		return getCellIndexAt(y - boardStartY);
+	}
+	
+	/**
+	 * Get the x-coordinate at which a cell's area starts
+	 * 
+	 * @param column Cell column
+	 * @return Cell's x-coordinate
+	 */
+	public int getCellX(final int column) {
+		return getCellStart(boardStartX, column);
+	}
+	
+	/**
+	 * Get the y-coordinate at which a cell's area starts
+	 * 
+	 * @param row Cell row
+	 * @return Cell's y-coordinate
+	 */
+	public int getCellY(final int row) {
+		return getCellStart(boardStartY, row);
+	}
+	
+	public double getDigitFontSize() {
+		return NORMAL_FONT_SIZE_PERCENT * cellWidth;
+	}
+	
+	public double getPencilmarkFontSize() {
+		return PENCILMARK_FONT_SIZE_PERCENT * pencilmarkWidth;
+	}
+
+	public int getDimension() {
+		return dimension;
+	}
+
+	public int getUnit() {
+		return unit;
+	}
+
+	public int getBoxWidth() {
+		return boxWidth;
+	}
+
+	public int getBoardWidth() {
+		return boardWidth;
+	}
+
+	public int getThickLineWidth() {
+		return thickLineWidth;
+	}
+
+	public int getInnerLineWidth() {
+		return innerLineWidth;
+	}
+
+	public int getBoardStartX() {
+		return boardStartX;
+	}
+
+	public int getBoardStartY() {
+		return boardStartY;
+	}
+
+	public int getCellWidth() {
+		return cellWidth;
+	}
+
+	public int getPencilmarkWidth() {
+		return pencilmarkWidth;
+	}
+	
+	private int getCellIndexAt(final double offset) {
+		return offset >= 0 && offset < cellIndexes.length? cellIndexes[(int)offset] : NO_CELL;
+	}
+	
+	private int getCellStart(final int boardStart, final int index) {
+		return boardStart + thickLineWidth + (index / dimension) * (boxWidth + thickLineWidth) +
+				(index % dimension) * (cellWidth + innerLineWidth);
+	}
+}
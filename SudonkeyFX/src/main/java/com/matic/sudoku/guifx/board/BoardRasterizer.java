@@ -0,0 +1,311 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.guifx.board;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Arrays;
+
+import javafx.scene.paint.Color;
+
+import com.matic.sudoku.io.KeyInputManager;
+import com.matic.sudoku.io.KeyInputManager.SymbolType;
+
+/**
+ * A software rasterizer drawing boards into ARGB pixel buffers, without needing the
+ * JavaFX toolkit or its thread. It reproduces the on-screen board's geometry, colors
+ * and fonts (without the cell picker).
+ * 
+ * All of the symbols are pre-rendered into alpha masks when the rasterizer is created,
+ * after which the rasterizer is immutable. It is therefore safe to render from any
+ * number of threads at once, as long as each of them renders into its own buffer.
+ * 
+ * @author vedran
+ *
+ */
+public class BoardRasterizer {
+	
+	private static final int BACKGROUND_ARGB = toArgb(BoardColors.DEFAULT_BACKGROUND_COLOR);
+	private static final int THICK_LINE_ARGB = toArgb(BoardColors.THICK_LINE_COLOR);
+	private static final int INNER_LINE_ARGB = toArgb(BoardColors.INNER_LINE_COLOR);
+	private static final int NORMAL_FONT_ARGB = toArgb(BoardColors.NORMAL_FONT_COLOR);
+	private static final int PENCILMARK_FONT_ARGB = toArgb(BoardColors.PENCILMARK_FONT_COLOR);
+	
+	private static final int[] CELL_SELECTION_ARGBS = new int[BoardColors.CELL_SELECTION_COLORS.length];
+	
+	static {
+		for(int i = 0; i < CELL_SELECTION_ARGBS.length; ++i) {
+			CELL_SELECTION_ARGBS[i] = toArgb(BoardColors.CELL_SELECTION_COLORS[i]);
+		}
+	}
+	
+	private final BoardGeometry geometry;
+	private final int size;
+	
+	//Symbol alpha masks, indexed by cell value and positioned within a cell (or pencilmark area)
+	private final byte[][] givenDigitMasks;
+	private final byte[][] playerDigitMasks;
+	private final byte[][] pencilmarkMasks;
+	
+	/**
+	 * Create a rasterizer for square board images
+	 * 
+	 * @param dimension Board dimension (3 for a 9x9 board)
+	 * @param symbolType Symbols used for showing cell values
+	 * @param size Width and height of rendered images, in pixels
+	 */
+	public BoardRasterizer(final int dimension, final SymbolType symbolType, final int size) {
+		this.size = size;
+		geometry = new BoardGeometry(dimension, size, size);
+		
+		final String[] symbols = getSymbols(dimension, symbolType);
+		final float digitFontSize = (float)geometry.getDigitFontSize();
+		final float pencilmarkFontSize = (float)geometry.getPencilmarkFontSize();
+		
+		givenDigitMasks = createMasks(symbols, new Font(BoardGeometry.DIGIT_FONT_FAMILY, 
+				Font.BOLD, 1).deriveFont(digitFontSize), geometry.getCellWidth());
+		playerDigitMasks = createMasks(symbols, new Font(BoardGeometry.DIGIT_FONT_FAMILY, 
+				Font.PLAIN, 1).deriveFont(digitFontSize), geometry.getCellWidth());
+		pencilmarkMasks = createMasks(symbols, new Font(BoardGeometry.PENCILMARK_FONT_FAMILY, 
+				Font.BOLD, 1).deriveFont(pencilmarkFontSize), geometry.getPencilmarkWidth());
+	}
+	
+	public int getDimension() {
+		return geometry.getDimension();
+	}
+	
+	public int getSize() {
+		return size;
+	}
+	
+	/**
+	 * Render a puzzle, showing all of its values as givens
+	 * 
+	 * @param puzzle Cell values (0 for empty cells), row by row
+	 * @param pixels Buffer receiving the rendered ARGB pixels, row by row
+	 */
+	public void renderPuzzle(final int[] puzzle, final int[] pixels) {
+		final int unit = geometry.getUnit();
+		final int cellWidth = geometry.getCellWidth();
+		
+		drawBackground(pixels);
+		
+		for(int row = 0; row < unit; ++row) {
+			final int cellY = geometry.getCellY(row);
+			for(int column = 0; column < unit; ++column) {
+				final int cellX = geometry.getCellX(column);
+				fillRect(pixels, cellX, cellY, cellWidth, cellWidth, 
+						CELL_SELECTION_ARGBS[Cell.DEFAULT_BACKGROUND_COLOR_INDEX]);
+				
+				final int value = puzzle[row * unit + column];
+				if(value > 0) {
+					drawMask(pixels, givenDigitMasks[value], cellWidth, cellX, cellY, NORMAL_FONT_ARGB);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Render the content of a board's cells
+	 * 
+	 * @param cells Board cells, indexed by column and row. They must not be modified while rendering
+	 * @param pencilmarkFilterMask Mask of pencilmarks to be drawn (-1 to draw all of them)
+	 * @param pixels Buffer receiving the rendered ARGB pixels, row by row
+	 */
+	public void render(final Cell[][] cells, final int pencilmarkFilterMask, final int[] pixels) {
+		final int unit = geometry.getUnit();
+		final int dimension = geometry.getDimension();
+		final int cellWidth = geometry.getCellWidth();
+		final int pencilmarkWidth = geometry.getPencilmarkWidth();
+		
+		drawBackground(pixels);
+		
+		for(int column = 0; column < unit; ++column) {
+			final int cellX = geometry.getCellX(column);
+			for(int row = 0; row < unit; ++row) {
+				final int cellY = geometry.getCellY(row);
+				final Cell cell = cells[column][row];
+				
+				fillRect(pixels, cellX, cellY, cellWidth, cellWidth, 
+						CELL_SELECTION_ARGBS[cell.getBackgroundColorIndex()]);
+				
+				final int digit = cell.getDigit();
+				if(digit > 0) {
+					final byte[][] masks = cell.isGiven()? givenDigitMasks : playerDigitMasks;
+					drawMask(pixels, masks[digit], cellWidth, cellX, cellY, toArgb(cell.getFontColor()));
+					continue;
+				}
+				
+				int pencilmark = 1;
+				for(int i = 0, y = cellY; i < dimension; ++i, y += pencilmarkWidth) {
+					for(int j = 0, x = cellX; j < dimension; ++j, x += pencilmarkWidth) {
+						final boolean pencilmarkHasFocus = (pencilmarkFilterMask & (1 << (pencilmark - 1))) != 0;
+						if(cell.isPencilmarkSet(pencilmark) && pencilmarkHasFocus) {
+							drawMask(pixels, pencilmarkMasks[pencilmark], pencilmarkWidth, 
+									x, y, PENCILMARK_FONT_ARGB);
+						}
+						++pencilmark;
+					}
+				}
+			}
+		}
+	}
+	
+	private void drawBackground(final int[] pixels) {
+		Arrays.fill(pixels, 0, size * size, BACKGROUND_ARGB);
+		
+		final int dimension = geometry.getDimension();
+		final int boardStartX = geometry.getBoardStartX();
+		final int boardStartY = geometry.getBoardStartY();
+		final int boardWidth = geometry.getBoardWidth();
+		final int thickLineWidth = geometry.getThickLineWidth();
+		final int innerLineWidth = geometry.getInnerLineWidth();
+		final int cellWidth = geometry.getCellWidth();
+		final int boxDistance = geometry.getBoxWidth() + thickLineWidth;
+		final int lineDistance = cellWidth + innerLineWidth;
+		
+		//Draw thick board lines
+		for(int i = 0, j = 0; i < dimension + 1; ++i, j += boxDistance) {
+			fillRect(pixels, boardStartX, boardStartY + j, boardWidth, thickLineWidth, THICK_LINE_ARGB);
+			fillRect(pixels, boardStartX + j, boardStartY, thickLineWidth, boardWidth, THICK_LINE_ARGB);
+		}
+		
+		//Draw inner lines
+		for(int i = 0, j = thickLineWidth; i < dimension; ++i, j += boxDistance) {
+			for(int k = 0, m = j + cellWidth; k < dimension - 1; ++k, m += lineDistance) {
+				fillRect(pixels, boardStartX, boardStartY + m, boardWidth, innerLineWidth, INNER_LINE_ARGB);
+				fillRect(pixels, boardStartX + m, boardStartY, innerLineWidth, boardWidth, INNER_LINE_ARGB);
+			}
+		}
+	}
+	
+	private void fillRect(final int[] pixels, final int x, final int y, 
+			final int width, final int height, final int argb) {
+		final int startX = Math.max(0, x);
+		final int endX = Math.min(size, x + width);
+		final int endY = Math.min(size, y + height);
+		
+		for(int row = Math.max(0, y); row < endY; ++row) {
+			Arrays.fill(pixels, row * size + startX, row * size + endX, argb);
+		}
+	}
+	
+	//Blend a symbol's alpha mask in the given color over the pixels of a square area
+	private void drawMask(final int[] pixels, final byte[] mask, final int maskWidth, 
+			final int x, final int y, final int argb) {
+		final int red = (argb >> 16) & 0xff;
+		final int green = (argb >> 8) & 0xff;
+		final int blue = argb & 0xff;
+		
+		for(int row = 0; row < maskWidth; ++row) {
+			final int pixelY = y + row;
+			if(pixelY < 0 || pixelY >= size) {
+				continue;
+			}
+			for(int column = 0; column < maskWidth; ++column) {
+				final int pixelX = x + column;
+				final int alpha = mask[row * maskWidth + column] & 0xff;
+				if(alpha == 0 || pixelX < 0 || pixelX >= size) {
+					continue;
+				}
+				final int index = pixelY * size + pixelX;
+				final int background = pixels[index];
+				final int inverseAlpha = 255 - alpha;
+				
+				pixels[index] = 0xff000000 | 
+						((red * alpha + ((background >> 16) & 0xff) * inverseAlpha) / 255) << 16 |
+						((green * alpha + ((background >> 8) & 0xff) * inverseAlpha) / 255) << 8 |
+						((blue * alpha + (background & 0xff) * inverseAlpha) / 255);
+			}
+		}
+	}
+	
+	//Render each symbol centered within a square area, the same way the board positions it
+	private static byte[][] createMasks(final String[] symbols, final Font font, final int areaWidth) {
+		final byte[][] masks = new byte[symbols.length][];
+		if(areaWidth <= 0) {
+			for(int i = 0; i < masks.length; ++i) {
+				masks[i] = new byte[0];
+			}
+			return masks;
+		}
+		
+		final BufferedImage maskImage = new BufferedImage(areaWidth, areaWidth, BufferedImage.TYPE_BYTE_GRAY);
+		final Graphics2D graphics = maskImage.createGraphics();
+		try {
+			graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, 
+					RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+			graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, 
+					RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+			graphics.setFont(font);
+			
+			final FontMetrics fontMetrics = graphics.getFontMetrics();
+			final int fontHeight = fontMetrics.getHeight();
+			final int fontAscent = fontMetrics.getAscent();
+			
+			final byte[] maskData = ((DataBufferByte)maskImage.getRaster().getDataBuffer()).getData();
+			for(int i = 1; i < symbols.length; ++i) {
+				graphics.setColor(java.awt.Color.BLACK);
+				graphics.fillRect(0, 0, areaWidth, areaWidth);
+				graphics.setColor(java.awt.Color.WHITE);
+				
+				final int fontWidth = fontMetrics.stringWidth(symbols[i]);
+				graphics.drawString(symbols[i], (int)((areaWidth - fontWidth) / 2.0 + 0.5),
+						(int)((areaWidth - fontHeight) / 2.0 + 0.5) + fontAscent);
+				
+				masks[i] = maskData.clone();
+			}
+		}
+		finally {
+			graphics.dispose();
+		}
+		return masks;
+	}
+	
+	/**
+	 * Get the symbols cell values are shown with, matching the board's digit to symbol mappings
+	 * 
+	 * @param dimension Board dimension (3 for a 9x9 board)
+	 * @param symbolType Symbols used for showing cell values
+	 * @return Symbols indexed by cell value (index 0, an empty cell, has no symbol)
+	 */
+	public static String[] getSymbols(final int dimension, final SymbolType symbolType) {
+		final int unit = dimension * dimension;
+		final boolean useLetters = symbolType == SymbolType.LETTERS || dimension > GameBoard.DIMENSION_9x9;
+		
+		final String[] symbols = new String[unit + 1];
+		for(int i = 1; i <= unit; ++i) {
+			symbols[i] = useLetters? KeyInputManager.LETTER_KEY_ACTION_NAMES[i - 1] : String.valueOf(i);
+		}
+		return symbols;
+	}
+	
+	private static int toArgb(final Color color) {
+		return (int)Math.round(color.getOpacity() * 255) << 24 | 
+				(int)Math.round(color.getRed() * 255) << 16 |
+				(int)Math.round(color.getGreen() * 255) << 8 | 
+				(int)Math.round(color.getBlue() * 255);
+	}
+}
@@ -57,6 +57,36 @@ public class Cell {
 		pencilmarks = new BitSet();
 		given = false;
 	}
+	
+	/**
+	 * Create a copy of a cell, which can be edited independently of it
+	 * 
+	 * @param cell Cell to copy
+	 */
+	public Cell(final Cell cell) {
+		backgroundColorIndex = cell.backgroundColorIndex;
+		fontColor = cell.fontColor;
+		pencilmarks = (BitSet)cell.pencilmarks.clone();
+		given = cell.given;
+		digit = cell.digit;
+	}
+	
+	/**
+	 * Copy a grid of cells, cell by cell
+	 * 
+	 * @param cells Cells to copy, indexed by column and row
+	 * @return Copied cells
+	 */
+	public static Cell[][] copyOf(final Cell[][] cells) {
+		final Cell[][] copy = new Cell[cells.length][];
+		for(int i = 0; i < cells.length; ++i) {
+			copy[i] = new Cell[cells[i].length];
+			for(int j = 0; j < cells[i].length; ++j) {
+				copy[i][j] = new Cell(cells[i][j]);
+			}
+		}
+		return copy;
+	}
 
 	public BitSet getPencilmarks() {
 		return BitSet.valueOf(pencilmarks.toByteArray());
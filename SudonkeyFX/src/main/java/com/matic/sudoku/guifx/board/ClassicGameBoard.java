@@ -20,17 +20,22 @@
 
 package com.matic.sudoku.guifx.board;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
+import javafx.animation.AnimationTimer;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.paint.Color;
-import javafx.scene.text.Font;
-import javafx.scene.text.FontWeight;
 
+import com.matic.sudoku.guifx.action.undo.UndoableBatchEditAction;
 import com.matic.sudoku.guifx.action.undo.UndoableCellValueEditAction;
 import com.matic.sudoku.guifx.action.undo.UndoableColorEditAction;
 import com.matic.sudoku.guifx.action.undo.UndoableGameBoardAction;
@@ -38,45 +43,21 @@ import com.matic.sudoku.guifx.action.undo.UndoablePencilmarkEditAction;
 import com.matic.sudoku.io.KeyInputManager;
 import com.matic.sudoku.io.KeyInputManager.SymbolType;
 import com.matic.sudoku.io.KeyInputValidationResult;
-import com.sun.javafx.tk.FontLoader;
-import com.sun.javafx.tk.FontMetrics;
-import com.sun.javafx.tk.Toolkit;
 
 public class ClassicGameBoard extends Canvas implements GameBoard {
 	
-	private static Color THICK_LINE_COLOR = Color.BLACK;
-	private static Color INNER_LINE_COLOR = Color.BLACK;
-	
 	//Color of rectangular area surrounding an active cell
 	private static final Color PICKER_COLOR = Color.rgb(220, 0, 0);
 	
-	private static Color DEFAULT_BACKGROUND_COLOR = Color.rgb(234,184,57);
-	private static Color NORMAL_FONT_COLOR = Color.BLACK;
-	private static final Color PENCILMARK_FONT_COLOR = Color.rgb(0, 43, 54);
-	
-	//Available colors the player can use for cell selections
-	public static final Color[] CELL_SELECTION_COLORS = {DEFAULT_BACKGROUND_COLOR,
-		Color.rgb(253, 188, 75), Color.rgb(255, 144, 150),
-		Color.rgb(244, 119, 80), Color.rgb(29, 153, 243),
-		Color.rgb(46, 204, 113)};
-	
 	//Color index of the board's default background color (white)
 	private static final int DEFAULT_CELL_COLOR_INDEX = 0;
 	
-	//How wide a thick line should be relative to the board size (in percent)
-	private static final double THICK_LINE_THICKNESS = 0.008; //0.012;
-	
-	//How wide an inner grid line should be relative to the board size (in percent)
-	private static final double INNER_LINE_THICKNESS = 0.004;
+	//Bit positions of a packed cell's background color index and pencilmarks (the digit comes first)
+	private static final int CELL_STATE_COLOR_SHIFT = 8;
+	private static final int CELL_STATE_PENCILMARKS_SHIFT = 16;
 	
-	//How much space (in percent) around the board we should leave empty
-	private static final double DRAWING_AREA_MARGIN = 0.08;
-	
-	//How big portion of a cell a digit should occupy when drawn (determines the font size)
-	private static final double NORMAL_FONT_SIZE_PERCENT = 0.75; //0.8
-	
-	//How big portion of its allocated piece of a cell a pencilmark should occupy when drawn
-	private static final double PENCILMARK_FONT_SIZE_PERCENT = 0.9;
+	//How many glyph caches (one per cell size) are kept for reuse while the board is resized
+	private static final int GLYPH_CACHE_LIMIT = 8;
 	
 	//Digit -> Symbol shown on the board - mapping
 	private final Map<Integer, String> digitToSymbolMappings = new HashMap<>();
@@ -143,37 +124,99 @@ public class ClassicGameBoard extends Canvas implements GameBoard {
 	//Area within a cell available to a pencilmark to draw itself (cellWidth / dimension)
 	private int pencilmarkWidth;
 	
-	//Font used for drawing pencilmarks
-	private Font pencilmarkFont;
+	//Fonts and pre-measured symbols used for drawing cell contents
+	private GlyphCache glyphCache = null;
+	
+	//Recently used glyph caches, by cell width, least recently used first
+	private final Map<Integer, GlyphCache> glyphCaches = new LinkedHashMap<Integer, GlyphCache>(
+			GLYPH_CACHE_LIMIT, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Integer, GlyphCache> eldest) {
+			return size() > GLYPH_CACHE_LIMIT;
+		}
+	};
+	
+	//Board size (in pixels) the current layout was computed for
+	private int layoutWidth;
+	private int layoutHeight;
 	
-	//Font used for drawing digits enter by the player
-	private Font playerDigitFont;
+	//Whether the board has been resized since its layout was last computed
+	private boolean layoutInvalid = false;
 	
-	//Font used for drawing givens in a puzzle
-	private Font givenDigitFont;
+	//Collects repaint counts and drawing times, if set
+	private RenderStatistics renderStatistics = null;
 	
 	//Currently set color for paint board and cell background
 	private Color backgroundColor;
 	
+	//Gets notified of board content changes, if set
+	private BoardEditListener editListener = null;
+	
+	//Positions and sizes of the board's elements on the screen
+	private BoardGeometry geometry;
+	
+	//Cells that need to be repainted, indexed by row * unit + column
+	private final BitSet dirtyCells = new BitSet();
+	
+	//Layer below the board, holding the background and grid lines
+	private final Canvas gridLayer = new Canvas();
+	
+	//Layer above the board, holding the picker
+	private final Canvas pickerLayer = new Canvas();
+	
+	//Cells changed within the current batch update (row * unit + column), null outside of an update
+	private BitSet batchCells = null;
+	
+	//Packed contents of the cells changed within the current batch update, as before the update
+	private long[] batchOldCellStates = null;
+	
+	//Whether the picker has moved since it was last drawn
+	private boolean pickerMoved = false;
+	
+	//Whether all of the cells, or the grid layer, need to be repainted
+	private boolean boardInvalid = false;
+	private boolean gridInvalid = false;
+	
+	//Whether the repaint timer will run on the next pulse
+	private boolean repaintScheduled = false;
+	
+	//Repaints the board's changes on the next pulse, and then stops
+	private final AnimationTimer repaintTimer = new AnimationTimer() {
+		@Override
+		public void handle(final long now) {
+			stop();
+			repaintScheduled = false;
+			drawChanges();
+		}
+	};
+	
+	//Area covered by the picker (including its border), as last drawn on the overlay layer
+	private int pickerX;
+	private int pickerY;
+	private int pickerSize;
+	
 	public ClassicGameBoard(final int dimension, final SymbolType symbolType) {		
 		this.dimension = dimension;
 		unit = dimension * dimension;		
 		
-		this.widthProperty().addListener(observable -> {			
-			updateDimensions();
-			draw(true, true);
-		});
-		this.heightProperty().addListener(observable -> {
-			updateDimensions();
-			draw(true, true);
-		});
+		gridLayer.widthProperty().bind(this.widthProperty());
+		gridLayer.heightProperty().bind(this.heightProperty());
+		pickerLayer.widthProperty().bind(this.widthProperty());
+		pickerLayer.heightProperty().bind(this.heightProperty());
+		pickerLayer.setMouseTransparent(true);
+		
+		//A resize changes both properties, lay out and repaint the board only once per pulse
+		this.widthProperty().addListener(observable -> invalidateLayout());
+		this.heightProperty().addListener(observable -> invalidateLayout());
 		
 		cellColorIndex = 1;
 		
 		//Draw all pencilmarks by default (focus OFF)
 		pencilmarkFilterMask = -1;
 		
-		backgroundColor = DEFAULT_BACKGROUND_COLOR;
+		backgroundColor = BoardColors.DEFAULT_BACKGROUND_COLOR;
 		
 		symbolsFilledCount = cellPickerCol = cellPickerRow = 0;
 		colorCount = pencilmarkCount = 0;
@@ -217,6 +260,10 @@ public class ClassicGameBoard extends Canvas implements GameBoard {
 		this.dimension = dimension;
 		unit = dimension * dimension;
 		
+		//Keep the picker within a smaller grid
+		cellPickerRow = Math.min(cellPickerRow, unit - 1);
+		cellPickerCol = Math.min(cellPickerCol, unit - 1);
+		
 		digitToSymbolMappings.clear();
 		symbolToDigitMappings.clear();
 		
@@ -235,9 +282,120 @@ public class ClassicGameBoard extends Canvas implements GameBoard {
 		
 		mouseClickInputValue = digitToSymbolMappings.get(KeyInputManager.DIGIT_KEY_ACTION_VALUES[0]);
 		
+		//The symbols have changed, measure them again
+		glyphCache = null;
+		glyphCaches.clear();
 		initCells(dimension);
 		updateDimensions();
-		draw(true, true);
+		invalidateBoard(true);
+		notifyBoardReplaced();
+	}
+	
+	public void setEditListener(final BoardEditListener editListener) {
+		this.editListener = editListener;
+	}
+	
+	/**
+	 * Start or stop collecting repaint counts and drawing times
+	 * 
+	 * @param renderStatistics Statistics to add to, or null to stop collecting them
+	 */
+	public void setRenderStatistics(final RenderStatistics renderStatistics) {
+		this.renderStatistics = renderStatistics;
+	}
+	
+	/**
+	 * Start a batch update of the board. Cell changes made until the update is committed
+	 * are applied right away, but are repainted together and undone as a single action.
+	 * The whole board (its grid, puzzle or cells) can't be replaced within an update.
+	 */
+	public void beginUpdate() {
+		if(batchCells != null) {
+			throw new IllegalStateException("A board update is already in progress");
+		}
+		batchCells = new BitSet(unit * unit);
+		batchOldCellStates = new long[unit * unit];
+	}
+	
+	/**
+	 * Commit a batch update started with beginUpdate()
+	 * 
+	 * @return Undoable action for all of the update's changes, or null if no cell has changed
+	 */
+	public UndoableGameBoardAction commitUpdate() {
+		if(batchCells == null) {
+			throw new IllegalStateException("No board update is in progress");
+		}
+		final int[] cellIndexes = new int[batchCells.cardinality()];
+		final long[] oldCellStates = new long[cellIndexes.length];
+		final long[] newCellStates = new long[cellIndexes.length];
+		
+		int changeCount = 0;
+		for(int index = batchCells.nextSetBit(0); index >= 0; index = batchCells.nextSetBit(index + 1)) {
+			final long newCellState = packCellState(cells[index % unit][index / unit]);
+			//A cell may have been changed and then changed back within the update
+			if(newCellState != batchOldCellStates[index]) {
+				cellIndexes[changeCount] = index;
+				oldCellStates[changeCount] = batchOldCellStates[index];
+				newCellStates[changeCount] = newCellState;
+				++changeCount;
+			}
+		}
+		batchCells = null;
+		batchOldCellStates = null;
+		
+		return changeCount == 0? null : new UndoableBatchEditAction(this, 
+				Arrays.copyOf(cellIndexes, changeCount), Arrays.copyOf(oldCellStates, changeCount),
+				Arrays.copyOf(newCellStates, changeCount));
+	}
+	
+	/**
+	 * Apply a batch of cell changes as a single update. If the changes fail, the cells
+	 * they have already changed are restored before the failure is rethrown.
+	 * 
+	 * @param changes Changes to apply, made through this board's cell setters
+	 * @return Undoable action for all of the changes, or null if no cell has changed
+	 */
+	public UndoableGameBoardAction update(final Consumer<ClassicGameBoard> changes) {
+		beginUpdate();
+		try {
+			changes.accept(this);
+		}
+		catch(final RuntimeException e) {
+			//Don't leave the board half-updated, revert the changes made before the failure
+			final UndoableGameBoardAction partialUpdate = commitUpdate();
+			if(partialUpdate != null) {
+				partialUpdate.undo();
+			}
+			throw e;
+		}
+		return commitUpdate();
+	}
+	
+	/**
+	 * Set cells' contents, as previously recorded by a batch update
+	 * 
+	 * @param cellIndexes Indexes of the cells to set (row * unit + column)
+	 * @param cellStates Packed cell contents to set
+	 */
+	public void restoreCellStates(final int[] cellIndexes, final long[] cellStates) {
+		for(int i = 0; i < cellIndexes.length; ++i) {
+			final int row = cellIndexes[i] / unit;
+			final int column = cellIndexes[i] % unit;
+			final long cellState = cellStates[i];
+			
+			final long pencilmarkBits = cellState >>> CELL_STATE_PENCILMARKS_SHIFT;
+			final int[] pencilmarks = new int[Long.bitCount(pencilmarkBits)];
+			for(int bit = 0, j = 0; j < pencilmarks.length; ++bit) {
+				if((pencilmarkBits & (1L << bit)) != 0) {
+					pencilmarks[j++] = bit + 1;
+				}
+			}
+			
+			setCellValue(row, column, (int)(cellState & 0xff));
+			setCellColor(row, column, (int)((cellState >>> CELL_STATE_COLOR_SHIFT) & 0xff));
+			setPencilmarkValues(row, column, true, true, pencilmarks);
+		}
 	}
 	
 	/**
@@ -247,6 +405,7 @@ public class ClassicGameBoard extends Canvas implements GameBoard {
 	* @param value Value to set
 	*/
 	public void setCellValue(final int row, final int column, final int value) {				
+		recordBatchChange(row, column);
 		if(cells[column][row].getDigit() == 0 && value > 0) {
 			//New symbol entered, increase symbols filled count
 			++symbolsFilledCount;
@@ -256,7 +415,33 @@ public class ClassicGameBoard extends Canvas implements GameBoard {
 			--symbolsFilledCount;
 		}
 		cells[column][row].setDigit(value);
-		draw(true, true);
+		invalidateCell(row, column);
+		notifyCellEdited(row, column);
+	}
+	
+	/**
+	 * Replace the board's content with previously copied or loaded cells
+	 * 
+	 * @param cells Cells indexed by column and row, matching the board's dimension
+	 */
+	public void setCells(final Cell[][] cells) {
+		checkNoUpdate();
+		this.cells = cells;
+		symbolsFilledCount = pencilmarkCount = colorCount = 0;
+		
+		for(final Cell[] column : cells) {
+			for(final Cell cell : column) {
+				if(cell.getDigit() > 0) {
+					++symbolsFilledCount;
+				}
+				if(cell.getBackgroundColorIndex() != DEFAULT_CELL_COLOR_INDEX) {
+					++colorCount;
+				}
+				pencilmarkCount += cell.getPencilmarkCount();
+			}
+		}
+		invalidateBoard(false);
+		notifyBoardReplaced();
 	}
 	
 	/**
@@ -265,7 +450,7 @@ public class ClassicGameBoard extends Canvas implements GameBoard {
 	*/
 	public void setPencilmarkMask(final int pencilmarkFilterMask) {
 		this.pencilmarkFilterMask = pencilmarkFilterMask;
-		draw(true, true);
+		invalidateBoard(false);
 	}
 	
 	/**
@@ -279,6 +464,7 @@ public class ClassicGameBoard extends Canvas implements GameBoard {
 	*/
 	public void setPencilmarkValues(final int row, final int column, final boolean pencilmarkEntered,
 			final boolean clearOldValues, final int... values) {
+		recordBatchChange(row, column);
 		if(clearOldValues) {
 			final int oldCount = cells[column][row].getPencilmarkCount();
 			pencilmarkCount -= oldCount;
@@ -294,7 +480,8 @@ public class ClassicGameBoard extends Canvas implements GameBoard {
 			}
 			cells[column][row].setPencilmark(value, pencilmarkEntered);
 		}
-		draw(true, true);
+		invalidateCell(row, column);
+		notifyCellEdited(row, column);
 	}
 	
 	/**
@@ -305,65 +492,244 @@ public class ClassicGameBoard extends Canvas implements GameBoard {
 		this.cellColorIndex = cellColorIndex;
 	}
 	
-	private void setCellPicker(final double mouseX, final double mouseY) {
-		final int boxDistance = boxWidth + thickLineWidth;
-		//Find the correct column index
-		for(int i = 0, x = boardStartX + boxDistance; i < dimension; ++i, x += boxDistance) {
-			if(mouseX < x) {
-				//We found the right box, look for right cell's column index
-				cellPickerCol = getColumnAt(mouseX, x - boxWidth, i);
-				break;
-			}
+	private void notifyCellEdited(final int row, final int column) {
+		if(editListener != null) {
+			editListener.onCellEdited(row, column, cells[column][row]);
 		}
-		//Find the correct row index
-		for(int i = 0, y = boardStartY + boxDistance; i < dimension; ++i, y += boxDistance) {
-			if(mouseY < y) {
-				//We found the right box, look for right cell's row index
-				cellPickerRow = getRowAt(mouseY, y - boxWidth, i);
-				break;
-			}
+	}
+	
+	private void notifyBoardReplaced() {
+		if(editListener != null) {
+			editListener.onBoardReplaced();
+		}
+	}
+	
+	/**
+	 * Let the picker select the cell at a position on the board
+	 * 
+	 * @param mouseX The mouse X coordinate
+	 * @param mouseY The mouse Y coordinate
+	 * @return true if there is a cell at the position, false if it is on a grid line
+	 */
+	private boolean setCellPicker(final double mouseX, final double mouseY) {
+		final int pickerCol = geometry.getColumnAt(mouseX);
+		final int pickerRow = geometry.getRowAt(mouseY);
+		if(pickerCol == BoardGeometry.NO_CELL || pickerRow == BoardGeometry.NO_CELL) {
+			return false;
+		}
+		moveCellPicker(pickerRow, pickerCol);
+		return true;
+	}
+	
+	private void moveCellPicker(final int row, final int column) {
+		if(row == cellPickerRow && column == cellPickerCol) {
+			return;
 		}
+		cellPickerRow = row;
+		cellPickerCol = column;
+		pickerMoved = true;
+		scheduleRepaint();
+	}
+	
+	/**
+	 * Get a copy of this board's cells, indexed by column and row. The copy can be
+	 * safely handed over to other threads, for instance for rasterizing the board.
+	 * 
+	 * @return Copied board cells
+	 */
+	public Cell[][] getCellsCopy() {
+		return Cell.copyOf(cells);
 	}
 	
-	private int getColumnAt(final double mouseX, final int boxBeginX, final int boxIndex) {
-		final int index = (int)(boxIndex * dimension + 
-				((mouseX - boxBeginX) / (cellWidth + innerLineWidth)));
-		return index >= unit? unit - 1 : index;
+	public SymbolType getSymbolType() {
+		return symbolType;
 	}
 	
-	private int getRowAt(final double mouseY, final int boxBeginY, final int boxIndex) {
-		final int index = (int)(boxIndex * dimension + 
-				((mouseY - boxBeginY) / (cellWidth + innerLineWidth)));
-		return index >= unit? unit - 1 : index;
+	public int getPencilmarkMask() {
+		return pencilmarkFilterMask;
 	}
 
+	/**
+	 * Draw the board's layers
+	 * 
+	 * @param paintBackground Whether to redraw the grid layer (background and grid lines)
+	 * @param drawPicker Whether to draw the picker on the overlay layer
+	 */
 	public void draw(final boolean paintBackground, final boolean drawPicker) {			
+		if(layoutInvalid) {
+			updateDimensions();
+		}
 		//Don't draw while the components are still being initialized
 		if(boxWidth <= 0) {
 			return;
 		}
 		
-		final GraphicsContext context = this.getGraphicsContext2D();
-		
+		onRepaint();
 		if(paintBackground) {
-			drawBackground(context);
+			drawGridLayer();
 		}		
 		
+		final long cellsStartTime = getPhaseStartTime();
+		final GraphicsContext context = this.getGraphicsContext2D();
+		context.clearRect(0, 0, this.getWidth(), this.getHeight());
+		renderCells(context);
+		recordPhase(RenderStatistics.Phase.CELLS, cellsStartTime);
+		dirtyCells.clear();
+		boardInvalid = gridInvalid = false;
+		
+		if(drawPicker) {
+			drawPicker();
+		}
+	}
+	
+	/**
+	 * Get the layer drawn below the board, holding its background and grid lines. It is
+	 * only redrawn when the board is resized or the grid changes.
+	 * 
+	 * @return Grid layer
+	 */
+	public Canvas getGridLayer() {
+		return gridLayer;
+	}
+	
+	/**
+	 * Get the layer drawn on top of the board, holding the picker. Mouse events pass
+	 * through it to the board.
+	 * 
+	 * @return Picker overlay layer
+	 */
+	public Canvas getPickerLayer() {
+		return pickerLayer;
+	}
+	
+	/**
+	 * Repaint the changes since the board was last drawn: the cells whose content has
+	 * changed and, if it has moved, the picker. This is called once per pulse, however
+	 * many changes were made since the previous one.
+	 */
+	private void drawChanges() {
+		if(layoutInvalid) {
+			updateDimensions();
+		}
+		if(boxWidth <= 0) {
+			dirtyCells.clear();
+			return;
+		}
+		if(boardInvalid || gridInvalid || dirtyCells.cardinality() > unit * unit / 2) {
+			//Too many changes for repainting them one by one
+			draw(gridInvalid, true);
+			return;
+		}
+		
+		onRepaint();
+		if(!dirtyCells.isEmpty()) {
+			final long cellsStartTime = getPhaseStartTime();
+			final GraphicsContext context = this.getGraphicsContext2D();
+			for(int index = dirtyCells.nextSetBit(0); index >= 0; index = dirtyCells.nextSetBit(index + 1)) {
+				final int row = index / unit;
+				final int column = index % unit;
+				renderCellContent(context, cells[column][row], geometry.getCellX(column), geometry.getCellY(row));
+			}
+			recordPhase(RenderStatistics.Phase.CELLS, cellsStartTime);
+			dirtyCells.clear();
+		}
+		
+		if(pickerMoved) {
+			drawPicker();
+		}
+	}
+	
+	private void checkNoUpdate() {
+		if(batchCells != null) {
+			throw new IllegalStateException("The board can't be replaced within an update");
+		}
+	}
+	
+	//Keep a cell's content as it was before it is first changed within a batch update
+	private void recordBatchChange(final int row, final int column) {
+		final int index = row * unit + column;
+		if(batchCells != null && !batchCells.get(index)) {
+			batchCells.set(index);
+			batchOldCellStates[index] = packCellState(cells[column][row]);
+		}
+	}
+	
+	//Pack a cell's digit, background color index and pencilmarks into a single value
+	private static long packCellState(final Cell cell) {
+		final long[] pencilmarks = cell.getPencilmarks().toLongArray();
+		final long pencilmarkBits = pencilmarks.length > 0? pencilmarks[0] & 0xffffffffL : 0;
+		return cell.getDigit() | ((long)cell.getBackgroundColorIndex() << CELL_STATE_COLOR_SHIFT) |
+				(pencilmarkBits << CELL_STATE_PENCILMARKS_SHIFT);
+	}
+	
+	private void invalidateCell(final int row, final int column) {
+		dirtyCells.set(row * unit + column);
+		scheduleRepaint();
+	}
+	
+	/**
+	 * Mark the whole board for repainting
+	 * 
+	 * @param gridChanged Whether the grid layer needs to be repainted as well
+	 */
+	private void invalidateBoard(final boolean gridChanged) {
+		boardInvalid = true;
+		gridInvalid |= gridChanged;
+		scheduleRepaint();
+	}
+	
+	//Compute the layout for the board's new size and repaint it on the next pulse
+	private void invalidateLayout() {
+		layoutInvalid = true;
+		invalidateBoard(true);
+	}
+	
+	//Repaint the board on the next pulse, unless that has been requested already
+	private void scheduleRepaint() {
+		if(!repaintScheduled) {
+			repaintScheduled = true;
+			repaintTimer.start();
+		}
+	}
+	
+	private void drawGridLayer() {
+		final GraphicsContext context = gridLayer.getGraphicsContext2D();
+		final long backgroundStartTime = getPhaseStartTime();
+		drawBackground(context);
+		recordPhase(RenderStatistics.Phase.BACKGROUND, backgroundStartTime);
+		
+		final long linesStartTime = getPhaseStartTime();
 		drawThickLines(context);
 		drawInnerLines(context);
-		
-		renderCells(context, drawPicker);
+		recordPhase(RenderStatistics.Phase.LINES, linesStartTime);
+	}
+	
+	//Avoid querying the time while no statistics are collected
+	private long getPhaseStartTime() {
+		return renderStatistics != null? System.nanoTime() : 0;
+	}
+	
+	private void recordPhase(final RenderStatistics.Phase phase, final long startTime) {
+		if(renderStatistics != null) {
+			renderStatistics.record(phase, startTime);
+		}
+	}
+	
+	private void onRepaint() {
+		if(renderStatistics != null) {
+			renderStatistics.onRepaint();
+		}
 	}
 	
 	private void drawBackground(final GraphicsContext context) {
 		context.clearRect(0, 0, this.getWidth(), this.getHeight());
 		
-		context.setFill(DEFAULT_BACKGROUND_COLOR);
+		context.setFill(BoardColors.DEFAULT_BACKGROUND_COLOR);
 		context.fillRect(0, 0, this.getWidth(), this.getHeight());
 	}
 	
 	private void drawThickLines(final GraphicsContext context) {		
-		context.setFill(THICK_LINE_COLOR);
+		context.setFill(BoardColors.THICK_LINE_COLOR);
 		
 		final int lineDistance = thickLineWidth + boxWidth;
 				
@@ -379,7 +745,7 @@ public class ClassicGameBoard extends Canvas implements GameBoard {
 	
 	private void drawInnerLines(final GraphicsContext context) {
 		//g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-		context.setFill(INNER_LINE_COLOR);
+		context.setFill(BoardColors.INNER_LINE_COLOR);
 		
 		final int lineDistance = cellWidth + innerLineWidth;
 		final int boxDistance = boxWidth + thickLineWidth;
@@ -400,56 +766,28 @@ public class ClassicGameBoard extends Canvas implements GameBoard {
 	}
 	
 	private void initCells(final int dimension) {
+		checkNoUpdate();
 		cells = new Cell[unit][unit];
 		
 		for(int i = 0; i < unit; ++i) {
 			for(int j = 0; j < unit; ++j) {
-				cells[i][j] = new Cell(0, NORMAL_FONT_COLOR);
+				cells[i][j] = new Cell(0, BoardColors.NORMAL_FONT_COLOR);
 			}
 		}
 	}
 	
-	private void renderCells(final GraphicsContext context, final boolean drawPicker) {
-		final int cellDistance = cellWidth + innerLineWidth;
-		final int boxDistance = boxWidth + thickLineWidth;
-		
-		int pickerCellX = 0;
-		int pickerCellY = 0;
-		
-		//Iterate over each column
-		for(int col = 0, boxX = boardStartX + thickLineWidth, cellX = boxX; col < unit;
-				++col, cellX += cellDistance) {
-			//Account for each box's surrounding line
-			if(col > 0 && col % dimension == 0) {
-				boxX += boxDistance;
-				cellX = boxX;
-			}
-		
-			//Iterate over each row
-			for(int row = 0, boxY = boardStartY + thickLineWidth, cellY = boxY; row < unit;
-					++row, cellY += cellDistance) {
-				//Account for each box's surrounding line
-				if(row > 0 && row % dimension == 0) {
-					boxY += boxDistance;
-					cellY = boxY;
-				}
-				renderCellContent(context, cells[col][row], cellX, cellY);
-				
-				if(cellPickerRow == row && cellPickerCol == col) {
-					pickerCellX = cellX;
-					pickerCellY = cellY;
-				}
+	private void renderCells(final GraphicsContext context) {
+		for(int col = 0; col < unit; ++col) {
+			final int cellX = geometry.getCellX(col);
+			for(int row = 0; row < unit; ++row) {
+				renderCellContent(context, cells[col][row], cellX, geometry.getCellY(row));
 			}
 		}
-		
-		if(drawPicker) {
-			drawPicker(context, pickerCellX, pickerCellY);
-		}
 	}
 	
 	private void renderCellContent(final GraphicsContext context, final Cell cell, final int cellX, final int cellY) {		
 		// Set the cell's background color and draw it
-		context.setFill(CELL_SELECTION_COLORS[cell.getBackgroundColorIndex()]);
+		context.setFill(BoardColors.CELL_SELECTION_COLORS[cell.getBackgroundColorIndex()]);
 		context.fillRect(cellX, cellY, cellWidth, cellWidth);
 		
 		final int digit = cell.getDigit();
@@ -465,104 +803,90 @@ public class ClassicGameBoard extends Canvas implements GameBoard {
 	private void drawCellValue(final GraphicsContext context, final Cell cell,
 			final int cellX, final int cellY, final int value) {
 		// Set font and font color for this cell and draw entered digit value
-		if(cell.isGiven()) {
-			context.setFont(givenDigitFont);
-		} 
-		else {
-			context.setFont(playerDigitFont);
-		}		
+		final boolean given = cell.isGiven();
+		context.setFont(glyphCache.getDigitFont(given));
 		context.setFill(cell.getFontColor());
 		
-		final String symbol = digitToSymbolMappings.get(value);
-		
-		final FontLoader fontLoader = Toolkit.getToolkit().getFontLoader();
-		final Font contextFont = context.getFont();
-		final FontMetrics fontMetrics = fontLoader.getFontMetrics(contextFont);
-		
-		final float fontHeight = fontMetrics.getLineHeight();
-		final float fontWidth = fontLoader.computeStringWidth(symbol, contextFont);	
-		final float fontAscent = fontMetrics.getAscent();		
-		
-		context.fillText(symbol, cellX + (int) ((cellWidth - fontWidth) / 2.0 + 0.5),
-				cellY + (int) ((cellWidth - fontHeight) / 2.0 + 0.5) + fontAscent);
+		context.fillText(glyphCache.getSymbol(value), cellX + glyphCache.getDigitX(value, given),
+				cellY + glyphCache.getDigitY(given));
 	}
 	
 	private void drawCellPencilmarks(final GraphicsContext context, final Cell cell, final int cellX, final int cellY) {
-		context.setFont(pencilmarkFont);
-		context.setFill(PENCILMARK_FONT_COLOR);
-					
-		final FontLoader fontLoader = Toolkit.getToolkit().getFontLoader();
-		final Font contextFont = context.getFont();
-		final FontMetrics fontMetrics = fontLoader.getFontMetrics(contextFont);
+		//Copy the pencilmarks from the atlas, drawing them as text is much slower
+		final Image atlas = glyphCache.getPencilmarkAtlas();
+		if(atlas == null) {
+			return;
+		}
 		
 		int pencilmark = 1;
 		for(int i = 0, y = cellY; i < dimension; ++i, y += pencilmarkWidth) {
 			for(int j = 0, x = cellX; j < dimension; ++j, x += pencilmarkWidth) {
 				final boolean pencilmarkHasFocus = (pencilmarkFilterMask & (1 << (pencilmark - 1))) != 0;
 				if(cell.isPencilmarkSet(pencilmark) && pencilmarkHasFocus) {
-					final String symbol = digitToSymbolMappings.get(pencilmark);
-					final float fontHeight = fontMetrics.getLineHeight();
-					final float fontWidth = fontLoader.computeStringWidth(symbol, contextFont);	
-					
-					context.fillText(symbol, x + (int)((pencilmarkWidth - fontWidth) / 2.0 + 0.5),
-							y + (int)((pencilmarkWidth - fontHeight) / 2.0 + 0.5) + fontMetrics.getAscent());					
+					context.drawImage(atlas, glyphCache.getPencilmarkAtlasX(pencilmark), 0,
+							pencilmarkWidth, pencilmarkWidth, x, y, pencilmarkWidth, pencilmarkWidth);
 				}
 				++pencilmark;
 			}
 		}
 	}
 	
-	private void drawPicker(final GraphicsContext context, final int x, final int y) {		
+	//Move the picker on the overlay, clearing only the area it was previously drawn in
+	private void drawPicker() {
+		final long startTime = getPhaseStartTime();
+		final GraphicsContext context = pickerLayer.getGraphicsContext2D();
+		context.clearRect(pickerX, pickerY, pickerSize, pickerSize);
+		
+		//The picker's border is centered on the cell's edges, reaching beyond them
+		final int margin = thickLineWidth / 2 + 2;
+		final int cellX = geometry.getCellX(cellPickerCol);
+		final int cellY = geometry.getCellY(cellPickerRow);
+		
+		pickerX = cellX - margin;
+		pickerY = cellY - margin;
+		pickerSize = cellWidth + 2 * margin;
+		pickerMoved = false;
+		
 		context.setStroke(PICKER_COLOR);
 		context.setLineWidth(thickLineWidth + 1);
-		
-		context.strokeRect(x, y, cellWidth, cellWidth);
+		context.strokeRect(cellX, cellY, cellWidth, cellWidth);
+		recordPhase(RenderStatistics.Phase.PICKER, startTime);
 	}
 	
 	private void updateDimensions() {		
-		// Either width or height is smaller, this is our available drawing area (with margins)
-		final int totalDrawArea = Math.min((int)this.getWidth(), (int)this.getHeight());
-		
-		// Actual usable drawing area, margins not included
-		final int usableDrawArea = totalDrawArea - (int) (DRAWING_AREA_MARGIN * totalDrawArea);
-		
-		thickLineWidth = (int)(THICK_LINE_THICKNESS * usableDrawArea);
-		innerLineWidth = (int)(INNER_LINE_THICKNESS * usableDrawArea);
-		
-		// Prevent line from not being drawn if too thin
-		if(thickLineWidth == 0) {
-			thickLineWidth = 1;
-		}
-		
-		// Prevent line from not being drawn if too thin
-		if(innerLineWidth == 0) {
-			innerLineWidth = 1;
+		layoutInvalid = false;
+		final int width = (int)this.getWidth();
+		final int height = (int)this.getHeight();
+		if(geometry != null && geometry.getDimension() == dimension && glyphCache != null &&
+				width == layoutWidth && height == layoutHeight) {
+			//The size has changed back before the board was drawn, the layout still holds
+			return;
 		}
+		layoutWidth = width;
+		layoutHeight = height;
+		geometry = new BoardGeometry(dimension, width, height);
 		
-		// How many horizontal/vertical thick lines there are
-		final int thickLinesCount = dimension + 1;
-		
-		// How many horizontal/vertical inner lines there are
-		final int innerLinesCount = dimension * (dimension - 1);
-		
-		final int innerLinesWidthInBox = (dimension - 1) * innerLineWidth;
-		
-		// How many pixels of drawing area are occupied by thick and inner lines
-		final int totalLineWidth = thickLinesCount * thickLineWidth + innerLinesCount * innerLineWidth;
-		
-		// Area remaining for a cell to be drawn after subtracting grid lines from drawing area
-		cellWidth = (usableDrawArea - totalLineWidth) / unit;		
-		pencilmarkWidth = cellWidth / dimension;
-		
-		boardWidth = cellWidth * unit + totalLineWidth;		
-		boardStartX = (int)this.getWidth() / 2 - (boardWidth / 2);
-		boardStartY = (int)this.getHeight() / 2 - (boardWidth / 2);
-		
-		boxWidth = dimension * cellWidth + innerLinesWidthInBox;	
+		thickLineWidth = geometry.getThickLineWidth();
+		innerLineWidth = geometry.getInnerLineWidth();
+		cellWidth = geometry.getCellWidth();
+		pencilmarkWidth = geometry.getPencilmarkWidth();
+		boardWidth = geometry.getBoardWidth();
+		boardStartX = geometry.getBoardStartX();
+		boardStartY = geometry.getBoardStartY();
+		boxWidth = geometry.getBoxWidth();
 		
-		pencilmarkFont = Font.font("Monospaced", FontWeight.BOLD, PENCILMARK_FONT_SIZE_PERCENT * pencilmarkWidth);
-		playerDigitFont = Font.font("DejaVu Sans", FontWeight.NORMAL, NORMAL_FONT_SIZE_PERCENT * cellWidth);
-		givenDigitFont = Font.font("DejaVu Sans", FontWeight.BOLD, NORMAL_FONT_SIZE_PERCENT * cellWidth);
+		//The fonts only change along with the cell size
+		if(glyphCache == null || !glyphCache.isValidFor(geometry)) {
+			glyphCache = glyphCaches.get(cellWidth);
+			if(glyphCache == null) {
+				final String[] symbols = new String[unit + 1];
+				for(int digit = 1; digit <= unit; ++digit) {
+					symbols[digit] = digitToSymbolMappings.get(digit);
+				}
+				glyphCache = new GlyphCache(geometry, symbols);
+				glyphCaches.put(cellWidth, glyphCache);
+			}
+		}
 	}
 	
 	/**
@@ -578,7 +902,6 @@ public class ClassicGameBoard extends Canvas implements GameBoard {
 		}
 		// Mouse pointer inside the board, find underlying cell and let cell picker select it
 		setCellPicker(mouseX, mouseY);
-		draw(true, true);
 	}
 	
 	/**
@@ -601,8 +924,10 @@ public class ClassicGameBoard extends Canvas implements GameBoard {
 		}
 		
 		// Mouse pointer inside the board, find underlying cell and let cell picker select it
-		setCellPicker(mouseX, mouseY);
-		draw(true, true);
+		if(!setCellPicker(mouseX, mouseY)) {
+			// Clicks on grid lines don't belong to any cell
+			return null;
+		}
 		
 		switch (event.getButton()) {
 			case PRIMARY:
@@ -626,7 +951,7 @@ public class ClassicGameBoard extends Canvas implements GameBoard {
 	}
 	
 	private boolean isMouseOutsideBoard(final double mouseX, final double mouseY) {
-		return (mouseX < boardStartX || mouseX > boardStartX + boardWidth)
+		return geometry == null || (mouseX < boardStartX || mouseX > boardStartX + boardWidth)
 				|| (mouseY < boardStartY || mouseY > boardStartY + boardWidth);
 	}
 	
@@ -656,7 +981,6 @@ public class ClassicGameBoard extends Canvas implements GameBoard {
 			return handleSymbolDeletion(editAllowed, focusOn);
 		}
 		
-		draw(true, true);
 		return null;
 	}
 	
@@ -689,16 +1013,16 @@ public class ClassicGameBoard extends Canvas implements GameBoard {
 	private void handleDirectionChange(final KeyCode keyInput) {
 		switch(keyInput) {
 		case UP:
-			cellPickerRow = cellPickerRow - 1 > -1 ? --cellPickerRow : unit - 1;
+			moveCellPicker(cellPickerRow - 1 > -1 ? cellPickerRow - 1 : unit - 1, cellPickerCol);
 			break;
 		case DOWN:
-			cellPickerRow = ++cellPickerRow % unit;
+			moveCellPicker((cellPickerRow + 1) % unit, cellPickerCol);
 			break;
 		case LEFT:
-			cellPickerCol = cellPickerCol - 1 > -1 ? --cellPickerCol : unit - 1;
+			moveCellPicker(cellPickerRow, cellPickerCol - 1 > -1 ? cellPickerCol - 1 : unit - 1);
 			break;
 		case RIGHT:
-			cellPickerCol = ++cellPickerCol % unit;
+			moveCellPicker(cellPickerRow, (cellPickerCol + 1) % unit);
 			break;
 		default:
 			return;
@@ -755,6 +1079,7 @@ public class ClassicGameBoard extends Canvas implements GameBoard {
 	 * @param colorIndex The index of the background color to set
 	 */
 	public void setCellColor(final int row, final int column, final int colorIndex) {
+		recordBatchChange(row, column);
 		final int currentColor = cells[column][row].getBackgroundColorIndex();
 		if(currentColor == DEFAULT_CELL_COLOR_INDEX && colorIndex != DEFAULT_CELL_COLOR_INDEX) {
 			++colorCount;
@@ -763,7 +1088,8 @@ public class ClassicGameBoard extends Canvas implements GameBoard {
 			--colorCount;
 		}
 		cells[column][row].setBackgroundColorIndex(colorIndex);
-		draw(true, true);
+		invalidateCell(row, column);
+		notifyCellEdited(row, column);
 	}
 	
 	private UndoableGameBoardAction handleColorSelection() {		
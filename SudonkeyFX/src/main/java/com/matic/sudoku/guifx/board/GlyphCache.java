@@ -0,0 +1,162 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+package com.matic.sudoku.guifx.board;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+
+import com.sun.javafx.tk.FontLoader;
+import com.sun.javafx.tk.FontMetrics;
+import com.sun.javafx.tk.Toolkit;
+
+/**
+ * The fonts and symbols a board is drawn with, together with each symbol's position
+ * within a cell (or within a pencilmark's part of a cell). All of the symbols are measured
+ * once, when the cache is created for a board's cell size, so that drawing the board
+ * requires neither font metric queries nor symbol lookups. Pencilmarks are also rendered
+ * into an atlas image, so that they can be copied to the board instead of being drawn
+ * as text one by one.
+ * 
+ * @author vedran
+ *
+ */
+final class GlyphCache {
+	
+	private final Font givenDigitFont;
+	private final Font playerDigitFont;
+	private final Font pencilmarkFont;
+	
+	//Symbol shown for each digit, indexed by digit (index 0 is unused)
+	private final String[] symbols;
+	
+	//Offsets of each symbol from the left edge of its area, indexed by digit
+	private final double[] givenDigitX;
+	private final double[] playerDigitX;
+	private final double[] pencilmarkX;
+	
+	//Offsets of the symbols' baselines from the top edge of their area
+	private final double givenDigitY;
+	private final double playerDigitY;
+	private final double pencilmarkY;
+	
+	private final int cellWidth;
+	private final int pencilmarkWidth;
+	
+	//Every pencilmark symbol, drawn side by side in areas pencilmarkWidth wide (created on first use)
+	private Image pencilmarkAtlas = null;
+	
+	/**
+	 * Create the fonts for a board geometry and measure all of the symbols
+	 * 
+	 * @param geometry Board geometry, determining the cell and font sizes
+	 * @param symbols Symbol shown for each digit, indexed by digit (index 0 is unused)
+	 */
+	GlyphCache(final BoardGeometry geometry, final String[] symbols) {
+		this.symbols = symbols;
+		cellWidth = geometry.getCellWidth();
+		pencilmarkWidth = geometry.getPencilmarkWidth();
+		
+		pencilmarkFont = Font.font(BoardGeometry.PENCILMARK_FONT_FAMILY, FontWeight.BOLD, 
+				geometry.getPencilmarkFontSize());
+		playerDigitFont = Font.font(BoardGeometry.DIGIT_FONT_FAMILY, FontWeight.NORMAL, 
+				geometry.getDigitFontSize());
+		givenDigitFont = Font.font(BoardGeometry.DIGIT_FONT_FAMILY, FontWeight.BOLD, 
+				geometry.getDigitFontSize());
+		
+		givenDigitX = new double[symbols.length];
+		playerDigitX = new double[symbols.length];
+		pencilmarkX = new double[symbols.length];
+		
+		givenDigitY = measure(givenDigitFont, cellWidth, givenDigitX);
+		playerDigitY = measure(playerDigitFont, cellWidth, playerDigitX);
+		pencilmarkY = measure(pencilmarkFont, pencilmarkWidth, pencilmarkX);
+	}
+	
+	/**
+	 * Check whether this cache can be used for drawing a board with the given geometry
+	 * 
+	 * @param geometry Board geometry
+	 * @return true if the cell and pencilmark sizes (and thus the fonts) are the same
+	 */
+	boolean isValidFor(final BoardGeometry geometry) {
+		return geometry.getCellWidth() == cellWidth && geometry.getPencilmarkWidth() == pencilmarkWidth;
+	}
+	
+	String getSymbol(final int digit) {
+		return symbols[digit];
+	}
+	
+	Font getDigitFont(final boolean given) {
+		return given? givenDigitFont : playerDigitFont;
+	}
+	
+	double getDigitX(final int digit, final boolean given) {
+		return given? givenDigitX[digit] : playerDigitX[digit];
+	}
+	
+	double getDigitY(final boolean given) {
+		return given? givenDigitY : playerDigitY;
+	}
+	
+	/**
+	 * Get the image holding all of the pencilmark symbols, in the pencilmark color. A
+	 * symbol's area starts at getPencilmarkAtlasX() and is pencilmarkWidth pixels wide
+	 * and high. The atlas is rendered on first use, on the JavaFX application thread.
+	 * 
+	 * @return Pencilmark atlas, or null if the pencilmarks are too small to be drawn
+	 */
+	Image getPencilmarkAtlas() {
+		if(pencilmarkAtlas == null && pencilmarkWidth > 0) {
+			final Canvas canvas = new Canvas((symbols.length - 1) * pencilmarkWidth, pencilmarkWidth);
+			final GraphicsContext context = canvas.getGraphicsContext2D();
+			context.setFont(pencilmarkFont);
+			context.setFill(BoardColors.PENCILMARK_FONT_COLOR);
+			
+			for(int digit = 1; digit < symbols.length; ++digit) {
+				context.fillText(symbols[digit], getPencilmarkAtlasX(digit) + pencilmarkX[digit], pencilmarkY);
+			}
+			final SnapshotParameters parameters = new SnapshotParameters();
+			parameters.setFill(Color.TRANSPARENT);
+			pencilmarkAtlas = canvas.snapshot(parameters, null);
+		}
+		return pencilmarkAtlas;
+	}
+	
+	int getPencilmarkAtlasX(final int digit) {
+		return (digit - 1) * pencilmarkWidth;
+	}
+	
+	//Center each symbol within an area, returning the baseline offset shared by all symbols
+	private double measure(final Font font, final int areaWidth, final double[] offsetsX) {
+		final FontLoader fontLoader = Toolkit.getToolkit().getFontLoader();
+		final FontMetrics fontMetrics = fontLoader.getFontMetrics(font);
+		
+		for(int digit = 1; digit < symbols.length; ++digit) {
+			final float fontWidth = fontLoader.computeStringWidth(symbols[digit], font);
+			offsetsX[digit] = (int)((areaWidth - fontWidth) / 2.0 + 0.5);
+		}
+		return (int)((areaWidth - fontMetrics.getLineHeight()) / 2.0 + 0.5) + fontMetrics.getAscent();
+	}
+}
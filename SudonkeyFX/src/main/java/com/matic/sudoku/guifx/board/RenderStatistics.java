@@ -0,0 +1,79 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.guifx.board;
+
+/**
+ * Counts how often a board is repainted and how long each of the drawing phases takes.
+ * The counters only ever grow, so that anyone showing them can compute rates over an
+ * interval of their choosing. The measured time is the time spent on the JavaFX application
+ * thread issuing the drawing commands, the actual rasterization happens on the render thread.
+ * 
+ * @author vedran
+ *
+ */
+public class RenderStatistics {
+	
+	public enum Phase {
+		BACKGROUND, LINES, CELLS, PICKER
+	}
+	
+	//How many times each phase was drawn, indexed by phase ordinal
+	private final long[] counts = new long[Phase.values().length];
+	
+	//Total time (in nanoseconds) spent drawing each phase, indexed by phase ordinal
+	private final long[] durations = new long[Phase.values().length];
+	
+	//How many times the board (or any part of it) was repainted
+	private long repaintCount = 0;
+	
+	/**
+	 * Record a drawn phase
+	 * 
+	 * @param phase Drawn phase
+	 * @param startTime When drawing the phase started (System.nanoTime())
+	 */
+	void record(final Phase phase, final long startTime) {
+		++counts[phase.ordinal()];
+		durations[phase.ordinal()] += System.nanoTime() - startTime;
+	}
+	
+	void onRepaint() {
+		++repaintCount;
+	}
+	
+	public long getCount(final Phase phase) {
+		return counts[phase.ordinal()];
+	}
+	
+	/**
+	 * Get the total time spent drawing a phase
+	 * 
+	 * @param phase Drawn phase
+	 * @return Drawing time, in nanoseconds
+	 */
+	public long getDuration(final Phase phase) {
+		return durations[phase.ordinal()];
+	}
+	
+	public long getRepaintCount() {
+		return repaintCount;
+	}
+}
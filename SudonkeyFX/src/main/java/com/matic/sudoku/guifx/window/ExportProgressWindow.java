@@ -0,0 +1,223 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.guifx.window;
+
+import java.util.List;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.concurrent.Task;
+import javafx.geometry.HPos;
+import javafx.scene.control.ButtonBar.ButtonData;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.GridPane;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+import com.matic.sudoku.Resources;
+import com.matic.sudoku.io.export.ExportProgress;
+import com.matic.sudoku.logic.LogicSolver.Grading;
+
+/**
+ * A window shown while puzzles are being created and exported. It shows how many
+ * puzzles per second are generated, graded and rejected for each grading, how many
+ * puzzles have been exported so far and an estimate of the remaining time. Closing
+ * the window (or pressing Cancel) cancels the export.
+ * 
+ * @author vedran
+ *
+ */
+public class ExportProgressWindow {
+	
+	//How often (in milliseconds) the shown progress is refreshed
+	private static final double REFRESH_INTERVAL = 500;
+	
+	private final List<Grading> gradings;
+	
+	private final Label[] generatedRateLabels;
+	private final Label[] gradedRateLabels;
+	private final Label[] rejectedRateLabels;
+	
+	//Counter values at the time of the previous refresh, indexed by grading
+	private final long[] lastGenerated;
+	private final long[] lastGraded;
+	private final long[] lastRejected;
+	
+	private final Label puzzleCountLabel;
+	private final Label timeLeftLabel;
+	private final ProgressBar progressBar;
+	
+	private final Timeline refreshTimeline;
+	
+	private final ExportProgress progress;
+	private final Task<?> exportTask;
+	
+	private final Dialog<ButtonType> window;
+	
+	//When the shown progress was last refreshed (System.nanoTime())
+	private long lastRefreshTime;
+
+	public ExportProgressWindow(final Window owner, final List<Grading> gradings,
+			final ExportProgress progress, final Task<?> exportTask) {
+		this.gradings = gradings;
+		this.progress = progress;
+		this.exportTask = exportTask;
+		
+		final int gradingCount = Grading.values().length;
+		generatedRateLabels = new Label[gradingCount];
+		gradedRateLabels = new Label[gradingCount];
+		rejectedRateLabels = new Label[gradingCount];
+		
+		lastGenerated = new long[gradingCount];
+		lastGraded = new long[gradingCount];
+		lastRejected = new long[gradingCount];
+		
+		puzzleCountLabel = new Label();
+		timeLeftLabel = new Label();
+		progressBar = new ProgressBar(0);
+		
+		refreshTimeline = new Timeline(new KeyFrame(
+				Duration.millis(REFRESH_INTERVAL), event -> refresh()));
+		refreshTimeline.setCycleCount(Animation.INDEFINITE);
+		
+		window = new Dialog<>();
+		window.initOwner(owner);
+		
+		initComponents();
+	}
+	
+	/**
+	 * Show the window without waiting for it to close. The window closes
+	 * by itself when the export task finishes.
+	 */
+	public void show() {
+		lastRefreshTime = System.nanoTime();
+		refreshTimeline.play();
+		window.show();
+	}
+	
+	private void initComponents() {
+		window.setHeaderText(null);
+		window.setTitle(Resources.getTranslation("export.progress.title"));
+		
+		final ButtonType cancelButtonType = new ButtonType(
+				Resources.getTranslation("button.cancel"), ButtonData.CANCEL_CLOSE);
+		window.getDialogPane().getButtonTypes().add(cancelButtonType);
+		
+		window.setOnHidden(event -> {
+			refreshTimeline.stop();
+			exportTask.cancel();
+		});
+		exportTask.stateProperty().addListener((observable, oldValue, newValue) -> {
+			if(exportTask.isDone()) {
+				window.close();
+			}
+		});
+		
+		progressBar.setMaxWidth(Double.MAX_VALUE);
+		
+		window.setResizable(true);
+		window.getDialogPane().setContent(layoutContent());
+	}
+	
+	private GridPane layoutContent() {
+		final GridPane progressPane = new GridPane();
+		Resources.Gui.configurePadding(progressPane);
+		
+		final Label[] headerLabels = {new Label(Resources.getTranslation("export.progress.generated")),
+				new Label(Resources.getTranslation("export.progress.graded")),
+				new Label(Resources.getTranslation("export.progress.rejected"))};
+		for(int i = 0; i < headerLabels.length; ++i) {
+			GridPane.setHalignment(headerLabels[i], HPos.RIGHT);
+			progressPane.add(headerLabels[i], i + 1, 0);
+		}
+		
+		int row = 1;
+		for(final Grading grading : gradings) {
+			final int index = grading.ordinal();
+			generatedRateLabels[index] = new Label();
+			gradedRateLabels[index] = new Label();
+			rejectedRateLabels[index] = new Label();
+			
+			progressPane.add(new Label(grading.getDescription() + ": "), 0, row);
+			progressPane.add(generatedRateLabels[index], 1, row);
+			progressPane.add(gradedRateLabels[index], 2, row);
+			progressPane.add(rejectedRateLabels[index], 3, row);
+			
+			GridPane.setHalignment(generatedRateLabels[index], HPos.RIGHT);
+			GridPane.setHalignment(gradedRateLabels[index], HPos.RIGHT);
+			GridPane.setHalignment(rejectedRateLabels[index], HPos.RIGHT);
+			++row;
+		}
+		
+		progressPane.add(new Label(Resources.getTranslation("export.progress.puzzles") + ": "), 0, row);
+		progressPane.add(puzzleCountLabel, 1, row, 3, 1);
+		progressPane.add(new Label(Resources.getTranslation("export.progress.time_left") + ": "), 0, ++row);
+		progressPane.add(timeLeftLabel, 1, row, 3, 1);
+		progressPane.add(progressBar, 0, ++row, 4, 1);
+		
+		refresh();
+		
+		return progressPane;
+	}
+	
+	private void refresh() {
+		final long now = System.nanoTime();
+		final double elapsedSeconds = Math.max((now - lastRefreshTime) / 1e9, 1e-3);
+		lastRefreshTime = now;
+		
+		for(final Grading grading : gradings) {
+			final int index = grading.ordinal();
+			lastGenerated[index] = updateRate(generatedRateLabels[index], 
+					progress.getGenerated(grading), lastGenerated[index], elapsedSeconds);
+			lastGraded[index] = updateRate(gradedRateLabels[index],
+					progress.getGraded(grading), lastGraded[index], elapsedSeconds);
+			lastRejected[index] = updateRate(rejectedRateLabels[index],
+					progress.getRejected(grading), lastRejected[index], elapsedSeconds);
+		}
+		
+		final int puzzleCount = progress.getPuzzleCount();
+		final int acceptedCount = progress.getAcceptedCount();
+		
+		puzzleCountLabel.setText(acceptedCount + " / " + puzzleCount);
+		timeLeftLabel.setText(formatTimeLeft(progress.getEstimatedTimeLeft()));
+		progressBar.setProgress(puzzleCount > 0? (double)acceptedCount / puzzleCount :
+			ProgressBar.INDETERMINATE_PROGRESS);
+	}
+	
+	private long updateRate(final Label rateLabel, final long count, final long lastCount,
+			final double elapsedSeconds) {
+		rateLabel.setText(String.format("%.1f", (count - lastCount) / elapsedSeconds));
+		return count;
+	}
+	
+	private String formatTimeLeft(final long timeLeft) {
+		if(timeLeft < 0) {
+			return "-";
+		}
+		final long seconds = timeLeft / 1000;
+		return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+	}
+}
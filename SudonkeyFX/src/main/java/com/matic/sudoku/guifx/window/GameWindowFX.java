@@ -21,17 +21,22 @@
 package com.matic.sudoku.guifx.window;
 
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker.State;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
 import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
@@ -48,6 +53,7 @@ import javafx.stage.Stage;
 import org.controlsfx.control.StatusBar;
 
 import com.matic.sudoku.Resources;
+import com.matic.sudoku.guifx.action.AutosaveEventHandler;
 import com.matic.sudoku.guifx.action.FileActionEventHandler;
 import com.matic.sudoku.guifx.action.GeneratorActionEventHandler;
 import com.matic.sudoku.guifx.action.KeyActionEventHandler;
@@ -87,6 +93,7 @@ public class GameWindowFX extends Application {
 	private final FlowPane symbolButtonToolbar = new FlowPane();
 	private final FlowPane colorButtonToolbar = new FlowPane();	
 	private final StatusBar statusBar = new StatusBar();
+	private final RenderStatisticsLabel renderStatisticsLabel = new RenderStatisticsLabel(gameBoard);
 	
 	private final Menu openRecentMenu = new Menu(Resources.getTranslation(OPEN_RECENT_COMMAND));
 	private final MenuItem saveMenuItem = new MenuItem(Resources.getTranslation(SAVE_COMMAND));
@@ -96,9 +103,25 @@ public class GameWindowFX extends Application {
 	private final WindowActionEventHandler windowActionEventHandler = new WindowActionEventHandler();
 	private final FileActionEventHandler fileActionEventHandler = new FileActionEventHandler();	
 	private final KeyActionEventHandler keyActionEventHandler = new KeyActionEventHandler();	
+	private final AutosaveEventHandler autosaveEventHandler = new AutosaveEventHandler(gameBoard);
 	
 	private Stage stage;
 	
+	//Path of the currently played saved game, or null if not saved yet
+	private String gameFilePath = null;
+	
+	//Running background tasks, in the order in which they were started
+	private final Deque<Task<?>> backgroundTasks = new ArrayDeque<>();
+	
+	//Background task whose progress is shown in the status bar, or null if none is running
+	private Task<?> shownTask = null;
+	
+	//Cancels the shown background task
+	private final Button cancelTaskButton = new Button(Resources.getTranslation("button.cancel"));
+	
+	//Status bar text shown while no background task is running
+	private String idleStatusText = "";
+	
 	/**
      * Main application execution entry point. Used when the application packaging is performed
      * by other means than by JavaFX
@@ -117,13 +140,15 @@ public class GameWindowFX extends Application {
 		northPane.getChildren().addAll(buildMenuBar(), setupColorButtonToolbar(colorButtonToolbar));
 		
 		final Pane gameBoardPane = new Pane();
-		gameBoardPane.getChildren().add(gameBoard);
+		gameBoardPane.getChildren().addAll(gameBoard.getGridLayer(), gameBoard, gameBoard.getPickerLayer());
 				
 		statusBar.setPadding(new Insets(Resources.Gui.LAYOUT_PADDING,
 				Resources.Gui.LAYOUT_PADDING, Resources.Gui.LAYOUT_PADDING, 
 				Resources.Gui.LAYOUT_PADDING));
 		statusBar.setStyle("-fx-base: #1F1F1F;");	
-		statusBar.setText("Not classified");
+		setStatusText("Not classified");
+		cancelTaskButton.setFocusTraversable(false);
+		cancelTaskButton.setOnAction(event -> shownTask.cancel());
 		//statusBar.getRightItems().add(new Text(" 0:00:00"));
 		//statusBar.setProgress(0.2);
 		
@@ -164,6 +189,107 @@ public class GameWindowFX extends Application {
         stage.show();     
         
         gameBoard.draw(true, true);
+        autosaveEventHandler.onStart();
+	}
+	
+	@Override
+	public void stop() throws Exception {
+		autosaveEventHandler.onStop();
+	}
+	
+	/**
+	 * Update the window after a file has been opened. Saving is only enabled for saved
+	 * games, while the puzzle count is shown for puzzle collections.
+	 * 
+	 * @param openedFilePath Path of the opened file
+	 * @param isSavedGame Whether the opened file is a saved game
+	 * @param puzzleCount Number of puzzles in the opened file, or a negative number if
+	 * the puzzles haven't been counted yet
+	 */
+	public final void onFileOpened(final String openedFilePath, final boolean isSavedGame, 
+			final long puzzleCount) {
+		gameFilePath = isSavedGame? openedFilePath : null;
+		saveMenuItem.setDisable(!isSavedGame);
+		if(!isSavedGame) {
+			if(puzzleCount >= 0) {
+				onPuzzlesCounted(puzzleCount);
+			}
+			else {
+				setStatusText("");
+			}
+		}
+		onUpdateRecentFileList(openedFilePath);
+	}
+	
+	/**
+	 * Show the number of puzzles in the opened puzzle collection
+	 * 
+	 * @param puzzleCount Number of puzzles in the opened file
+	 */
+	public final void onPuzzlesCounted(final long puzzleCount) {
+		setStatusText(Resources.getTranslation("status.puzzle_count") + " " + puzzleCount);
+	}
+	
+	public final void onFileSaved(final String savedFilePath) {
+		gameFilePath = savedFilePath;
+		saveMenuItem.setDisable(false);
+		onUpdateRecentFileList(savedFilePath);
+	}
+	
+	/**
+	 * Run a task on a background thread, showing its progress in the status bar
+	 * together with a button for cancelling it. If several tasks run at once, the
+	 * most recently started one is shown until it completes.
+	 * 
+	 * @param task Task to run
+	 * @param threadName Name of the background thread
+	 */
+	public final void runBackgroundTask(final Task<?> task, final String threadName) {
+		backgroundTasks.addLast(task);
+		showBackgroundTask(task);
+		
+		//Update the status bar before the task's own completion handlers are called. The
+		//state is used rather than running, as a task cancelled before it starts never runs
+		task.stateProperty().addListener((observable, oldState, newState) -> {
+			if(newState == State.SUCCEEDED || newState == State.FAILED || newState == State.CANCELLED) {
+				backgroundTasks.remove(task);
+				//A task finishing in the background must not take over a newer task's status
+				if(task == shownTask) {
+					showBackgroundTask(backgroundTasks.peekLast());
+				}
+			}
+		});
+		
+		final Thread taskThread = new Thread(task, threadName);
+		taskThread.setDaemon(true);
+		taskThread.start();
+	}
+	
+	//Bind the status bar to a task's progress, or show the idle text if the task is null
+	private void showBackgroundTask(final Task<?> task) {
+		statusBar.textProperty().unbind();
+		statusBar.progressProperty().unbind();
+		shownTask = task;
+		
+		if(task == null) {
+			statusBar.setText(idleStatusText);
+			statusBar.setProgress(0);
+			statusBar.getRightItems().remove(cancelTaskButton);
+			return;
+		}
+		statusBar.textProperty().bind(task.messageProperty());
+		statusBar.progressProperty().bind(task.progressProperty());
+		if(!statusBar.getRightItems().contains(cancelTaskButton)) {
+			statusBar.getRightItems().add(cancelTaskButton);
+		}
+	}
+	
+	//Set the status bar text shown while no background task is running
+	private void setStatusText(final String statusText) {
+		idleStatusText = statusText;
+		if(shownTask == null) {
+			statusBar.setText(statusText);
+		}
 	}
 	
 	public final void onUpdateRecentFileList(final String openedFilePath) {				
@@ -184,7 +310,8 @@ public class GameWindowFX extends Application {
 			}
 			final String fileName = Paths.get(openedFilePath).getFileName().toString();
 			final MenuItem pathMenuItem = new MenuItem(fileName + " [" + openedFilePath + "]");
-			pathMenuItem.setOnAction(event -> onUpdateRecentFileList(openedFilePath));
+			pathMenuItem.setOnAction(event -> fileActionEventHandler.openFile(
+					stage, this, gameBoard, Paths.get(openedFilePath)));
 			pathMenuItem.setId(openedFilePath);
 			menuItems.add(0, pathMenuItem);			
 		}
@@ -249,12 +376,14 @@ public class GameWindowFX extends Application {
         
         final String openPuzzleCommand = Resources.getTranslation("game.open");
         final MenuItem openMenuItem = new MenuItem(openPuzzleCommand);
-        openMenuItem.setOnAction(event -> fileActionEventHandler.onOpenFileAction(stage, this));
+        openMenuItem.setOnAction(event -> fileActionEventHandler.onOpenFileAction(stage, this, gameBoard));
         openMenuItem.setAccelerator(KeyCombination.keyCombination("Ctrl+O"));
         openMenuItem.setId(openPuzzleCommand); 
         
         openRecentMenu.setId(OPEN_RECENT_COMMAND); 
-        buildRecentMenuItems(openRecentMenu, loadRecentFileList());
+        final List<String> recentFileList = loadRecentFileList();
+        buildRecentMenuItems(openRecentMenu, recentFileList);
+        fileActionEventHandler.prefetchFiles(recentFileList);
         
         final MenuItem clearRecentFilesMenuItem = new MenuItem(Resources.getTranslation(CLEAR_RECENT_FILES_COMMAND));
         clearRecentFilesMenuItem.setOnAction(event -> onClearRecentFiles());
@@ -264,12 +393,15 @@ public class GameWindowFX extends Application {
         saveMenuItem.setAccelerator(KeyCombination.keyCombination("Ctrl+S"));
         saveMenuItem.setId(SAVE_COMMAND);
         saveMenuItem.setDisable(true);        
+        saveMenuItem.setOnAction(event -> fileActionEventHandler.onSaveAction(
+        		stage, this, gameBoard, Paths.get(gameFilePath)));
         
         final MenuItem saveAsMenuItem = new MenuItem(Resources.getTranslation(SAVE_AS_COMMAND));
         saveAsMenuItem.setId(SAVE_AS_COMMAND);
+        saveAsMenuItem.setOnAction(event -> fileActionEventHandler.onSaveAsAction(stage, this, gameBoard));
         
         final MenuItem exportAsImageMenuItem = new MenuItem(Resources.getTranslation(EXPORT_AS_IMAGE_COMMAND));
-        exportAsImageMenuItem.setOnAction(event -> fileActionEventHandler.onExportToImageAction(stage));
+        exportAsImageMenuItem.setOnAction(event -> fileActionEventHandler.onExportToImageAction(stage, gameBoard));
         exportAsImageMenuItem.setId(EXPORT_AS_IMAGE_COMMAND);
         
         final MenuItem exportToPdfMenuItem = new MenuItem(Resources.getTranslation(EXPORT_TO_PDF_COMMAND));
@@ -298,7 +430,8 @@ public class GameWindowFX extends Application {
 		filePaths.stream().map(path -> {
 			final String fileName = Paths.get(path).getFileName().toString();
 			final MenuItem pathMenuItem = new MenuItem(fileName + " [" + path + "]");
-			pathMenuItem.setOnAction(event -> onUpdateRecentFileList(path));
+			pathMenuItem.setOnAction(event -> fileActionEventHandler.openFile(
+					stage, this, gameBoard, Paths.get(path)));
 			pathMenuItem.setId(path);			
 			
 			return pathMenuItem;
@@ -359,6 +492,19 @@ public class GameWindowFX extends Application {
 			}			
 		});
 		
+		final CheckMenuItem renderStatisticsMenuItem = new CheckMenuItem(
+				Resources.getTranslation("view.render_statistics"));
+		renderStatisticsMenuItem.setOnAction(event -> {
+			if(renderStatisticsMenuItem.isSelected()) {
+				statusBar.getRightItems().add(0, renderStatisticsLabel);
+				renderStatisticsLabel.start();
+			}
+			else {
+				renderStatisticsLabel.stop();
+				statusBar.getRightItems().remove(renderStatisticsLabel);
+			}
+		});
+		
 		final CheckMenuItem focusMenuItem = new CheckMenuItem(
 				Resources.getTranslation(FOCUS_COMMAND));
 		focusMenuItem.setAccelerator(KeyCombination.keyCombination("Ctrl+Shift+F"));
@@ -366,7 +512,7 @@ public class GameWindowFX extends Application {
 				focusMenuItem.isSelected()));
 		
 		viewMenu.getItems().addAll(colorToolbarMenuItem, symbolToolbarMenuItem,
-				statusToolbarMenuItem, new SeparatorMenuItem(), focusMenuItem);
+				statusToolbarMenuItem, renderStatisticsMenuItem, new SeparatorMenuItem(), focusMenuItem);
 		
 		return viewMenu;
 	}
@@ -24,12 +24,13 @@ import java.util.List;
 
 import com.matic.sudoku.Resources;
 import com.matic.sudoku.generator.Generator.Symmetry;
+import com.matic.sudoku.io.PuzzleFormat;
 import com.matic.sudoku.io.KeyInputManager.SymbolType;
 import com.matic.sudoku.logic.LogicSolver.Grading;
 
 /**
  * Puzzle creation and export options selected by player when creating
- * and exporting multiple puzzles to PDF
+ * and exporting multiple puzzles to PDF, a puzzle collection file or image files
  * 
  * @author vedran
  *
@@ -63,11 +64,60 @@ public class PuzzleExporterOptions {
 		}
 	}
 	
+	public enum ExportFormat {
+		PDF(Resources.getTranslation("format.pdf"), null, null),
+		ONE_LINE(PuzzleFormat.ONE_LINE.getDescription(), PuzzleFormat.ONE_LINE, null),
+		SDK(PuzzleFormat.SDK.getDescription(), PuzzleFormat.SDK, null),
+		SIMPLE_SUDOKU(PuzzleFormat.SIMPLE_SUDOKU.getDescription(), PuzzleFormat.SIMPLE_SUDOKU, null),
+		PNG_IMAGES(Resources.getTranslation("format.png_images"), null, "png"),
+		JPEG_IMAGES(Resources.getTranslation("format.jpeg_images"), null, "jpg"),
+		PACKED(Resources.getTranslation("format.packed"), null, null);
+		
+		private final String description;
+		
+		//Matching plain text puzzle format, or null if this isn't a text format
+		private final PuzzleFormat puzzleFormat;
+		
+		//Extension of the exported image files, or null if this isn't an image format
+		private final String imageExtension;
+
+		ExportFormat(final String type, final PuzzleFormat puzzleFormat, final String imageExtension) {
+			this.description = type;
+			this.puzzleFormat = puzzleFormat;
+			this.imageExtension = imageExtension;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+		
+		public PuzzleFormat getPuzzleFormat() {
+			return puzzleFormat;
+		}
+		
+		public String getImageExtension() {
+			return imageExtension;
+		}
+
+		public static ExportFormat fromString(final String format) {
+			if(format != null) {
+				for(final ExportFormat type : ExportFormat.values()) {
+					if(type.description.equals(format)) {
+						return type;
+					}
+				}
+			}
+			throw new IllegalArgumentException(
+					"No export format with description " + format + " found");
+		}
+	}
+	
 	private final List<SymbolType> symbolTypes;
 	private final List<Symmetry> symmetries;
 	private final List<Grading> gradings;
 	
 	private final Ordering puzzleOrder;
+	private final ExportFormat exportFormat;
 
 	private final boolean printPuzzleNumberings;
 	private final boolean printPuzzleGradings;
@@ -84,8 +134,8 @@ public class PuzzleExporterOptions {
 			final List<Symmetry> symmetries, final List<Grading> gradings,
 			final boolean printPuzzleNumberings, final boolean printPuzzleGradings,
 			final boolean fillPencilmarks, final boolean appendSolutions,
-			final boolean isEmptyGrid, final Ordering puzzleOrder, final String outputPath,
-			final int puzzlesPerPage, final int puzzleCount) {
+			final boolean isEmptyGrid, final Ordering puzzleOrder, final ExportFormat exportFormat,
+			final String outputPath, final int puzzlesPerPage, final int puzzleCount) {
 		this.symbolTypes = symbolTypes;
 		this.symmetries = symmetries;
 		this.gradings = gradings;
@@ -95,6 +145,7 @@ public class PuzzleExporterOptions {
 		this.appendSolutions = appendSolutions;
 		this.isEmptyGrid = isEmptyGrid;
 		this.puzzleOrder = puzzleOrder;
+		this.exportFormat = exportFormat;
 		this.outputPath = outputPath;
 		this.puzzlesPerPage = puzzlesPerPage;
 		this.puzzleCount = puzzleCount;
@@ -136,6 +187,10 @@ public class PuzzleExporterOptions {
 		return puzzleOrder;
 	}
 	
+	public ExportFormat getExportFormat() {
+		return exportFormat;
+	}
+	
 	public String getOutputPath() {
 		return outputPath;
 	}
@@ -153,6 +208,8 @@ public class PuzzleExporterOptions {
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + (appendSolutions ? 1231 : 1237);
+		result = prime * result
+				+ ((exportFormat == null) ? 0 : exportFormat.hashCode());
 		result = prime * result + (fillPencilmarks ? 1231 : 1237);
 		result = prime * result
 				+ ((gradings == null) ? 0 : gradings.hashCode());
@@ -183,6 +240,8 @@ public class PuzzleExporterOptions {
 		PuzzleExporterOptions other = (PuzzleExporterOptions) obj;
 		if (appendSolutions != other.appendSolutions)
 			return false;
+		if (exportFormat != other.exportFormat)
+			return false;
 		if (fillPencilmarks != other.fillPencilmarks)
 			return false;
 		if (gradings == null) {
@@ -231,7 +290,8 @@ public class PuzzleExporterOptions {
 				+ ", printPuzzleGradings=" + printPuzzleGradings
 				+ ", fillPencilmarks=" + fillPencilmarks + ", appendSolutions="
 				+ appendSolutions + ", isEmptyGrid=" + isEmptyGrid
-				+ ", puzzleOrder=" + puzzleOrder + ", outputPath=" + outputPath
+				+ ", puzzleOrder=" + puzzleOrder + ", exportFormat=" + exportFormat
+				+ ", outputPath=" + outputPath
 				+ ", puzzlesPerPage=" + puzzlesPerPage + ", puzzleCount="
 				+ puzzleCount + "]";
 	}	
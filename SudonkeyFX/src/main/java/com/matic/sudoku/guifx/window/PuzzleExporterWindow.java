@@ -62,13 +62,15 @@ import org.controlsfx.validation.Validator;
 
 import com.matic.sudoku.Resources;
 import com.matic.sudoku.generator.Generator.Symmetry;
+import com.matic.sudoku.guifx.window.PuzzleExporterOptions.ExportFormat;
 import com.matic.sudoku.guifx.window.PuzzleExporterOptions.Ordering;
 import com.matic.sudoku.io.KeyInputManager.SymbolType;
 import com.matic.sudoku.logic.LogicSolver.Grading;
 
 /**
- * A window shown when the player wants to create and export puzzles to PDF.
- * It offers various puzzle creation and export options to choose from.
+ * A window shown when the player wants to create and export puzzles to PDF
+ * to a plain text puzzle collection or to image files. It offers various puzzle creation and
+ * export options to choose from.
  * 
  * @author vedran
  *
@@ -83,6 +85,7 @@ public class PuzzleExporterWindow {
 	private final CheckComboBox<String> gradingCheckCombo;		
 	
 	private final ComboBox<String> puzzlesPerPageCombo;
+	private final ComboBox<String> exportFormatCombo;
 	private final ComboBox<String> creationModeCombo;
 	private final ComboBox<String> puzzleOrderCombo;
 	private final ComboBox<String> symbolTypeCombo;
@@ -98,12 +101,16 @@ public class PuzzleExporterWindow {
 	private final Button browseButton;
 	
 	private final Dialog<ButtonType> window;
+	
+	//Shown only when printing puzzles to PDF
+	private Node borderedPdfOptionsPane;
 
 	public PuzzleExporterWindow(final Window owner) {
 		symmetryCheckCombo = new CheckComboBox<>();
 		gradingCheckCombo = new CheckComboBox<>();		
 		
 		puzzlesPerPageCombo = new ComboBox<>();
+		exportFormatCombo = new ComboBox<>();
 		creationModeCombo = new ComboBox<>();
 		puzzleOrderCombo = new ComboBox<>();
 		symbolTypeCombo = new ComboBox<>();
@@ -144,6 +151,7 @@ public class PuzzleExporterWindow {
 					puzzleDifficultyCheck.isSelected(), fillPencilmarksCheck.isSelected(),
 					appendSolutionsCheck.isSelected(), isEmptyGrid,
 					Ordering.fromString(puzzleOrderCombo.getSelectionModel().getSelectedItem()),
+					ExportFormat.fromString(exportFormatCombo.getSelectionModel().getSelectedItem()),
 					outputPathField.getText(), puzzlesPerPage, puzzleCount);
 		}
 		return null;
@@ -180,9 +188,28 @@ public class PuzzleExporterWindow {
 		exportButton.setDisable(!validateInput());
 	}
 	
+	//Disable or hide options that are usable only when printing puzzles to PDF
+	private void onExportFormatChanged() {
+		final boolean isPdf = isPdfExport();
+		puzzlesPerPageCombo.setDisable(!isPdf);
+		puzzleNumberingCheck.setDisable(!isPdf);
+		fillPencilmarksCheck.setDisable(!isPdf);
+		puzzleDifficultyCheck.setDisable(!isPdf || 
+				creationModeCombo.getSelectionModel().getSelectedIndex() != 0);
+		
+		borderedPdfOptionsPane.setVisible(isPdf);
+		borderedPdfOptionsPane.setManaged(isPdf);
+		window.getDialogPane().getScene().getWindow().sizeToScene();
+	}
+	
+	private boolean isPdfExport() {
+		return ExportFormat.fromString(exportFormatCombo.getSelectionModel()
+				.getSelectedItem()) == ExportFormat.PDF;
+	}
+	
 	//Disable certain options that are usable only when generating new puzzles
 	private void setComponentsDisabled(final boolean disabled) {
-		puzzleDifficultyCheck.setDisable(disabled);		
+		puzzleDifficultyCheck.setDisable(disabled || !isPdfExport());		
 		appendSolutionsCheck.setDisable(disabled);
 		symmetryCheckCombo.setDisable(disabled);
 		gradingCheckCombo.setDisable(disabled);
@@ -193,7 +220,7 @@ public class PuzzleExporterWindow {
 	private void initComponents() {
 		setPreferredComboWidths(Resources.Gui.COMBOBOX_MAX_WIDTH);
 		
-		outputPathField.setPromptText("Path to the file to be used as a destination for generated PDF file");
+		outputPathField.setPromptText("Path to the file to be used as a destination for exported puzzles");
 		outputPathField.setPrefColumnCount(31);
 		outputPathField.setEditable(false);		
 		
@@ -205,6 +232,12 @@ public class PuzzleExporterWindow {
 		puzzlesPerPageCombo.getItems().addAll("4", "2", "1");
 		puzzlesPerPageCombo.getSelectionModel().select(0);
 		
+		for(final ExportFormat exportFormat : ExportFormat.values()) {
+			exportFormatCombo.getItems().add(exportFormat.getDescription());
+		}
+		exportFormatCombo.getSelectionModel().select(0);
+		exportFormatCombo.setOnAction(event -> onExportFormatChanged());
+		
 		puzzleDifficultyCheck.setSelected(true);
 		puzzleNumberingCheck.setSelected(true);
 		
@@ -341,10 +374,12 @@ public class PuzzleExporterWindow {
 						Resources.getTranslation("export.border.generator")).buildAll();
 		
 		final Node borderedFormattingOptionsPane = Borders.wrap(
-				formattingOptionsPane).etchedBorder().title("Formatting options").buildAll();
+				formattingOptionsPane).etchedBorder().title(
+						Resources.getTranslation("export.border.formatting")).buildAll();
 		
-		final Node borderedPdfOptionsPane = Borders.wrap(
-				pdfOptionsPane).etchedBorder().title("PDF printing options").buildAll();
+		borderedPdfOptionsPane = Borders.wrap(
+				pdfOptionsPane).etchedBorder().title(
+						Resources.getTranslation("export.border.pdf")).buildAll();
 		
 		final VBox mainPane = new VBox();	
 		mainPane.getChildren().addAll(borderedBrowsePane, borderedGeneratorOptionsPane,
@@ -358,6 +393,7 @@ public class PuzzleExporterWindow {
 		gradingCheckCombo.setMaxWidth(width);
 		symbolTypeCombo.setMaxWidth(width);		
 		creationModeCombo.setMaxWidth(width);
+		exportFormatCombo.setMaxWidth(width);
 	}
 	
 	private Pane buildPdfOptionsPane() {
@@ -367,7 +403,7 @@ public class PuzzleExporterWindow {
 				2 * Resources.Gui.LAYOUT_PADDING));		
 		
 		pdfOptionsPane.getChildren().addAll(puzzleNumberingCheck, puzzleDifficultyCheck,
-				fillPencilmarksCheck, appendSolutionsCheck);
+				fillPencilmarksCheck);
 		
 		final Insets leftMargin = new Insets(0, 0, 0, Resources.Gui.MAX_LABEL_COLUMN_WIDTH);
 		pdfOptionsPane.getChildren().stream().forEach(option -> VBox.setMargin(option, leftMargin));
@@ -386,18 +422,25 @@ public class PuzzleExporterWindow {
 		formattingPane.getColumnConstraints().addAll(labelColumnConstraints, fieldColumnConstraints);
 		
 		final List<Label> labels = Arrays.asList(
+				new Label(Resources.getTranslation("export.format") + ": "),
 				new Label(Resources.getTranslation("export.puzzle_ordering") + ": "),
 				new Label(Resources.getTranslation("export.puzzles_per_page") + ": "));
 			
 		labels.stream().forEach(label -> GridPane.setHalignment(label, HPos.RIGHT));
 		
+		GridPane.setHalignment(exportFormatCombo, HPos.LEFT);
 		GridPane.setHalignment(puzzleOrderCombo, HPos.LEFT);
 		GridPane.setHalignment(puzzlesPerPageCombo, HPos.LEFT);
 		
 		formattingPane.add(labels.get(0), 0, 0);
-		formattingPane.add(puzzleOrderCombo, 1, 0);
+		formattingPane.add(exportFormatCombo, 1, 0);
 		formattingPane.add(labels.get(1), 0, 1);
-		formattingPane.add(puzzlesPerPageCombo, 1, 1);
+		formattingPane.add(puzzleOrderCombo, 1, 1);
+		formattingPane.add(labels.get(2), 0, 2);
+		formattingPane.add(puzzlesPerPageCombo, 1, 2);
+		
+		//Solutions can be appended in every export format
+		formattingPane.add(appendSolutionsCheck, 1, 3);
 		
 		return formattingPane;
 	}
@@ -0,0 +1,120 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.guifx.window;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.scene.control.Label;
+import javafx.util.Duration;
+
+import com.matic.sudoku.Resources;
+import com.matic.sudoku.guifx.board.ClassicGameBoard;
+import com.matic.sudoku.guifx.board.RenderStatistics;
+import com.matic.sudoku.guifx.board.RenderStatistics.Phase;
+
+/**
+ * A label showing how many times per second the game board is repainted, and for each of
+ * the drawing phases, how many times it was drawn during the last second and how long that
+ * took on average. The board only collects the statistics while the label is shown.
+ * 
+ * @author vedran
+ *
+ */
+public class RenderStatisticsLabel extends Label {
+	
+	//How often (in milliseconds) the shown statistics are refreshed
+	private static final long REFRESH_INTERVAL = 1000;
+	
+	private static final String[] PHASE_NAME_KEYS = {"status.render.background", 
+		"status.render.lines", "status.render.cells", "status.render.picker"};
+	
+	private final ClassicGameBoard gameBoard;
+	private final Timeline refreshTimeline;
+	
+	private RenderStatistics statistics;
+	
+	//Counter values at the time of the previous refresh, indexed by phase ordinal
+	private final long[] lastCounts = new long[Phase.values().length];
+	private final long[] lastDurations = new long[Phase.values().length];
+	private long lastRepaintCount;
+	
+	//When the shown statistics were last refreshed (System.nanoTime())
+	private long lastRefreshTime;
+	
+	public RenderStatisticsLabel(final ClassicGameBoard gameBoard) {
+		this.gameBoard = gameBoard;
+		
+		refreshTimeline = new Timeline(new KeyFrame(
+				Duration.millis(REFRESH_INTERVAL), event -> refresh()));
+		refreshTimeline.setCycleCount(Animation.INDEFINITE);
+	}
+	
+	/**
+	 * Start collecting the board's statistics, showing them from the next refresh on
+	 */
+	public void start() {
+		statistics = new RenderStatistics();
+		lastRepaintCount = 0;
+		for(int i = 0; i < lastCounts.length; ++i) {
+			lastCounts[i] = lastDurations[i] = 0;
+		}
+		lastRefreshTime = System.nanoTime();
+		
+		setText(Resources.getTranslation("status.render.repaints") + ": -");
+		gameBoard.setRenderStatistics(statistics);
+		refreshTimeline.play();
+	}
+	
+	/**
+	 * Stop collecting the board's statistics
+	 */
+	public void stop() {
+		refreshTimeline.stop();
+		gameBoard.setRenderStatistics(null);
+		statistics = null;
+	}
+	
+	private void refresh() {
+		final long now = System.nanoTime();
+		final double elapsedSeconds = (now - lastRefreshTime) / 1e9;
+		lastRefreshTime = now;
+		
+		final long repaintCount = statistics.getRepaintCount();
+		final StringBuilder text = new StringBuilder(Resources.getTranslation("status.render.repaints"));
+		text.append(": ").append(String.format("%.1f", (repaintCount - lastRepaintCount) / elapsedSeconds));
+		lastRepaintCount = repaintCount;
+		
+		for(final Phase phase : Phase.values()) {
+			final int index = phase.ordinal();
+			final long count = statistics.getCount(phase) - lastCounts[index];
+			final long duration = statistics.getDuration(phase) - lastDurations[index];
+			lastCounts[index] += count;
+			lastDurations[index] += duration;
+			
+			//Show the phase's draw count and average drawing time (in milliseconds)
+			text.append("  ").append(Resources.getTranslation(PHASE_NAME_KEYS[index])).append(": ")
+				.append(count).append(" x ")
+				.append(String.format("%.2f ms", count > 0? duration / 1e6 / count : 0.0));
+		}
+		setText(text.toString());
+	}
+}
@@ -0,0 +1,221 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+package com.matic.sudoku.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Decompresses a gzip file on a background thread, handing the decompressed content
+ * over in large chunks. A small pool of chunks is reused, so that the file is inflated
+ * while the previous chunk is being parsed, without decompressing to a temporary file.
+ * 
+ * @author vedran
+ *
+ */
+public class CompressedInput implements Closeable {
+	
+	//File extension of compressed files
+	public static final String EXTENSION = "gz";
+	
+	//Size (in bytes) of a chunk of decompressed content
+	private static final int CHUNK_SIZE = 1024 * 1024;
+	
+	//How many chunks can be filled ahead of the one being parsed
+	private static final int CHUNK_COUNT = 3;
+	
+	//Size (in bytes) of the buffer compressed content is read into
+	private static final int INFLATE_BUFFER_SIZE = 256 * 1024;
+	
+	//First two bytes of every gzip file
+	private static final int GZIP_MAGIC = 0x1f8b;
+	
+	private final BlockingQueue<Chunk> freeChunks = new ArrayBlockingQueue<>(CHUNK_COUNT);
+	private final BlockingQueue<Chunk> filledChunks = new ArrayBlockingQueue<>(CHUNK_COUNT);
+	
+	private final FileChannel channel;
+	private final InputStream input;
+	private final Thread inflaterThread;
+	private final long compressedSize;
+	
+	//Set by the inflater thread if the file can't be read
+	private volatile IOException failure = null;
+	
+	//Chunk most recently handed over, recycled on the next call to next()
+	private Chunk currentChunk = null;
+	private boolean endReached = false;
+	
+	/**
+	 * Open a compressed file and start decompressing it
+	 * 
+	 * @param path Path of the compressed file
+	 * @throws IOException If the file can't be opened or isn't compressed
+	 */
+	public CompressedInput(final Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			compressedSize = channel.size();
+			input = new GZIPInputStream(Channels.newInputStream(channel), INFLATE_BUFFER_SIZE);
+		}
+		catch(final IOException e) {
+			channel.close();
+			throw e;
+		}
+		for(int i = 0; i < CHUNK_COUNT; ++i) {
+			freeChunks.add(new Chunk());
+		}
+		inflaterThread = new Thread(this::inflate, "collection-inflater");
+		inflaterThread.setDaemon(true);
+		inflaterThread.start();
+	}
+	
+	/**
+	 * Check whether a file is compressed, by looking for the gzip magic number
+	 * 
+	 * @param path File path
+	 * @return true if the file is gzip compressed, false otherwise
+	 * @throws IOException If the file can't be read
+	 */
+	public static boolean isCompressed(final Path path) throws IOException {
+		try(final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final ByteBuffer magic = ByteBuffer.allocate(Short.BYTES);
+			while(magic.hasRemaining()) {
+				if(channel.read(magic) < 0) {
+					return false;
+				}
+			}
+			return (magic.getShort(0) & 0xffff) == GZIP_MAGIC;
+		}
+	}
+	
+	/**
+	 * Check whether a file name has the gzip extension, as used for choosing whether to
+	 * compress written files
+	 * 
+	 * @param path File path
+	 * @return true if the file name ends with the gzip extension
+	 */
+	public static boolean hasCompressedExtension(final Path path) {
+		return path.getFileName().toString().toLowerCase().endsWith("." + EXTENSION);
+	}
+	
+	/**
+	 * Get the next chunk of decompressed content. The previously returned chunk is reused
+	 * afterwards, so it must not be accessed any longer.
+	 * 
+	 * @return Next chunk, or null if the end of the file has been reached
+	 * @throws IOException If the file can't be decompressed
+	 */
+	public ByteBuffer next() throws IOException {
+		if(currentChunk != null) {
+			freeChunks.add(currentChunk);
+			currentChunk = null;
+		}
+		if(endReached) {
+			return null;
+		}
+		
+		final Chunk chunk;
+		try {
+			chunk = filledChunks.take();
+		}
+		catch(final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while decompressing");
+		}
+		if(chunk.length < 0) {
+			endReached = true;
+			throw failure;
+		}
+		
+		currentChunk = chunk;
+		endReached = chunk.length < CHUNK_SIZE;
+		if(chunk.length == 0) {
+			return null;
+		}
+		chunk.buffer.limit(chunk.length).position(0);
+		return chunk.buffer;
+	}
+	
+	/**
+	 * Get the part of the compressed file that has been decompressed so far
+	 * 
+	 * @return Decompressed part, between 0 and 1
+	 */
+	public double getProgress() {
+		try {
+			return compressedSize > 0? (double)channel.position() / compressedSize : 1;
+		}
+		catch(final IOException e) {
+			return 1;
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		inflaterThread.interrupt();
+		input.close();
+	}
+	
+	//Runs on the inflater thread, filling chunks until the end of the file
+	private void inflate() {
+		try {
+			while(true) {
+				final Chunk chunk = freeChunks.take();
+				int length = 0;
+				try {
+					int count = 0;
+					while(length < CHUNK_SIZE && (count = input.read(chunk.data, length, CHUNK_SIZE - length)) >= 0) {
+						length += count;
+					}
+				}
+				catch(final IOException e) {
+					failure = e;
+					length = -1;
+				}
+				chunk.length = length;
+				filledChunks.put(chunk);
+				
+				if(length < CHUNK_SIZE) {
+					return;
+				}
+			}
+		}
+		catch(final InterruptedException e) {
+			//The input has been closed
+		}
+	}
+	
+	private static final class Chunk {
+		private final byte[] data = new byte[CHUNK_SIZE];
+		private final ByteBuffer buffer = ByteBuffer.wrap(data);
+		private int length;
+	}
+}
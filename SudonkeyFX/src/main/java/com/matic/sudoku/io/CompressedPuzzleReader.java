@@ -0,0 +1,155 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+package com.matic.sudoku.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Reads the puzzles of a gzip compressed collection, holding either a plain text
+ * collection (in any of the formats the PuzzleTextDecoder understands) or a packed one.
+ * The collection is decompressed on a background thread while it is being parsed.
+ * 
+ * @author vedran
+ *
+ */
+public class CompressedPuzzleReader implements SequentialPuzzleReader {
+	
+	private static final ByteBuffer EMPTY_CHUNK = ByteBuffer.allocate(0);
+	
+	private final CompressedInput input;
+	private final int dimension;
+	
+	//Decoder of a text collection, or null for a packed collection
+	private final PuzzleTextDecoder decoder;
+	
+	//Collects a packed record split between two chunks, null for a text collection
+	private final ByteBuffer record;
+	
+	//Decompressed content being parsed
+	private ByteBuffer chunk;
+	
+	/**
+	 * Open a compressed collection file. The puzzle dimension of a text collection is
+	 * guessed from its content.
+	 * 
+	 * @param path Path to the compressed collection file
+	 * @throws IOException If the file can't be opened or decompressed
+	 */
+	public CompressedPuzzleReader(final Path path) throws IOException {
+		input = new CompressedInput(path);
+		try {
+			chunk = nextChunk();
+			if(chunk.remaining() >= Integer.BYTES && chunk.getInt(0) == PackedPuzzleFormat.MAGIC) {
+				//The whole header is in the first chunk, unless the file is damaged
+				if(chunk.remaining() < PackedPuzzleFormat.HEADER_SIZE) {
+					throw new IOException("Damaged packed puzzle collection: " + path);
+				}
+				dimension = PackedPuzzleFormat.checkDimension(chunk.getInt(Integer.BYTES), path);
+				chunk.position(PackedPuzzleFormat.HEADER_SIZE);
+				decoder = null;
+				record = ByteBuffer.allocate(PackedPuzzleFormat.getRecordSize(dimension));
+			}
+			else {
+				decoder = new PuzzleTextDecoder(PuzzleTextDecoder.detectDimension(chunk));
+				dimension = decoder.getDimension();
+				record = null;
+			}
+		}
+		catch(final IOException e) {
+			input.close();
+			throw e;
+		}
+	}
+	
+	@Override
+	public int getDimension() {
+		return dimension;
+	}
+	
+	public boolean isPacked() {
+		return decoder == null;
+	}
+	
+	@Override
+	public boolean read(final int[] cells) throws IOException {
+		return decoder != null? readText(cells) : readPacked(cells);
+	}
+	
+	/**
+	 * Get the part of the compressed file that has been decompressed so far
+	 * 
+	 * @return Decompressed part, between 0 and 1
+	 */
+	public double getProgress() {
+		return input.getProgress();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		input.close();
+	}
+	
+	private boolean readText(final int[] cells) throws IOException {
+		while(chunk.hasRemaining()) {
+			final boolean puzzleRead = decoder.decode(chunk.get());
+			if(!chunk.hasRemaining()) {
+				chunk = nextChunk();
+			}
+			if(puzzleRead) {
+				final int[] decodedCells = decoder.getCells();
+				System.arraycopy(decodedCells, 0, cells, 0, decodedCells.length);
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private boolean readPacked(final int[] cells) throws IOException {
+		final int recordSize = record.capacity();
+		while(record.hasRemaining()) {
+			if(!chunk.hasRemaining()) {
+				chunk = nextChunk();
+				if(!chunk.hasRemaining()) {
+					//Ignore a partially written last record
+					return false;
+				}
+			}
+			if(record.position() == 0 && chunk.remaining() >= recordSize) {
+				//The whole record is in the current chunk, unpack it from there
+				PackedPuzzleFormat.unpack(dimension, chunk, chunk.position(), cells);
+				chunk.position(chunk.position() + recordSize);
+				return true;
+			}
+			while(record.hasRemaining() && chunk.hasRemaining()) {
+				record.put(chunk.get());
+			}
+		}
+		PackedPuzzleFormat.unpack(dimension, record, 0, cells);
+		record.clear();
+		return true;
+	}
+	
+	private ByteBuffer nextChunk() throws IOException {
+		final ByteBuffer nextChunk = input.next();
+		return nextChunk != null? nextChunk : EMPTY_CHUNK;
+	}
+}
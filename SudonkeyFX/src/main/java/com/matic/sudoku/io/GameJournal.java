@@ -0,0 +1,248 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+package com.matic.sudoku.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+import com.matic.sudoku.guifx.board.Cell;
+
+/**
+ * An append-only journal of the player's edits, used for autosaving a game. Each edit
+ * is appended as a small fixed-size record holding the edited cell's new content, so
+ * that the cost of an autosave doesn't depend on the board size. Once enough records
+ * have been appended, the journal is compacted by storing a snapshot of the whole board
+ * (as a saved game) and starting with an empty journal.
+ * 
+ * Since the records hold cell contents rather than changes, replaying a record more than
+ * once has no further effect. Each snapshot is stored with a new generation number, which
+ * the journal header repeats. A crash during compaction (or while a new game replaces the
+ * board) can leave a new snapshot next to the old journal, whose records then don't match
+ * the snapshot's generation and are ignored.
+ * 
+ * @author vedran
+ *
+ */
+public class GameJournal implements Closeable {
+	
+	//File extension of the journal, stored next to the snapshot
+	public static final String EXTENSION = "sdj";
+	
+	//Number of appended records after which the journal should be compacted
+	public static final int COMPACTION_THRESHOLD = 1024;
+	
+	//Identifies a journal file and its version
+	private static final int JOURNAL_MAGIC = 0x53444b06;
+	
+	//Magic number, board dimension and snapshot generation
+	private static final int HEADER_SIZE = 16;
+	
+	//Row, column, digit, flags, color index, pencilmarks (2 bytes) and a check byte
+	private static final int RECORD_SIZE = 8;
+	
+	//Mixed into a record's check byte, so that a zeroed out record is never valid
+	private static final int CHECK_SEED = 0x5a;
+	
+	private static final int GIVEN_FLAG = 1;
+	
+	private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_SIZE);
+	
+	private final Path snapshotPath;
+	private final Path journalPath;
+	
+	private FileChannel channel = null;
+	private int recordCount = 0;
+	
+	//Generation of the most recently stored snapshot, or -1 if none has been stored yet
+	private long generation = -1;
+	
+	/**
+	 * Create a journal for a game snapshot. Nothing is written until the journal is started.
+	 * 
+	 * @param snapshotPath Path of the snapshot (saved game) file
+	 */
+	public GameJournal(final Path snapshotPath) {
+		this.snapshotPath = snapshotPath;
+		this.journalPath = getJournalPath(snapshotPath);
+	}
+	
+	/**
+	 * Restore a game by loading its last snapshot and replaying the journal on top of it.
+	 * A partially written (torn) record at the journal's end is ignored.
+	 * 
+	 * @param snapshotPath Path of the snapshot (saved game) file
+	 * @return Restored game, or null if there is no snapshot to restore from
+	 * @throws IOException If the snapshot or the journal can't be read
+	 */
+	public static SavedGame restore(final Path snapshotPath) throws IOException {
+		if(!Files.exists(snapshotPath)) {
+			return null;
+		}
+		final SavedGame game = SavedGame.load(snapshotPath);
+		final Path journalPath = getJournalPath(snapshotPath);
+		
+		if(!Files.exists(journalPath)) {
+			return game;
+		}
+		
+		final ByteBuffer journal = ByteBuffer.wrap(Files.readAllBytes(journalPath));
+		if(journal.remaining() < HEADER_SIZE || journal.getInt() != JOURNAL_MAGIC ||
+				journal.getInt() != game.getDimension() || journal.getLong() != game.getGeneration()) {
+			//Journal not (yet) written for this snapshot
+			return game;
+		}
+		
+		final Cell[][] cells = game.getCells();
+		final int unit = game.getDimension() * game.getDimension();
+		final byte[] record = new byte[RECORD_SIZE];
+		
+		while(journal.remaining() >= RECORD_SIZE) {
+			journal.get(record);
+			final int row = record[0] & 0xff;
+			final int column = record[1] & 0xff;
+			if(!isValid(record) || row >= unit || column >= unit || (record[2] & 0xff) > unit) {
+				//Damaged tail, nothing after it can be trusted
+				break;
+			}
+			final Cell cell = cells[column][row];
+			cell.setDigit(record[2] & 0xff);
+			cell.setGiven((record[3] & GIVEN_FLAG) != 0);
+			cell.setBackgroundColorIndex(record[4] & 0xff);
+			cell.setPencilmarks(BitSet.valueOf(new long[] {
+					((record[5] & 0xff) << 8) | (record[6] & 0xff)}));
+		}
+		return game;
+	}
+	
+	/**
+	 * Start journaling a game, by storing it as the new snapshot and truncating the journal.
+	 * This is also used for compacting the journal.
+	 * 
+	 * @param game Current content of the board
+	 * @throws IOException If the snapshot or the journal can't be written
+	 */
+	public void start(final SavedGame game) throws IOException {
+		close();
+		if(generation < 0) {
+			generation = readSnapshotGeneration();
+		}
+		++generation;
+		new SavedGame(game.getDimension(), game.getCells(), generation).store(snapshotPath);
+		
+		channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, 
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(JOURNAL_MAGIC).putInt(game.getDimension()).putLong(generation).flip();
+		while(header.hasRemaining()) {
+			channel.write(header);
+		}
+		recordCount = 0;
+	}
+	
+	/**
+	 * Append a cell's new content to the journal. The record is handed over to the operating
+	 * system right away, so it survives a crash of the application.
+	 * 
+	 * @param row Row index of the edited cell
+	 * @param column Column index of the edited cell
+	 * @param cell Edited cell
+	 * @throws IOException If the record can't be written
+	 */
+	public void append(final int row, final int column, final Cell cell) throws IOException {
+		if(channel == null) {
+			throw new IOException("Journal not started: " + journalPath);
+		}
+		final long[] pencilmarks = cell.getPencilmarks().toLongArray();
+		final int pencilmarkBits = pencilmarks.length > 0? (int)pencilmarks[0] : 0;
+		
+		recordBuffer.clear();
+		recordBuffer.put((byte)row).put((byte)column).put((byte)cell.getDigit())
+			.put((byte)(cell.isGiven()? GIVEN_FLAG : 0)).put((byte)cell.getBackgroundColorIndex())
+			.putShort((short)pencilmarkBits);
+		recordBuffer.put(computeCheck(recordBuffer.array())).flip();
+		
+		while(recordBuffer.hasRemaining()) {
+			channel.write(recordBuffer);
+		}
+		++recordCount;
+	}
+	
+	/**
+	 * Check whether enough records have been appended for the journal to be compacted
+	 * 
+	 * @return true if the journal should be compacted, false otherwise
+	 */
+	public boolean isCompactionNeeded() {
+		return recordCount >= COMPACTION_THRESHOLD;
+	}
+	
+	public int getRecordCount() {
+		return recordCount;
+	}
+	
+	public Path getSnapshotPath() {
+		return snapshotPath;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if(channel != null) {
+			channel.close();
+			channel = null;
+		}
+	}
+	
+	//Continue from the generation of a snapshot stored before the application was started
+	private long readSnapshotGeneration() {
+		try {
+			return Files.exists(snapshotPath)? SavedGame.readGeneration(snapshotPath) : 0;
+		}
+		catch(final IOException e) {
+			//Damaged snapshot, which is about to be replaced
+			return 0;
+		}
+	}
+	
+	private static Path getJournalPath(final Path snapshotPath) {
+		final String snapshotName = snapshotPath.getFileName().toString();
+		final int extensionIndex = snapshotName.lastIndexOf('.');
+		final String baseName = extensionIndex > 0? snapshotName.substring(0, extensionIndex) : snapshotName;
+		return snapshotPath.resolveSibling(baseName + "." + EXTENSION);
+	}
+	
+	private static boolean isValid(final byte[] record) {
+		return record[RECORD_SIZE - 1] == computeCheck(record);
+	}
+	
+	private static byte computeCheck(final byte[] record) {
+		int check = CHECK_SEED;
+		for(int i = 0; i < RECORD_SIZE - 1; ++i) {
+			check = ((check << 1) | (check >>> 7)) & 0xff;
+			check ^= record[i] & 0xff;
+		}
+		return (byte)check;
+	}
+}
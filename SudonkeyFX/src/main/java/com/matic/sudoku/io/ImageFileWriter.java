@@ -0,0 +1,87 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Encodes rendered ARGB pixels into image files. The image format (PNG, JPEG or GIF)
+ * is chosen from the target file's extension. Encoding doesn't depend on JavaFX, so
+ * it can be done on any thread.
+ * 
+ * @author vedran
+ *
+ */
+public final class ImageFileWriter {
+	
+	private static final String PNG_FORMAT = "png";
+	private static final String JPEG_FORMAT = "jpeg";
+	private static final String GIF_FORMAT = "gif";
+	
+	//Prevent instantiation of this class
+	private ImageFileWriter() {}
+	
+	/**
+	 * Encode and write pixels to an image file
+	 * 
+	 * @param pixels ARGB pixel values, row by row
+	 * @param width Image width, in pixels
+	 * @param height Image height, in pixels
+	 * @param path Target file path, its extension determines the image format
+	 * @throws IOException If the image can't be encoded or written
+	 */
+	public static void write(final int[] pixels, final int width, final int height,
+			final Path path) throws IOException {
+		final String format = getImageFormat(path);
+		
+		//JPEG has no alpha channel
+		final int imageType = JPEG_FORMAT.equals(format)? 
+				BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+		final BufferedImage image = new BufferedImage(width, height, imageType);
+		image.setRGB(0, 0, width, height, pixels, 0, width);
+		
+		if(!ImageIO.write(image, format, path.toFile())) {
+			throw new IOException("No image writer found for format " + format);
+		}
+	}
+	
+	/**
+	 * Get the name of the image format matching a file's extension
+	 * 
+	 * @param path Image file path
+	 * @return Image format name, PNG if the extension isn't recognized
+	 */
+	public static String getImageFormat(final Path path) {
+		final String fileName = path.getFileName().toString().toLowerCase(Locale.ENGLISH);
+		if(fileName.endsWith(".jpg") || fileName.endsWith(".jpeg")) {
+			return JPEG_FORMAT;
+		}
+		if(fileName.endsWith(".gif")) {
+			return GIF_FORMAT;
+		}
+		return PNG_FORMAT;
+	}
+}
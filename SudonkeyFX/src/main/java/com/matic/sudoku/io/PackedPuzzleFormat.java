@@ -0,0 +1,198 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.matic.sudoku.guifx.board.GameBoard;
+
+/**
+ * A compact binary puzzle collection format. A file starts with a header holding
+ * the magic number, the puzzle dimension and the puzzle count, followed by fixed
+ * size puzzle records, so any puzzle can be located without reading the others.
+ * 
+ * Records of puzzles up to 9x9 hold one nibble per cell (0 for an empty cell), so
+ * that a 9x9 puzzle occupies 41 bytes, half of its 82 byte one-line text form. Values
+ * of 16x16 puzzles don't fit a nibble, so their records start with a bitmap of the
+ * filled cells, followed by one nibble per cell holding the value - 1 (160 bytes in
+ * total). That is only about 1.6 times smaller than the 257 byte text form, but no
+ * fixed record size can do better, as 17 possible cell values need 5 bits per cell.
+ * 
+ * @author vedran
+ *
+ */
+public final class PackedPuzzleFormat {
+	
+	//File extension of packed puzzle collections
+	public static final String EXTENSION = "sdp";
+	
+	//Identifies a packed puzzle collection file and its version
+	public static final int MAGIC = 0x53444b03;
+	
+	//Magic, dimension and puzzle count
+	public static final int HEADER_SIZE = 16;
+	
+	//File offset of the puzzle count within the header
+	public static final int COUNT_OFFSET = 8;
+	
+	//Puzzle count stored when it isn't known as the header is written (compressed collections)
+	public static final long UNKNOWN_PUZZLE_COUNT = Long.MAX_VALUE;
+	
+	//Prevent instantiation of this class
+	private PackedPuzzleFormat() {}
+	
+	/**
+	 * Check whether a file holds a packed puzzle collection
+	 * 
+	 * @param path File path
+	 * @return true if the file starts with the packed format's magic number
+	 * @throws IOException If the file can't be read
+	 */
+	public static boolean isPackedFile(final Path path) throws IOException {
+		try(final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+			while(magic.hasRemaining()) {
+				if(channel.read(magic) < 0) {
+					break;
+				}
+			}
+			return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+		}
+	}
+	
+	/**
+	 * Check a puzzle dimension read from a file header. A damaged header could otherwise
+	 * yield huge or negative record sizes.
+	 * 
+	 * @param dimension Stored puzzle dimension
+	 * @param path File path, for reporting a damaged file
+	 * @return The dimension, if it is supported
+	 * @throws IOException If the dimension isn't supported
+	 */
+	public static int checkDimension(final int dimension, final Path path) throws IOException {
+		if(dimension < GameBoard.DIMENSION_4x4 || dimension > GameBoard.DIMENSION_16x16) {
+			throw new IOException("Unsupported puzzle dimension " + dimension + " in " + path);
+		}
+		return dimension;
+	}
+	
+	/**
+	 * Get the size of a puzzle record
+	 * 
+	 * @param dimension Puzzle dimension (3 for a 9x9 puzzle)
+	 * @return Record size, in bytes
+	 */
+	public static int getRecordSize(final int dimension) {
+		final int cellCount = getCellCount(dimension);
+		final int nibbleBytes = (cellCount + 1) / 2;
+		return hasFilledCellBitmap(dimension)? cellCount / Byte.SIZE + nibbleBytes : nibbleBytes;
+	}
+	
+	/**
+	 * Write the file header
+	 * 
+	 * @param dimension Puzzle dimension (3 for a 9x9 puzzle)
+	 * @param puzzleCount Number of puzzle records following the header
+	 * @param target Buffer to write the header into, at its current position
+	 */
+	public static void putHeader(final int dimension, final long puzzleCount, final ByteBuffer target) {
+		target.putInt(MAGIC);
+		target.putInt(dimension);
+		target.putLong(puzzleCount);
+	}
+	
+	/**
+	 * Pack a puzzle into a record
+	 * 
+	 * @param dimension Puzzle dimension (3 for a 9x9 puzzle)
+	 * @param cells Cell values (0 for empty cells), row by row
+	 * @param target Buffer to write the record into, at its current position
+	 */
+	public static void pack(final int dimension, final int[] cells, final ByteBuffer target) {
+		final int cellCount = cells.length;
+		final boolean withBitmap = hasFilledCellBitmap(dimension);
+		
+		if(withBitmap) {
+			for(int cell = 0; cell < cellCount; cell += Byte.SIZE) {
+				int filledCells = 0;
+				for(int bit = 0; bit < Byte.SIZE; ++bit) {
+					if(cells[cell + bit] > 0) {
+						filledCells |= 1 << bit;
+					}
+				}
+				target.put((byte)filledCells);
+			}
+		}
+		for(int cell = 0; cell < cellCount; cell += 2) {
+			final int high = toNibble(cells[cell], withBitmap);
+			final int low = cell + 1 < cellCount? toNibble(cells[cell + 1], withBitmap) : 0;
+			target.put((byte)(high << 4 | low));
+		}
+	}
+	
+	/**
+	 * Unpack a puzzle record
+	 * 
+	 * @param dimension Puzzle dimension (3 for a 9x9 puzzle)
+	 * @param source Buffer holding the record
+	 * @param offset Offset of the record within the buffer
+	 * @param cells Target for the cell values (0 for empty cells), row by row
+	 */
+	public static void unpack(final int dimension, final ByteBuffer source, final int offset, 
+			final int[] cells) {
+		final int cellCount = cells.length;
+		final boolean withBitmap = hasFilledCellBitmap(dimension);
+		final int nibbleOffset = withBitmap? offset + cellCount / Byte.SIZE : offset;
+		
+		for(int cell = 0; cell < cellCount; cell += 2) {
+			final int packed = source.get(nibbleOffset + cell / 2);
+			cells[cell] = (packed >> 4) & 0xf;
+			if(cell + 1 < cellCount) {
+				cells[cell + 1] = packed & 0xf;
+			}
+		}
+		
+		if(withBitmap) {
+			for(int cell = 0; cell < cellCount; ++cell) {
+				final boolean filled = (source.get(offset + cell / Byte.SIZE) & (1 << (cell % Byte.SIZE))) != 0;
+				cells[cell] = filled? cells[cell] + 1 : 0;
+			}
+		}
+	}
+	
+	public static int getCellCount(final int dimension) {
+		final int unit = dimension * dimension;
+		return unit * unit;
+	}
+	
+	//16x16 values (1 - 16) need 5 bits, so the nibble holds value - 1 and the bitmap the empty cells
+	private static boolean hasFilledCellBitmap(final int dimension) {
+		return dimension > GameBoard.DIMENSION_9x9;
+	}
+	
+	private static int toNibble(final int value, final boolean withBitmap) {
+		return withBitmap? Math.max(0, value - 1) : value;
+	}
+}
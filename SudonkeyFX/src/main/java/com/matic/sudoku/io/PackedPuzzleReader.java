@@ -0,0 +1,126 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads puzzles from a packed puzzle collection. The file is memory-mapped in windows
+ * holding a whole number of records and puzzles are unpacked straight from the mapped
+ * bytes, so reading any puzzle takes constant time.
+ * 
+ * @author vedran
+ *
+ */
+public class PackedPuzzleReader implements Closeable {
+	
+	//Maximum size (in bytes) of the file windows mapped at a time
+	private static final long MAPPING_SIZE = 64L * 1024 * 1024;
+	
+	private final FileChannel channel;
+	private final long puzzleCount;
+	private final int dimension;
+	private final int recordSize;
+	
+	//How many records each mapped window holds
+	private final long recordsPerMapping;
+	
+	private MappedByteBuffer mapping;
+	private long mappingFirstRecord;
+	
+	/**
+	 * Open a packed collection file
+	 * 
+	 * @param path Path to the collection file
+	 * @throws IOException If the file can't be read or isn't a packed collection
+	 */
+	public PackedPuzzleReader(final Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			final ByteBuffer header = ByteBuffer.allocate(PackedPuzzleFormat.HEADER_SIZE);
+			while(header.hasRemaining()) {
+				if(channel.read(header) < 0) {
+					break;
+				}
+			}
+			header.flip();
+			
+			if(header.remaining() < PackedPuzzleFormat.HEADER_SIZE || 
+					header.getInt() != PackedPuzzleFormat.MAGIC) {
+				throw new IOException("Not a packed puzzle collection: " + path);
+			}
+			dimension = PackedPuzzleFormat.checkDimension(header.getInt(), path);
+			recordSize = PackedPuzzleFormat.getRecordSize(dimension);
+			
+			//Ignore a partially written last record
+			final long storedCount = (channel.size() - PackedPuzzleFormat.HEADER_SIZE) / recordSize;
+			puzzleCount = Math.min(header.getLong(), storedCount);
+			recordsPerMapping = MAPPING_SIZE / recordSize;
+		}
+		catch(final IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	public int getDimension() {
+		return dimension;
+	}
+	
+	public long getPuzzleCount() {
+		return puzzleCount;
+	}
+	
+	/**
+	 * Read a single puzzle
+	 * 
+	 * @param index Puzzle index, starting from 0
+	 * @param cells Target for the puzzle's cell values (0 for empty cells), row by row
+	 * @throws IOException If the file can't be mapped
+	 */
+	public void read(final long index, final int[] cells) throws IOException {
+		if(index < 0 || index >= puzzleCount) {
+			throw new IndexOutOfBoundsException("No puzzle at index " + index);
+		}
+		if(mapping == null || index < mappingFirstRecord || 
+				index >= mappingFirstRecord + recordsPerMapping) {
+			mappingFirstRecord = index - index % recordsPerMapping;
+			final long recordCount = Math.min(recordsPerMapping, puzzleCount - mappingFirstRecord);
+			mapping = channel.map(MapMode.READ_ONLY, PackedPuzzleFormat.HEADER_SIZE + 
+					mappingFirstRecord * recordSize, recordCount * recordSize);
+		}
+		PackedPuzzleFormat.unpack(dimension, mapping, 
+				(int)(index - mappingFirstRecord) * recordSize, cells);
+	}
+
+	@Override
+	public void close() throws IOException {
+		mapping = null;
+		channel.close();
+	}
+}
@@ -0,0 +1,248 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.DoubleConsumer;
+
+/**
+ * An index of the puzzle offsets within a plain text puzzle collection, which
+ * allows any puzzle to be read without decoding the ones preceding it. The index
+ * is built in a single scan of the collection and cached in a file next to it.
+ * The cached index is used for as long as the collection file's size and last
+ * modification time match the ones stored in the index.
+ * 
+ * The cached offsets are memory-mapped rather than loaded, so the index of a
+ * collection with millions of puzzles takes up next to no heap.
+ * 
+ * @author vedran
+ *
+ */
+public class PuzzleCollectionIndex {
+	
+	//File name suffix of the index file stored next to the collection file
+	private static final String INDEX_FILE_SUFFIX = ".idx";
+	
+	//Identifies an index file and its version
+	private static final int INDEX_MAGIC = 0x53444b02;
+	
+	//Magic, puzzle count, collection file size and modification time (offsets follow)
+	private static final int HEADER_SIZE = 24;
+	
+	//How many puzzles are scanned between progress updates
+	private static final int PROGRESS_INTERVAL = 16 * 1024;
+	
+	private final LongBuffer puzzleOffsets;
+	
+	private PuzzleCollectionIndex(final LongBuffer puzzleOffsets) {
+		this.puzzleOffsets = puzzleOffsets;
+	}
+	
+	/**
+	 * Get the path of the index file belonging to a collection file
+	 * 
+	 * @param collectionPath Path of the collection file
+	 * @return Index file path
+	 */
+	public static Path getIndexPath(final Path collectionPath) {
+		return Paths.get(collectionPath.toString() + INDEX_FILE_SUFFIX);
+	}
+	
+	/**
+	 * Get the index of a collection, either from its cached index file or by scanning
+	 * the collection (in which case the index file is written for later use)
+	 * 
+	 * @param reader Reader of the collection
+	 * @param collectionPath Path of the collection file
+	 * @return Collection index
+	 * @throws IOException If the collection can't be read
+	 */
+	public static PuzzleCollectionIndex open(final PuzzleCollectionReader reader, 
+			final Path collectionPath) throws IOException {
+		return open(reader, collectionPath, progress -> {});
+	}
+	
+	/**
+	 * Get the index of a collection, either from its cached index file or by scanning
+	 * the collection. A scan can be cancelled by interrupting the scanning thread.
+	 * 
+	 * @param reader Reader of the collection
+	 * @param collectionPath Path of the collection file
+	 * @param progressListener Notified of the scan progress (0 - 1) 
+	 * @return Collection index
+	 * @throws IOException If the collection can't be read or the scan was interrupted
+	 */
+	public static PuzzleCollectionIndex open(final PuzzleCollectionReader reader, 
+			final Path collectionPath, final DoubleConsumer progressListener) throws IOException {
+		final long collectionSize = Files.size(collectionPath);
+		final long lastModified = Files.getLastModifiedTime(collectionPath).toMillis();
+		final Path indexPath = getIndexPath(collectionPath);
+		
+		final PuzzleCollectionIndex cachedIndex = load(indexPath, collectionSize, lastModified);
+		if(cachedIndex != null) {
+			return cachedIndex;
+		}
+		
+		final LongBuffer puzzleOffsets = scan(reader, progressListener);
+		try {
+			store(indexPath, puzzleOffsets, collectionSize, lastModified);
+		}
+		catch(final IOException e) {
+			//Caching is only an optimization, the index is still usable (from the heap)
+		}
+		return new PuzzleCollectionIndex(puzzleOffsets);
+	}
+	
+	/**
+	 * Get the cached index of a collection, without scanning the collection
+	 * 
+	 * @param collectionPath Path of the collection file
+	 * @return Collection index, or null if there is no up to date index file
+	 * @throws IOException If the collection file can't be accessed
+	 */
+	public static PuzzleCollectionIndex openCached(final Path collectionPath) throws IOException {
+		return load(getIndexPath(collectionPath), Files.size(collectionPath), 
+				Files.getLastModifiedTime(collectionPath).toMillis());
+	}
+	
+	public int getPuzzleCount() {
+		return puzzleOffsets.limit();
+	}
+	
+	/**
+	 * Get the file offset at which a puzzle starts
+	 * 
+	 * @param index Puzzle index, starting from 0
+	 * @return Puzzle's file offset, to which a collection reader can seek
+	 */
+	public long getPuzzleOffset(final int index) {
+		return puzzleOffsets.get(index);
+	}
+	
+	/**
+	 * Read a single puzzle of the collection
+	 * 
+	 * @param reader Reader of the collection
+	 * @param index Puzzle index, starting from 0
+	 * @param cells Target for the puzzle's cell values (0 for empty cells), row by row
+	 * @throws IOException If the puzzle can't be read
+	 */
+	public void readPuzzle(final PuzzleCollectionReader reader, final int index,
+			final int[] cells) throws IOException {
+		reader.seek(getPuzzleOffset(index));
+		if(!reader.read(cells)) {
+			throw new IOException("Puzzle " + index + " not found, the collection has changed");
+		}
+	}
+	
+	private static LongBuffer scan(final PuzzleCollectionReader reader, 
+			final DoubleConsumer progressListener) throws IOException {
+		final int unit = reader.getDimension() * reader.getDimension();
+		final int[] cells = new int[unit * unit];
+		
+		long[] offsets = new long[1024];
+		int count = 0;
+		
+		reader.seek(0);
+		while(reader.read(cells)) {
+			if(count == offsets.length) {
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			}
+			offsets[count++] = reader.getPuzzleOffset();
+			
+			if(count % PROGRESS_INTERVAL == 0) {
+				if(Thread.currentThread().isInterrupted()) {
+					throw new InterruptedIOException("Collection scan interrupted");
+				}
+				progressListener.accept((double)reader.getPosition() / reader.getSize());
+			}
+		}
+		reader.seek(0);
+		
+		return LongBuffer.wrap(offsets, 0, count).slice();
+	}
+	
+	private static PuzzleCollectionIndex load(final Path indexPath, final long collectionSize, 
+			final long lastModified) throws IOException {
+		if(!Files.exists(indexPath)) {
+			return null;
+		}
+		try(final FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+			if(channel.size() < HEADER_SIZE) {
+				return null;
+			}
+			final MappedByteBuffer content = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			if(content.getInt(0) != INDEX_MAGIC) {
+				return null;
+			}
+			final int count = content.getInt(4);
+			if(content.getLong(8) != collectionSize || content.getLong(16) != lastModified ||
+					channel.size() != HEADER_SIZE + (long)count * Long.BYTES) {
+				return null;
+			}
+			content.position(HEADER_SIZE);
+			return new PuzzleCollectionIndex(content.slice().asLongBuffer());
+		}
+	}
+	
+	//Write the index to a temporary file first, so that a partially written index is never used
+	private static void store(final Path indexPath, final LongBuffer puzzleOffsets, 
+			final long collectionSize, final long lastModified) throws IOException {
+		final Path tempPath = Paths.get(indexPath.toString() + ".tmp");
+		try(final FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+			buffer.putInt(INDEX_MAGIC);
+			buffer.putInt(puzzleOffsets.limit());
+			buffer.putLong(collectionSize);
+			buffer.putLong(lastModified);
+			
+			for(int i = 0; i < puzzleOffsets.limit(); ++i) {
+				if(!buffer.hasRemaining()) {
+					write(channel, buffer);
+				}
+				buffer.putLong(puzzleOffsets.get(i));
+			}
+			write(channel, buffer);
+		}
+		Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	private static void write(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
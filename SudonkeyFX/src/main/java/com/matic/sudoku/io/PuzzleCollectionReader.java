@@ -0,0 +1,163 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the puzzles of a plain text puzzle collection, in any of the formats the
+ * PuzzleTextDecoder understands. The file is memory-mapped in large windows and
+ * decoded straight from the mapped bytes, so even collections holding millions of
+ * puzzles are read at disk speed.
+ * 
+ * @author vedran
+ *
+ */
+public class PuzzleCollectionReader implements SequentialPuzzleReader {
+	
+	//Size (in bytes) of the file windows mapped at a time
+	private static final long MAPPING_SIZE = 64L * 1024 * 1024;
+	
+	private final PuzzleTextDecoder decoder;
+	private final FileChannel channel;
+	private final long fileSize;
+	
+	private MappedByteBuffer mapping;
+	private long mappingStart;
+	
+	//File offset of the next byte to decode
+	private long position;
+	
+	//File offset of the first cell symbol of the most recently read puzzle
+	private long puzzleOffset;
+	
+	/**
+	 * Open a collection file. The puzzle dimension is guessed from the file's content.
+	 * 
+	 * @param path Path to the collection file
+	 * @throws IOException If the file can't be opened or mapped
+	 */
+	public PuzzleCollectionReader(final Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			fileSize = channel.size();
+			map(0);
+			decoder = new PuzzleTextDecoder(PuzzleTextDecoder.detectDimension(mapping));
+		}
+		catch(final IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	@Override
+	public int getDimension() {
+		return decoder.getDimension();
+	}
+	
+	/**
+	 * Read the next puzzle in the collection
+	 * 
+	 * @param cells Target for the puzzle's cell values (0 for empty cells), row by row
+	 * @return true if a puzzle was read, false if the end of the file was reached
+	 * @throws IOException If the file can't be mapped
+	 */
+	@Override
+	public boolean read(final int[] cells) throws IOException {
+		while(position < fileSize) {
+			if(position >= mappingStart + mapping.limit()) {
+				map(position);
+			}
+			final int limit = mapping.limit();
+			int index = (int)(position - mappingStart);
+			
+			while(index < limit) {
+				final boolean puzzleStarting = decoder.isIdle();
+				if(decoder.decode(mapping.get(index++))) {
+					position = mappingStart + index;
+					final int[] decodedCells = decoder.getCells();
+					System.arraycopy(decodedCells, 0, cells, 0, decodedCells.length);
+					return true;
+				}
+				if(puzzleStarting && !decoder.isIdle()) {
+					puzzleOffset = mappingStart + index - 1;
+				}
+			}
+			position = mappingStart + limit;
+		}
+		return false;
+	}
+
+	/**
+	 * Get the file offset of the next byte to be read
+	 * 
+	 * @return Current read position
+	 */
+	public long getPosition() {
+		return position;
+	}
+	
+	public long getSize() {
+		return fileSize;
+	}
+	
+	/**
+	 * Get the file offset at which the most recently read puzzle starts. Reading from
+	 * that offset after seeking to it yields the same puzzle again.
+	 * 
+	 * @return File offset of the puzzle's first cell symbol
+	 */
+	public long getPuzzleOffset() {
+		return puzzleOffset;
+	}
+	
+	/**
+	 * Continue reading from a file offset, discarding any partially read puzzle
+	 * 
+	 * @param position File offset at which the next puzzle starts
+	 * @throws IOException If the file can't be mapped
+	 */
+	public void seek(final long position) throws IOException {
+		if(position < mappingStart || position >= mappingStart + mapping.limit()) {
+			if(position < fileSize) {
+				map(position);
+			}
+		}
+		this.position = position;
+		decoder.reset();
+	}
+
+	@Override
+	public void close() throws IOException {
+		mapping = null;
+		channel.close();
+	}
+	
+	private void map(final long start) throws IOException {
+		mappingStart = start;
+		mapping = channel.map(MapMode.READ_ONLY, start, Math.min(MAPPING_SIZE, fileSize - start));
+	}
+}
@@ -0,0 +1,368 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import com.matic.sudoku.generator.Generator.Symmetry;
+import com.matic.sudoku.generator.GeneratorResult;
+import com.matic.sudoku.guifx.board.GameBoard;
+import com.matic.sudoku.logic.LogicSolver.Grading;
+
+/**
+ * A file backed database of packed puzzles. Each puzzle occupies a fixed size record
+ * holding its properties (grading, symmetry, dimension, clue count and whether it has
+ * been used) followed by the packed puzzle itself. Records are accessed through memory
+ * mapped windows of the file, so the puzzles never need to be loaded onto the heap.
+ * 
+ * Queries are answered from bitmap indexes (one bit per puzzle) over each of the
+ * indexed properties, which are built with a single pass over the records when the
+ * database is opened. Marking a puzzle as used updates both its record and the index.
+ * 
+ * A database is not thread-safe.
+ * 
+ * @author vedran
+ *
+ */
+public class PuzzleDatabase implements Closeable {
+	
+	//Identifies a puzzle database file and its version
+	private static final int DATABASE_MAGIC = 0x53444b04;
+	
+	//Magic, maximum puzzle dimension and puzzle count
+	private static final int HEADER_SIZE = 16;
+	private static final int COUNT_OFFSET = 8;
+	
+	//Record layout: flags, grading, symmetry, dimension, clue count, padding, packed puzzle
+	private static final int FLAGS_OFFSET = 0;
+	private static final int GRADING_OFFSET = 1;
+	private static final int SYMMETRY_OFFSET = 2;
+	private static final int DIMENSION_OFFSET = 3;
+	private static final int CLUE_COUNT_OFFSET = 4;
+	private static final int PUZZLE_OFFSET = 8;
+	
+	private static final int USED_FLAG = 1;
+	
+	//Stored in place of a missing grading or symmetry
+	private static final byte UNKNOWN_PROPERTY = -1;
+	
+	//Maximum size (in bytes) of the file windows mapped at a time
+	private static final long MAPPING_SIZE = 64L * 1024 * 1024;
+	
+	private final Map<Grading, BitSet> gradingIndex = new EnumMap<>(Grading.class);
+	private final Map<Symmetry, BitSet> symmetryIndex = new EnumMap<>(Symmetry.class);
+	private final Map<Integer, BitSet> dimensionIndex = new HashMap<>();
+	private final NavigableMap<Integer, BitSet> clueCountIndex = new TreeMap<>();
+	private final BitSet usedIndex = new BitSet();
+	
+	private final FileChannel channel;
+	private final ByteBuffer recordBuffer;
+	private final int recordSize;
+	private final int maxDimension;
+	private final int recordsPerMapping;
+	
+	private MappedByteBuffer mapping;
+	private int mappingFirstRecord;
+	private int mappedRecordCount;
+	
+	private int puzzleCount;
+	
+	/**
+	 * Open a puzzle database, creating it if the file doesn't exist
+	 * 
+	 * @param path Database file path
+	 * @param maxDimension Largest dimension of the stored puzzles (used only when creating the database)
+	 * @throws IOException If the database can't be opened or isn't a puzzle database
+	 */
+	public PuzzleDatabase(final Path path, final int maxDimension) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, 
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			if(channel.size() == 0) {
+				header.putInt(DATABASE_MAGIC).putInt(maxDimension).putLong(0).flip();
+				channel.write(header, 0);
+				header.rewind();
+			}
+			else {
+				channel.read(header, 0);
+				header.flip();
+			}
+			if(header.remaining() < HEADER_SIZE || header.getInt() != DATABASE_MAGIC) {
+				throw new IOException("Not a puzzle database: " + path);
+			}
+			this.maxDimension = PackedPuzzleFormat.checkDimension(header.getInt(), path);
+			recordSize = PUZZLE_OFFSET + PackedPuzzleFormat.getRecordSize(this.maxDimension);
+			recordsPerMapping = (int)(MAPPING_SIZE / recordSize);
+			recordBuffer = ByteBuffer.allocate(recordSize);
+			
+			//Ignore a partially written last record
+			final long storedCount = (channel.size() - HEADER_SIZE) / recordSize;
+			puzzleCount = (int)Math.min(header.getLong(), storedCount);
+			buildIndexes();
+		}
+		catch(final IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	public int getPuzzleCount() {
+		return puzzleCount;
+	}
+	
+	/**
+	 * Add a puzzle to the database
+	 * 
+	 * @param puzzle Puzzle to add
+	 * @return Index of the added puzzle
+	 * @throws IOException If the puzzle can't be written
+	 */
+	public int add(final GeneratorResult puzzle) throws IOException {
+		final int dimension = puzzle.getDimension();
+		if(dimension > maxDimension) {
+			throw new IllegalArgumentException("Puzzle dimension " + dimension + 
+					" exceeds the database maximum of " + maxDimension);
+		}
+		final int clueCount = countClues(puzzle.getPuzzle());
+		final Grading grading = puzzle.getGrading();
+		final Symmetry symmetry = puzzle.getSymmetry();
+		
+		recordBuffer.clear();
+		recordBuffer.put(FLAGS_OFFSET, (byte)0);
+		recordBuffer.put(GRADING_OFFSET, grading != null? (byte)grading.ordinal() : UNKNOWN_PROPERTY);
+		recordBuffer.put(SYMMETRY_OFFSET, symmetry != null? (byte)symmetry.ordinal() : UNKNOWN_PROPERTY);
+		recordBuffer.put(DIMENSION_OFFSET, (byte)dimension);
+		recordBuffer.putShort(CLUE_COUNT_OFFSET, (short)clueCount);
+		recordBuffer.position(PUZZLE_OFFSET);
+		PackedPuzzleFormat.pack(dimension, puzzle.getPuzzle(), recordBuffer);
+		recordBuffer.clear();
+		
+		long position = getRecordPosition(puzzleCount);
+		while(recordBuffer.hasRemaining()) {
+			position += channel.write(recordBuffer, position);
+		}
+		
+		final int index = puzzleCount++;
+		addToIndexes(index, grading, symmetry, dimension, clueCount);
+		return index;
+	}
+	
+	/**
+	 * Find the puzzles matching a query, in the order they were added
+	 * 
+	 * @param query Query to match
+	 * @return Indexes of the matching puzzles, at most as many as the query limit
+	 */
+	public int[] find(final PuzzleQuery query) {
+		final BitSet matches = new BitSet(puzzleCount);
+		matches.set(0, puzzleCount);
+		
+		if(query.getGrading() != null) {
+			matches.and(getIndex(gradingIndex, query.getGrading()));
+		}
+		if(query.getSymmetry() != null) {
+			matches.and(getIndex(symmetryIndex, query.getSymmetry()));
+		}
+		if(query.getDimension() != PuzzleQuery.ANY_DIMENSION) {
+			matches.and(getIndex(dimensionIndex, query.getDimension()));
+		}
+		
+		final BitSet clueCountMatches = new BitSet(puzzleCount);
+		clueCountIndex.subMap(query.getMinClueCount(), true, query.getMaxClueCount(), true)
+			.values().forEach(clueCountMatches::or);
+		matches.and(clueCountMatches);
+		
+		if(query.isUnusedOnly()) {
+			matches.andNot(usedIndex);
+		}
+		
+		final int resultCount = Math.min(query.getLimit(), matches.cardinality());
+		final int[] result = new int[resultCount];
+		for(int i = 0, index = matches.nextSetBit(0); i < resultCount; ++i, index = matches.nextSetBit(index + 1)) {
+			result[i] = index;
+		}
+		return result;
+	}
+	
+	/**
+	 * Read a stored puzzle
+	 * 
+	 * @param index Puzzle index
+	 * @param cells Target for the cell values (0 for empty cells), row by row. Its
+	 * 	length must match the puzzle's dimension (see getDimension())
+	 * @throws IOException If the database file can't be mapped
+	 */
+	public void read(final int index, final int[] cells) throws IOException {
+		final int offset = mapRecord(index);
+		final int dimension = mapping.get(offset + DIMENSION_OFFSET);
+		if(dimension < GameBoard.DIMENSION_4x4 || dimension > maxDimension) {
+			throw new IOException("Damaged puzzle record at index " + index);
+		}
+		PackedPuzzleFormat.unpack(dimension, mapping, offset + PUZZLE_OFFSET, cells);
+	}
+	
+	public int getDimension(final int index) throws IOException {
+		return mapping.get(mapRecord(index) + DIMENSION_OFFSET);
+	}
+	
+	public Grading getGrading(final int index) throws IOException {
+		return toGrading(mapping.get(mapRecord(index) + GRADING_OFFSET));
+	}
+	
+	public Symmetry getSymmetry(final int index) throws IOException {
+		return toSymmetry(mapping.get(mapRecord(index) + SYMMETRY_OFFSET));
+	}
+	
+	public int getClueCount(final int index) throws IOException {
+		return mapping.getShort(mapRecord(index) + CLUE_COUNT_OFFSET);
+	}
+	
+	public boolean isUsed(final int index) {
+		return usedIndex.get(index);
+	}
+	
+	/**
+	 * Mark a puzzle as used (or unused), both in its record and in the index
+	 * 
+	 * @param index Puzzle index
+	 * @param used Whether the puzzle has been used
+	 * @throws IOException If the database file can't be mapped
+	 */
+	public void setUsed(final int index, final boolean used) throws IOException {
+		final int offset = mapRecord(index);
+		final int flags = mapping.get(offset + FLAGS_OFFSET);
+		mapping.put(offset + FLAGS_OFFSET, (byte)(used? flags | USED_FLAG : flags & ~USED_FLAG));
+		usedIndex.set(index, used);
+	}
+	
+	/**
+	 * Make all of the changes durable, including the stored puzzle count
+	 * 
+	 * @throws IOException If the changes can't be written
+	 */
+	public void flush() throws IOException {
+		if(mapping != null) {
+			mapping.force();
+		}
+		final ByteBuffer count = ByteBuffer.allocate(Long.BYTES);
+		count.putLong(0, puzzleCount);
+		channel.write(count, COUNT_OFFSET);
+		channel.force(false);
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		}
+		finally {
+			mapping = null;
+			channel.close();
+		}
+	}
+	
+	private void buildIndexes() throws IOException {
+		for(int index = 0; index < puzzleCount; ++index) {
+			final int offset = mapRecord(index);
+			
+			addToIndexes(index, toGrading(mapping.get(offset + GRADING_OFFSET)),
+					toSymmetry(mapping.get(offset + SYMMETRY_OFFSET)),
+					mapping.get(offset + DIMENSION_OFFSET), mapping.getShort(offset + CLUE_COUNT_OFFSET));
+			
+			if((mapping.get(offset + FLAGS_OFFSET) & USED_FLAG) != 0) {
+				usedIndex.set(index);
+			}
+		}
+	}
+	
+	private void addToIndexes(final int index, final Grading grading, final Symmetry symmetry,
+			final int dimension, final int clueCount) {
+		if(grading != null) {
+			gradingIndex.computeIfAbsent(grading, key -> new BitSet()).set(index);
+		}
+		if(symmetry != null) {
+			symmetryIndex.computeIfAbsent(symmetry, key -> new BitSet()).set(index);
+		}
+		dimensionIndex.computeIfAbsent(dimension, key -> new BitSet()).set(index);
+		clueCountIndex.computeIfAbsent(clueCount, key -> new BitSet()).set(index);
+	}
+	
+	//A stored grading or symmetry out of range (a damaged record) is treated as unknown
+	private static Grading toGrading(final int grading) {
+		final Grading[] gradings = Grading.values();
+		return grading >= 0 && grading < gradings.length? gradings[grading] : null;
+	}
+	
+	private static Symmetry toSymmetry(final int symmetry) {
+		final Symmetry[] symmetries = Symmetry.values();
+		return symmetry >= 0 && symmetry < symmetries.length? symmetries[symmetry] : null;
+	}
+	
+	private static <T> BitSet getIndex(final Map<T, BitSet> index, final T key) {
+		final BitSet matches = index.get(key);
+		return matches != null? matches : new BitSet();
+	}
+	
+	//Map the window holding a record and return the record's offset within it
+	private int mapRecord(final int index) throws IOException {
+		if(index < 0 || index >= puzzleCount) {
+			throw new IndexOutOfBoundsException("No puzzle at index " + index);
+		}
+		if(mapping == null || index < mappingFirstRecord || index >= mappingFirstRecord + mappedRecordCount) {
+			if(mapping != null) {
+				mapping.force();
+			}
+			mappingFirstRecord = index - index % recordsPerMapping;
+			mappedRecordCount = Math.min(recordsPerMapping, puzzleCount - mappingFirstRecord);
+			mapping = channel.map(MapMode.READ_WRITE, getRecordPosition(mappingFirstRecord),
+					(long)mappedRecordCount * recordSize);
+		}
+		return (index - mappingFirstRecord) * recordSize;
+	}
+	
+	private long getRecordPosition(final int index) {
+		return HEADER_SIZE + (long)index * recordSize;
+	}
+	
+	private static int countClues(final int[] puzzle) {
+		int clueCount = 0;
+		for(final int value : puzzle) {
+			if(value > 0) {
+				++clueCount;
+			}
+		}
+		return clueCount;
+	}
+}
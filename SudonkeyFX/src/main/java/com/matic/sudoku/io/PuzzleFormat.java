@@ -0,0 +1,66 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io;
+
+import com.matic.sudoku.Resources;
+
+/**
+ * Plain text puzzle collection formats that puzzles can be exported to
+ * 
+ * @author vedran
+ *
+ */
+public enum PuzzleFormat {
+	//All of the puzzle's cells on a single line
+	ONE_LINE(Resources.getTranslation("format.one_line"), "txt"),
+	//Sadman and SudoCue, one line per puzzle row and a [Puzzle] section header
+	SDK(Resources.getTranslation("format.sdk"), "sdk"),
+	//Simple Sudoku, one line per puzzle row with box separators
+	SIMPLE_SUDOKU(Resources.getTranslation("format.simple_sudoku"), "ss");
+	
+	private final String description;
+	private final String extension;
+	
+	PuzzleFormat(final String description, final String extension) {
+		this.description = description;
+		this.extension = extension;
+	}
+	
+	public String getDescription() {
+		return description;
+	}
+	
+	public String getExtension() {
+		return extension;
+	}
+	
+	public static PuzzleFormat fromString(final String format) {
+		if(format != null) {
+			for(final PuzzleFormat type : PuzzleFormat.values()) {
+				if(type.description.equals(format)) {
+					return type;
+				}
+			}
+		}
+		throw new IllegalArgumentException(
+				"No puzzle format with description " + format + " found");
+	}
+}
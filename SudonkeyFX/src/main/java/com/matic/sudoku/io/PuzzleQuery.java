@@ -0,0 +1,105 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io;
+
+import com.matic.sudoku.generator.Generator.Symmetry;
+import com.matic.sudoku.logic.LogicSolver.Grading;
+
+/**
+ * Criteria for selecting puzzles from a puzzle database. Criteria left unset
+ * (null gradings and symmetries, a dimension of 0) match any puzzle.
+ * 
+ * @author vedran
+ *
+ */
+public class PuzzleQuery {
+	
+	//Matches puzzles of any dimension
+	public static final int ANY_DIMENSION = 0;
+	
+	private final Grading grading;
+	private final Symmetry symmetry;
+	
+	private final int dimension;
+	private final int minClueCount;
+	private final int maxClueCount;
+	
+	private final boolean unusedOnly;
+	private final int limit;
+	
+	/**
+	 * Create a new query
+	 * 
+	 * @param grading Grading of the matched puzzles, or null for any grading
+	 * @param symmetry Symmetry of the matched puzzles, or null for any symmetry
+	 * @param dimension Dimension of the matched puzzles, or ANY_DIMENSION
+	 * @param minClueCount Minimum number of clues (givens) of the matched puzzles
+	 * @param maxClueCount Maximum number of clues (givens) of the matched puzzles
+	 * @param unusedOnly Whether to match only the puzzles not yet marked as used
+	 * @param limit Maximum number of puzzles to return
+	 */
+	public PuzzleQuery(final Grading grading, final Symmetry symmetry, final int dimension,
+			final int minClueCount, final int maxClueCount, final boolean unusedOnly, final int limit) {
+		this.grading = grading;
+		this.symmetry = symmetry;
+		this.dimension = dimension;
+		this.minClueCount = minClueCount;
+		this.maxClueCount = maxClueCount;
+		this.unusedOnly = unusedOnly;
+		this.limit = limit;
+	}
+
+	public Grading getGrading() {
+		return grading;
+	}
+
+	public Symmetry getSymmetry() {
+		return symmetry;
+	}
+
+	public int getDimension() {
+		return dimension;
+	}
+
+	public int getMinClueCount() {
+		return minClueCount;
+	}
+
+	public int getMaxClueCount() {
+		return maxClueCount;
+	}
+
+	public boolean isUnusedOnly() {
+		return unusedOnly;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	@Override
+	public String toString() {
+		return "PuzzleQuery [grading=" + grading + ", symmetry=" + symmetry
+				+ ", dimension=" + dimension + ", minClueCount=" + minClueCount
+				+ ", maxClueCount=" + maxClueCount + ", unusedOnly=" + unusedOnly
+				+ ", limit=" + limit + "]";
+	}
+}
@@ -0,0 +1,251 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A streaming decoder for the plain text puzzle formats (one puzzle per line, SadMan,
+ * SudoCue and Simple Sudoku). Bytes are fed one at a time, so puzzles can be decoded
+ * straight from (mapped) file content without creating any Strings.
+ * 
+ * The decoder doesn't need to know the exact format. It collects cell symbols until
+ * a whole puzzle has been read and skips everything else: SadMan section headers,
+ * SudoCue comments, Simple Sudoku box separators and any text following a puzzle on
+ * its last line (such as ratings in one-line collections). Cell symbols are only
+ * collected outside of any section or within a [Puzzle] section, so that other
+ * sections (such as the SadMan [State] section) aren't decoded as puzzles.
+ * 
+ * @author vedran
+ *
+ */
+public class PuzzleTextDecoder {
+	
+	//Decoder states
+	private static final int LINE_START = 0;
+	private static final int LINE_CONTENT = 1;
+	private static final int SKIP_LINE = 2;
+	private static final int SECTION_HEADER = 3;
+	
+	private static final byte COMMENT_START = '#';
+	private static final byte SECTION_HEADER_START = '[';
+	private static final byte SECTION_HEADER_END = ']';
+	
+	//Name of the section holding a puzzle, matched regardless of its case
+	private static final byte[] PUZZLE_SECTION_NAME = {'p', 'u', 'z', 'z', 'l', 'e'};
+	
+	//Marks bytes that aren't cell symbols in the symbol value table
+	private static final byte NO_VALUE = -1;
+	
+	//Cell value of each byte, or NO_VALUE for bytes to be skipped
+	private final byte[] symbolValues = new byte[256];
+	
+	private final int[] cells;
+	private final int dimension;
+	
+	private int cellCount;
+	private int state;
+	
+	//Whether cell symbols are collected in the current section
+	private boolean isPuzzleSection;
+	
+	//How much of the current section header matches the puzzle section name, or -1 if none
+	private int sectionNameMatch;
+	
+	/**
+	 * Create a decoder for puzzles of the given size
+	 * 
+	 * @param dimension Puzzle dimension (3 for a 9x9 puzzle)
+	 */
+	public PuzzleTextDecoder(final int dimension) {
+		this.dimension = dimension;
+		final int unit = dimension * dimension;
+		cells = new int[unit * unit];
+		
+		Arrays.fill(symbolValues, NO_VALUE);
+		symbolValues['.'] = 0;
+		symbolValues['0'] = 0;
+		symbolValues['*'] = 0;
+		
+		for(int value = 1; value <= Math.min(unit, 9); ++value) {
+			symbolValues['0' + value] = (byte)value;
+		}
+		if(unit > 9) {
+			for(int value = 1; value <= unit; ++value) {
+				symbolValues['A' + value - 1] = (byte)value;
+				symbolValues['a' + value - 1] = (byte)value;
+			}
+		}
+		reset();
+	}
+	
+	/**
+	 * Guess the dimension of the puzzles in a collection from the first line holding
+	 * cell symbols. The buffer's position is left unchanged.
+	 * 
+	 * @param content Beginning of the collection content
+	 * @return Guessed puzzle dimension, 9x9 if there is no better guess
+	 */
+	public static int detectDimension(final ByteBuffer content) {
+		int symbolCount = 0;
+		boolean hasLargeSymbols = false;
+		boolean skipLine = false;
+		boolean lineStart = true;
+		
+		for(int i = content.position(); i < content.limit(); ++i) {
+			final byte symbol = content.get(i);
+			if(symbol == '\n' || symbol == '\r') {
+				if(symbolCount > 0) {
+					break;
+				}
+				lineStart = true;
+				skipLine = false;
+				continue;
+			}
+			if(skipLine) {
+				continue;
+			}
+			if(symbol == COMMENT_START || (lineStart && symbol == SECTION_HEADER_START)) {
+				if(symbolCount > 0) {
+					break;
+				}
+				skipLine = true;
+				continue;
+			}
+			lineStart = false;
+			
+			if((symbol >= 'A' && symbol <= 'P') || (symbol >= '5' && symbol <= '9')) {
+				hasLargeSymbols = true;
+				++symbolCount;
+			}
+			else if((symbol >= '0' && symbol <= '4') || symbol == '.' || symbol == '*') {
+				++symbolCount;
+			}
+		}
+		
+		//Either a whole puzzle on one line, or a single row of a puzzle
+		if(symbolCount >= 256) {
+			return 4;
+		}
+		if(symbolCount == 16) {
+			return hasLargeSymbols? 4 : 2;
+		}
+		return symbolCount == 4? 2 : 3;
+	}
+	
+	public int getDimension() {
+		return dimension;
+	}
+	
+	/**
+	 * Decode the next byte of content
+	 * 
+	 * @param symbol Byte to decode
+	 * @return true if the byte completed a puzzle, available through getCells()
+	 */
+	public boolean decode(final byte symbol) {
+		if(symbol == '\n' || symbol == '\r') {
+			state = LINE_START;
+			return false;
+		}
+		
+		if(state == LINE_START) {
+			if(symbol == SECTION_HEADER_START) {
+				//A new section starts, discard any puzzle left incomplete by the previous one
+				cellCount = 0;
+				sectionNameMatch = 0;
+				state = SECTION_HEADER;
+				return false;
+			}
+			state = isPuzzleSection? LINE_CONTENT : SKIP_LINE;
+		}
+		
+		switch(state) {
+		case SKIP_LINE:
+			return false;
+		case SECTION_HEADER:
+			matchSectionName(symbol);
+			return false;
+		default:
+			if(symbol == COMMENT_START) {
+				state = SKIP_LINE;
+				return false;
+			}
+			final int value = symbolValues[symbol & 0xff];
+			if(value == NO_VALUE) {
+				return false;
+			}
+			cells[cellCount++] = value;
+			if(cellCount < cells.length) {
+				return false;
+			}
+			
+			//Ignore anything following a puzzle on its last line
+			cellCount = 0;
+			state = SKIP_LINE;
+			return true;
+		}
+	}
+	
+	/**
+	 * Check whether no symbols of a puzzle have been decoded since the last completed one
+	 * 
+	 * @return true if no puzzle is being decoded
+	 */
+	public boolean isIdle() {
+		return cellCount == 0;
+	}
+	
+	/**
+	 * Get the cell values of the most recently completed puzzle. The returned array is
+	 * reused by the decoder, so it's only valid until the next puzzle is decoded.
+	 * 
+	 * @return Cell values (0 for empty cells), row by row
+	 */
+	public int[] getCells() {
+		return cells;
+	}
+	
+	/**
+	 * Discard any partially decoded puzzle and continue as if at the start of a line
+	 * within a puzzle section
+	 */
+	public void reset() {
+		cellCount = 0;
+		state = LINE_START;
+		isPuzzleSection = true;
+	}
+	
+	private void matchSectionName(final byte symbol) {
+		if(symbol == SECTION_HEADER_END) {
+			isPuzzleSection = sectionNameMatch == PUZZLE_SECTION_NAME.length;
+			state = SKIP_LINE;
+		}
+		else if(sectionNameMatch >= 0 && sectionNameMatch < PUZZLE_SECTION_NAME.length &&
+				(symbol | 0x20) == PUZZLE_SECTION_NAME[sectionNameMatch]) {
+			++sectionNameMatch;
+		}
+		else {
+			sectionNameMatch = -1;
+		}
+	}
+}
@@ -0,0 +1,172 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io;
+
+import java.nio.ByteBuffer;
+
+import com.matic.sudoku.Resources;
+
+/**
+ * Encodes puzzles in one of the plain text puzzle formats, directly into byte
+ * buffers. Values up to 9 are written as digits and values of larger puzzles
+ * as letters (A - P), while empty cells are written as dots.
+ * 
+ * Solutions are kept apart from the puzzles by section headers, which the puzzle decoder
+ * skips along with their content. In the SDK format each solution is given a [Solution]
+ * section, while in the other formats all of the solutions follow a [Solutions] header.
+ * 
+ * @author vedran
+ *
+ */
+public final class PuzzleTextEncoder {
+	
+	//Header line preceding each puzzle in the SDK format
+	private static final byte[] SDK_SECTION_HEADER = {'[', 'P', 'u', 'z', 'z', 'l', 'e', ']', '\n'};
+	
+	//Header line preceding each solution in the SDK format
+	private static final byte[] SDK_SOLUTION_SECTION_HEADER = {'[', 'S', 'o', 'l', 'u', 't', 'i', 'o', 'n', 
+			']', '\n'};
+	
+	//Header line preceding all of the solutions in the other formats
+	private static final byte[] SOLUTIONS_SECTION_HEADER = {'[', 'S', 'o', 'l', 'u', 't', 'i', 'o', 'n', 
+			's', ']', '\n'};
+	
+	private static final byte EMPTY_CELL_SYMBOL = (byte)Resources.ZERO_DOT_FORMAT;
+	private static final byte BOX_COLUMN_SEPARATOR = '|';
+	private static final byte BOX_ROW_SEPARATOR = '-';
+	private static final byte BOX_CROSS_SEPARATOR = '+';
+	private static final byte LINE_SEPARATOR = '\n';
+	
+	//Prevent instantiation of this class
+	private PuzzleTextEncoder() {}
+	
+	/**
+	 * Get the maximum number of bytes a puzzle or a solution occupies when encoded
+	 * 
+	 * @param format Target format
+	 * @param dimension Puzzle dimension (3 for a 9x9 puzzle)
+	 * @return Encoded puzzle size, in bytes
+	 */
+	public static int getEncodedSize(final PuzzleFormat format, final int dimension) {
+		final int unit = dimension * dimension;
+		switch(format) {
+		case SDK:
+			return SDK_SOLUTION_SECTION_HEADER.length + unit * (unit + 1);
+		case SIMPLE_SUDOKU:
+			//Rows and box separator lines (with separators and line feeds), followed by an empty line
+			return SOLUTIONS_SECTION_HEADER.length + (unit + dimension - 1) * (unit + dimension) + 1;
+		default:
+			return SOLUTIONS_SECTION_HEADER.length + unit * unit + 1;
+		}
+	}
+	
+	/**
+	 * Encode a puzzle into a buffer, which must have at least getEncodedSize() bytes remaining
+	 * 
+	 * @param format Target format
+	 * @param dimension Puzzle dimension (3 for a 9x9 puzzle)
+	 * @param cells Cell values (0 for empty cells), row by row
+	 * @param target Buffer to encode the puzzle into
+	 */
+	public static void encode(final PuzzleFormat format, final int dimension, final int[] cells,
+			final ByteBuffer target) {
+		encode(format, dimension, cells, SDK_SECTION_HEADER, target);
+	}
+	
+	/**
+	 * Encode a solution into a buffer, which must have at least getEncodedSize() bytes remaining
+	 * 
+	 * @param format Target format
+	 * @param dimension Puzzle dimension (3 for a 9x9 puzzle)
+	 * @param cells Solution values, row by row
+	 * @param isFirst Whether this is the first solution following the puzzles
+	 * @param target Buffer to encode the solution into
+	 */
+	public static void encodeSolution(final PuzzleFormat format, final int dimension, final int[] cells,
+			final boolean isFirst, final ByteBuffer target) {
+		if(isFirst && format != PuzzleFormat.SDK) {
+			target.put(SOLUTIONS_SECTION_HEADER);
+		}
+		encode(format, dimension, cells, SDK_SOLUTION_SECTION_HEADER, target);
+	}
+	
+	private static void encode(final PuzzleFormat format, final int dimension, final int[] cells,
+			final byte[] sdkSectionHeader, final ByteBuffer target) {
+		final int unit = dimension * dimension;
+		switch(format) {
+		case SDK:
+			target.put(sdkSectionHeader);
+			for(int row = 0, cell = 0; row < unit; ++row) {
+				for(int col = 0; col < unit; ++col) {
+					target.put(toSymbol(cells[cell++], unit));
+				}
+				target.put(LINE_SEPARATOR);
+			}
+			break;
+		case SIMPLE_SUDOKU:
+			for(int row = 0, cell = 0; row < unit; ++row) {
+				if(row > 0 && row % dimension == 0) {
+					putBoxRowSeparator(dimension, target);
+				}
+				for(int col = 0; col < unit; ++col) {
+					if(col > 0 && col % dimension == 0) {
+						target.put(BOX_COLUMN_SEPARATOR);
+					}
+					target.put(toSymbol(cells[cell++], unit));
+				}
+				target.put(LINE_SEPARATOR);
+			}
+			target.put(LINE_SEPARATOR);
+			break;
+		default:
+			for(int cell = 0; cell < unit * unit; ++cell) {
+				target.put(toSymbol(cells[cell], unit));
+			}
+			target.put(LINE_SEPARATOR);
+		}
+	}
+	
+	/**
+	 * Get the symbol a cell value is encoded as
+	 * 
+	 * @param value Cell value (0 for an empty cell)
+	 * @param unit Number of symbols in the puzzle (9 for a 9x9 puzzle)
+	 * @return Encoded symbol
+	 */
+	public static byte toSymbol(final int value, final int unit) {
+		if(value == 0) {
+			return EMPTY_CELL_SYMBOL;
+		}
+		return (byte)(unit > 9? 'A' + value - 1 : '0' + value);
+	}
+	
+	private static void putBoxRowSeparator(final int dimension, final ByteBuffer target) {
+		for(int box = 0; box < dimension; ++box) {
+			if(box > 0) {
+				target.put(BOX_CROSS_SEPARATOR);
+			}
+			for(int i = 0; i < dimension; ++i) {
+				target.put(BOX_ROW_SEPARATOR);
+			}
+		}
+		target.put(LINE_SEPARATOR);
+	}
+}
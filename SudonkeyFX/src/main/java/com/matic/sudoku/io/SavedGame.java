@@ -0,0 +1,248 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+
+import com.matic.sudoku.guifx.board.BoardColors;
+import com.matic.sudoku.guifx.board.Cell;
+import com.matic.sudoku.guifx.board.GameBoard;
+
+/**
+ * The content of a game board, as stored in a saved game file. Unlike the puzzle
+ * collection formats, a saved game keeps everything the player has done: entered
+ * digits (apart from the givens), pencilmarks and cell colors.
+ * 
+ * @author vedran
+ *
+ */
+public class SavedGame {
+	
+	//File extension of saved games
+	public static final String EXTENSION = "sdg";
+	
+	//Identifies a saved game file and its version
+	private static final int SAVED_GAME_MAGIC = 0x53444b05;
+	
+	private static final int GIVEN_FLAG = 1;
+	
+	private final Cell[][] cells;
+	private final int dimension;
+	
+	//Identifies an autosave snapshot and its journal, 0 for games saved by the player
+	private final long generation;
+	
+	/**
+	 * Create a saved game
+	 * 
+	 * @param dimension Board dimension (3 for a 9x9 board)
+	 * @param cells Board cells, indexed by column and row
+	 */
+	public SavedGame(final int dimension, final Cell[][] cells) {
+		this(dimension, cells, 0);
+	}
+	
+	/**
+	 * Create a saved game used as an autosave snapshot
+	 * 
+	 * @param dimension Board dimension (3 for a 9x9 board)
+	 * @param cells Board cells, indexed by column and row
+	 * @param generation Snapshot generation, matching the one of its journal
+	 */
+	public SavedGame(final int dimension, final Cell[][] cells, final long generation) {
+		this.dimension = dimension;
+		this.cells = cells;
+		this.generation = generation;
+	}
+	
+	/**
+	 * Create a new game from a puzzle, with all of its values as givens
+	 * 
+	 * @param dimension Puzzle dimension (3 for a 9x9 puzzle)
+	 * @param puzzle Cell values (0 for empty cells), row by row
+	 * @return New game
+	 */
+	public static SavedGame fromPuzzle(final int dimension, final int[] puzzle) {
+		final int unit = dimension * dimension;
+		final Cell[][] cells = createCells(unit);
+		
+		for(int row = 0; row < unit; ++row) {
+			for(int column = 0; column < unit; ++column) {
+				final int value = puzzle[row * unit + column];
+				cells[column][row].setDigit(value);
+				cells[column][row].setGiven(value > 0);
+			}
+		}
+		return new SavedGame(dimension, cells);
+	}
+	
+	/**
+	 * Check whether a file holds a saved game
+	 * 
+	 * @param path File path
+	 * @return true if the file starts with the saved game magic number
+	 * @throws IOException If the file can't be read
+	 */
+	public static boolean isSavedGameFile(final Path path) throws IOException {
+		try(final DataInputStream input = new DataInputStream(Files.newInputStream(path))) {
+			return input.readInt() == SAVED_GAME_MAGIC;
+		}
+		catch(final EOFException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Read the generation of a saved game, without loading the game
+	 * 
+	 * @param path Saved game file path
+	 * @return Saved game's generation
+	 * @throws IOException If the file can't be read or doesn't hold a saved game
+	 */
+	public static long readGeneration(final Path path) throws IOException {
+		try(final DataInputStream input = new DataInputStream(Files.newInputStream(path))) {
+			readDimension(input, path);
+			return input.readLong();
+		}
+	}
+	
+	/**
+	 * Load a saved game
+	 * 
+	 * @param path Saved game file path
+	 * @return Loaded game
+	 * @throws IOException If the file can't be read or doesn't hold a (valid) saved game
+	 */
+	public static SavedGame load(final Path path) throws IOException {
+		try(final DataInputStream input = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(path)))) {
+			final int dimension = readDimension(input, path);
+			final long generation = input.readLong();
+			final int unit = dimension * dimension;
+			final Cell[][] cells = createCells(unit);
+			
+			for(int row = 0; row < unit; ++row) {
+				for(int column = 0; column < unit; ++column) {
+					final Cell cell = cells[column][row];
+					final int digit = input.readUnsignedByte();
+					if(digit > unit) {
+						throw new IOException("Damaged saved game: " + path);
+					}
+					cell.setDigit(digit);
+					cell.setGiven((input.readUnsignedByte() & GIVEN_FLAG) != 0);
+					cell.setBackgroundColorIndex(input.readUnsignedByte());
+					cell.setPencilmarks(BitSet.valueOf(new long[] {input.readUnsignedShort()}));
+				}
+			}
+			return new SavedGame(dimension, cells, generation);
+		}
+	}
+	
+	/**
+	 * Store this game, replacing the target file. The game is first written to a
+	 * temporary file, so that a failed or cancelled save leaves the target intact.
+	 * 
+	 * @param path Saved game file path
+	 * @throws IOException If the game can't be written
+	 */
+	public void store(final Path path) throws IOException {
+		final Path tempPath = Paths.get(path.toString() + ".tmp");
+		try {
+			try(final DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+				output.writeInt(SAVED_GAME_MAGIC);
+				output.writeInt(dimension);
+				output.writeLong(generation);
+				
+				final int unit = dimension * dimension;
+				for(int row = 0; row < unit; ++row) {
+					for(int column = 0; column < unit; ++column) {
+						final Cell cell = cells[column][row];
+						final long[] pencilmarks = cell.getPencilmarks().toLongArray();
+						
+						output.writeByte(cell.getDigit());
+						output.writeByte(cell.isGiven()? GIVEN_FLAG : 0);
+						output.writeByte(cell.getBackgroundColorIndex());
+						output.writeShort(pencilmarks.length > 0? (int)pencilmarks[0] : 0);
+					}
+				}
+			}
+			Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch(final IOException e) {
+			Files.deleteIfExists(tempPath);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Create a copy of this game, with cells that can be edited independently
+	 * 
+	 * @return Copied game
+	 */
+	public SavedGame copy() {
+		return new SavedGame(dimension, Cell.copyOf(cells), generation);
+	}
+	
+	public int getDimension() {
+		return dimension;
+	}
+	
+	public long getGeneration() {
+		return generation;
+	}
+	
+	public Cell[][] getCells() {
+		return cells;
+	}
+	
+	//Read the magic number and the dimension, checking that both are valid
+	private static int readDimension(final DataInputStream input, final Path path) throws IOException {
+		if(input.readInt() != SAVED_GAME_MAGIC) {
+			throw new IOException("Not a saved game: " + path);
+		}
+		final int dimension = input.readInt();
+		if(dimension < GameBoard.DIMENSION_4x4 || dimension > GameBoard.DIMENSION_16x16) {
+			throw new IOException("Unsupported board dimension " + dimension + " in " + path);
+		}
+		return dimension;
+	}
+	
+	private static Cell[][] createCells(final int unit) {
+		final Cell[][] cells = new Cell[unit][unit];
+		for(int i = 0; i < unit; ++i) {
+			for(int j = 0; j < unit; ++j) {
+				cells[i][j] = new Cell(0, BoardColors.NORMAL_FONT_COLOR);
+			}
+		}
+		return cells;
+	}
+}
@@ -0,0 +1,56 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+package com.matic.sudoku.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A reader going through the puzzles of a collection from its start to its end
+ * 
+ * @author vedran
+ *
+ */
+public interface SequentialPuzzleReader extends Closeable {
+	
+	/**
+	 * Open a compressed (gzip) collection or a plain text collection
+	 * 
+	 * @param path Path to the collection file
+	 * @return Reader for the collection
+	 * @throws IOException If the file can't be opened
+	 */
+	static SequentialPuzzleReader open(final Path path) throws IOException {
+		return CompressedInput.isCompressed(path)? new CompressedPuzzleReader(path) : 
+			new PuzzleCollectionReader(path);
+	}
+	
+	int getDimension();
+	
+	/**
+	 * Read the next puzzle in the collection
+	 * 
+	 * @param cells Target for the puzzle's cell values (0 for empty cells), row by row
+	 * @return true if a puzzle was read, false if the end of the collection was reached
+	 * @throws IOException If the collection can't be read
+	 */
+	boolean read(int[] cells) throws IOException;
+}
@@ -0,0 +1,264 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+package com.matic.sudoku.io.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.matic.sudoku.io.CompressedInput;
+
+/**
+ * The output file of an export writer. Plain files are written through a file channel
+ * as they are, while files with the gzip extension are compressed while being written.
+ * 
+ * A compressed file is written as a sequence of gzip members, the current one being
+ * finished whenever the output is made durable. A compressed export can thus be resumed
+ * from any durable position, by starting a new member there (gzip readers read the
+ * concatenated members as a single stream).
+ * 
+ * @author vedran
+ *
+ */
+final class ExportChannel implements Closeable {
+	
+	//Size (in bytes) of the buffer compressed output is collected in
+	private static final int DEFLATE_BUFFER_SIZE = 256 * 1024;
+	
+	//Gzip member header: magic, deflate method, no flags, no time, unknown OS
+	private static final byte[] GZIP_HEADER = {0x1f, (byte)0x8b, 8, 0, 0, 0, 0, 0, 0, (byte)0xff};
+	
+	//CRC-32 and uncompressed size (modulo 2^32) of a member's data
+	private static final int GZIP_TRAILER_SIZE = 8;
+	
+	private final FileChannel channel;
+	
+	//Compression state, all null for plain output
+	private final Deflater deflater;
+	private final CRC32 checksum;
+	private final ByteBuffer deflateBuffer;
+	
+	//How many bytes the current gzip member holds before compression, or -1 if not started
+	private long memberSize = -1;
+	
+	private ExportChannel(final FileChannel channel, final boolean compressed) {
+		this.channel = channel;
+		if(compressed) {
+			deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			checksum = new CRC32();
+			deflateBuffer = ByteBuffer.allocate(DEFLATE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		else {
+			deflater = null;
+			checksum = null;
+			deflateBuffer = null;
+		}
+	}
+	
+	/**
+	 * Open an output file, compressing it if its name has the gzip extension. Existing
+	 * file content is kept until the output is positioned.
+	 * 
+	 * @param path Output file path
+	 * @return Opened output
+	 * @throws IOException If the output file can't be opened
+	 */
+	static ExportChannel open(final Path path) throws IOException {
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, 
+				StandardOpenOption.WRITE);
+		return new ExportChannel(channel, CompressedInput.hasCompressedExtension(path));
+	}
+	
+	boolean isCompressed() {
+		return deflater != null;
+	}
+	
+	/**
+	 * Allocate a buffer for collecting the output in. Plain output is written from direct
+	 * buffers, while compressed output is deflated from the buffer's backing array.
+	 * 
+	 * @param size Buffer size (in bytes)
+	 * @return Allocated buffer
+	 */
+	ByteBuffer allocateBuffer(final int size) {
+		return isCompressed()? ByteBuffer.allocate(size) : ByteBuffer.allocateDirect(size);
+	}
+	
+	/**
+	 * Write all of the buffer's remaining bytes
+	 * 
+	 * @param buffer Bytes to write
+	 * @throws IOException If the bytes can't be written
+	 */
+	void write(final ByteBuffer buffer) throws IOException {
+		if(!isCompressed()) {
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			return;
+		}
+		final int length = buffer.remaining();
+		if(length == 0) {
+			return;
+		}
+		if(memberSize < 0) {
+			startMember();
+		}
+		
+		final byte[] input;
+		final int offset;
+		if(buffer.hasArray()) {
+			input = buffer.array();
+			offset = buffer.arrayOffset() + buffer.position();
+			buffer.position(buffer.limit());
+		}
+		else {
+			input = new byte[length];
+			offset = 0;
+			buffer.get(input);
+		}
+		
+		checksum.update(input, offset, length);
+		memberSize += length;
+		deflater.setInput(input, offset, length);
+		while(!deflater.needsInput()) {
+			deflate();
+		}
+	}
+	
+	/**
+	 * Overwrite previously written bytes. Compressed output can't be changed once written.
+	 * 
+	 * @param bytes Bytes to write
+	 * @param position File offset to write the bytes at
+	 * @return true if the bytes were written, false if the output is compressed
+	 * @throws IOException If the bytes can't be written
+	 */
+	boolean update(final ByteBuffer bytes, final long position) throws IOException {
+		if(isCompressed()) {
+			return false;
+		}
+		long offset = position;
+		while(bytes.hasRemaining()) {
+			offset += channel.write(bytes, offset);
+		}
+		return true;
+	}
+	
+	/**
+	 * Discard any output past the given file offset and continue writing from it.
+	 * Any unfinished compressed output is discarded as well.
+	 * 
+	 * @param position File offset previously returned by sync()
+	 * @throws IOException If the output can't be repositioned
+	 */
+	void seek(final long position) throws IOException {
+		if(isCompressed()) {
+			deflater.reset();
+			checksum.reset();
+			deflateBuffer.clear();
+			memberSize = -1;
+		}
+		channel.truncate(position);
+		channel.position(position);
+	}
+	
+	/**
+	 * Make all of the output written so far durable, finishing the current gzip member
+	 * of compressed output
+	 * 
+	 * @return File offset at which the output continues
+	 * @throws IOException If the output can't be written
+	 */
+	long sync() throws IOException {
+		if(isCompressed()) {
+			finishMember();
+		}
+		channel.force(false);
+		return channel.position();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		try {
+			if(isCompressed()) {
+				finishMember();
+			}
+		}
+		finally {
+			if(isCompressed()) {
+				deflater.end();
+			}
+			channel.close();
+		}
+	}
+	
+	private void startMember() throws IOException {
+		if(deflateBuffer.remaining() < GZIP_HEADER.length) {
+			flushDeflateBuffer();
+		}
+		deflateBuffer.put(GZIP_HEADER);
+		memberSize = 0;
+	}
+	
+	private void finishMember() throws IOException {
+		if(memberSize < 0) {
+			return;
+		}
+		deflater.finish();
+		while(!deflater.finished()) {
+			deflate();
+		}
+		if(deflateBuffer.remaining() < GZIP_TRAILER_SIZE) {
+			flushDeflateBuffer();
+		}
+		deflateBuffer.putInt((int)checksum.getValue());
+		deflateBuffer.putInt((int)memberSize);
+		flushDeflateBuffer();
+		
+		deflater.reset();
+		checksum.reset();
+		memberSize = -1;
+	}
+	
+	private void deflate() throws IOException {
+		final int position = deflateBuffer.position();
+		final int count = deflater.deflate(deflateBuffer.array(), deflateBuffer.arrayOffset() + position,
+				deflateBuffer.remaining(), Deflater.NO_FLUSH);
+		deflateBuffer.position(position + count);
+		if(!deflateBuffer.hasRemaining()) {
+			flushDeflateBuffer();
+		}
+	}
+	
+	private void flushDeflateBuffer() throws IOException {
+		deflateBuffer.flip();
+		while(deflateBuffer.hasRemaining()) {
+			channel.write(deflateBuffer);
+		}
+		deflateBuffer.clear();
+	}
+}
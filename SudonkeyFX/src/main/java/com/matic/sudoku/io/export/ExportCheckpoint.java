@@ -0,0 +1,146 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io.export;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import com.matic.sudoku.guifx.window.PuzzleExporterOptions;
+
+/**
+ * A snapshot of a running export job's progress, periodically stored next to the
+ * export output. It holds the job's random seed (from which every puzzle's own
+ * randomness is derived), the number of puzzles accepted so far and the writer's
+ * output position after the last accepted puzzle. A job started with the same
+ * export options resumes from the stored checkpoint instead of starting over.
+ * 
+ * @author vedran
+ *
+ */
+public class ExportCheckpoint {
+	
+	//File name suffix of the checkpoint file stored next to the output file
+	private static final String CHECKPOINT_FILE_SUFFIX = ".checkpoint";
+	
+	//Identifies a checkpoint file and its version
+	private static final int CHECKPOINT_MAGIC = 0x53444b01;
+	
+	//Identifies the options the job was started with (enum hash codes differ between runs)
+	private final String optionsFingerprint;
+	
+	private final long seed;
+	private final int puzzleCount;
+	private final long outputPosition;
+	
+	public ExportCheckpoint(final PuzzleExporterOptions options, final long seed,
+			final int puzzleCount, final long outputPosition) {
+		this(options.toString(), seed, puzzleCount, outputPosition);
+	}
+	
+	private ExportCheckpoint(final String optionsFingerprint, final long seed,
+			final int puzzleCount, final long outputPosition) {
+		this.optionsFingerprint = optionsFingerprint;
+		this.seed = seed;
+		this.puzzleCount = puzzleCount;
+		this.outputPosition = outputPosition;
+	}
+	
+	/**
+	 * Get the path of the checkpoint file belonging to an export output file
+	 * 
+	 * @param outputPath Path of the export output file
+	 * @return Checkpoint file path
+	 */
+	public static Path getCheckpointPath(final String outputPath) {
+		return Paths.get(outputPath + CHECKPOINT_FILE_SUFFIX);
+	}
+	
+	/**
+	 * Load a previously stored checkpoint
+	 * 
+	 * @param path Path of the checkpoint file
+	 * @param options Options of the export job about to be started
+	 * @return Stored checkpoint, or null if there is none or it was stored for different options
+	 * @throws IOException If the checkpoint exists but can't be read
+	 */
+	public static ExportCheckpoint load(final Path path, final PuzzleExporterOptions options)
+			throws IOException {
+		try(final DataInputStream input = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(path)))) {
+			if(input.readInt() != CHECKPOINT_MAGIC) {
+				return null;
+			}
+			final ExportCheckpoint checkpoint = new ExportCheckpoint(input.readUTF(),
+					input.readLong(), input.readInt(), input.readLong());
+			return checkpoint.optionsFingerprint.equals(options.toString())? checkpoint : null;
+		}
+		catch(final NoSuchFileException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Store this checkpoint, replacing any previously stored one. The checkpoint is
+	 * first written to a temporary file, so that a crash while storing it can't
+	 * leave a partially written checkpoint behind.
+	 * 
+	 * @param path Path of the checkpoint file
+	 * @throws IOException If the checkpoint can't be written
+	 */
+	public void store(final Path path) throws IOException {
+		final Path tempPath = Paths.get(path.toString() + ".tmp");
+		try(final DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+			output.writeInt(CHECKPOINT_MAGIC);
+			output.writeUTF(optionsFingerprint);
+			output.writeLong(seed);
+			output.writeInt(puzzleCount);
+			output.writeLong(outputPosition);
+		}
+		Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public int getPuzzleCount() {
+		return puzzleCount;
+	}
+
+	public long getOutputPosition() {
+		return outputPosition;
+	}
+
+	@Override
+	public String toString() {
+		return "ExportCheckpoint [seed=" + seed + ", puzzleCount=" + puzzleCount
+				+ ", outputPosition=" + outputPosition + "]";
+	}
+}
@@ -0,0 +1,121 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io.export;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.matic.sudoku.logic.LogicSolver.Grading;
+
+/**
+ * Live counters of a running export job. The counters are updated concurrently by
+ * the export workers and can be sampled from any thread, for instance by a progress
+ * view computing throughput for each puzzle grading.
+ * 
+ * @author vedran
+ *
+ */
+public class ExportProgress {
+	
+	//Candidate puzzles created, indexed by targeted grading
+	private final AtomicLongArray generated = new AtomicLongArray(Grading.values().length);
+	
+	//Candidate puzzles graded as the targeted grading, indexed by grading
+	private final AtomicLongArray graded = new AtomicLongArray(Grading.values().length);
+	
+	//Candidate puzzles discarded because of a grading mismatch, indexed by targeted grading
+	private final AtomicLongArray rejected = new AtomicLongArray(Grading.values().length);
+	
+	//Total number of puzzles to be exported
+	private volatile int puzzleCount;
+	
+	//Number of puzzles written so far (including any exported before the job was resumed)
+	private volatile int acceptedCount;
+	
+	//Number of puzzles already exported when this run of the job was started
+	private volatile int resumedCount;
+	
+	//When this run of the job was started (System.nanoTime())
+	private volatile long startTime;
+	
+	void start(final int puzzleCount, final int resumedCount) {
+		this.puzzleCount = puzzleCount;
+		this.resumedCount = resumedCount;
+		acceptedCount = resumedCount;
+		startTime = System.nanoTime();
+	}
+	
+	void onGenerated(final Grading grading) {
+		if(grading != null) {
+			generated.incrementAndGet(grading.ordinal());
+		}
+	}
+	
+	void onGraded(final Grading grading) {
+		if(grading != null) {
+			graded.incrementAndGet(grading.ordinal());
+		}
+	}
+	
+	void onRejected(final Grading grading) {
+		if(grading != null) {
+			rejected.incrementAndGet(grading.ordinal());
+		}
+	}
+	
+	void onAccepted() {
+		++acceptedCount;
+	}
+	
+	public long getGenerated(final Grading grading) {
+		return generated.get(grading.ordinal());
+	}
+	
+	public long getGraded(final Grading grading) {
+		return graded.get(grading.ordinal());
+	}
+	
+	public long getRejected(final Grading grading) {
+		return rejected.get(grading.ordinal());
+	}
+	
+	public int getPuzzleCount() {
+		return puzzleCount;
+	}
+	
+	public int getAcceptedCount() {
+		return acceptedCount;
+	}
+	
+	/**
+	 * Estimate how long it will take to export the remaining puzzles, based on the
+	 * average rate at which puzzles have been accepted since the job was (re)started
+	 * 
+	 * @return Estimated remaining time in milliseconds, or -1 if unknown yet
+	 */
+	public long getEstimatedTimeLeft() {
+		final int acceptedSinceStart = acceptedCount - resumedCount;
+		if(acceptedSinceStart <= 0) {
+			return -1;
+		}
+		final long elapsed = (System.nanoTime() - startTime) / 1000000;
+		return elapsed * (puzzleCount - acceptedCount) / acceptedSinceStart;
+	}
+}
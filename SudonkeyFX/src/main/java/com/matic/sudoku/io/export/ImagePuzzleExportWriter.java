@@ -0,0 +1,240 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io.export;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.matic.sudoku.generator.GeneratorResult;
+import com.matic.sudoku.guifx.board.BoardRasterizer;
+import com.matic.sudoku.io.ImageFileWriter;
+import com.matic.sudoku.io.KeyInputManager.SymbolType;
+
+/**
+ * An export writer producing one image file per puzzle and solution. The files are
+ * named after the output path, followed by the puzzle number (and a suffix for
+ * solutions), for instance puzzles_00001.png and puzzles_00001_solution.png. When more
+ * than one symbol type is allowed, each puzzle (and its solution) gets one of them
+ * depending on its number.
+ * 
+ * Puzzles are copied and rasterized into a fixed pool of reused cell and pixel buffers,
+ * using one rasterizer per symbol type and dimension. Both rasterizing and encoding of
+ * the images run in parallel on all available cores. When all of the buffers are in
+ * use, writing blocks until one of them becomes available again.
+ * 
+ * @author vedran
+ *
+ */
+public class ImagePuzzleExportWriter implements PuzzleExportWriter {
+	
+	//Width and height (in pixels) of the exported images
+	private static final int IMAGE_SIZE = 600;
+	
+	private static final String SOLUTION_SUFFIX = "_solution";
+	private static final String NUMBER_FORMAT = "%05d";
+	
+	private final AtomicReference<IOException> encodingFailure = new AtomicReference<>();
+	
+	private final BlockingQueue<ImageBuffer> imageBuffers;
+	private final ExecutorService encoders;
+	private final int bufferCount;
+	
+	private final List<SymbolType> symbolTypes;
+	private final String extension;
+	private final String basePath;
+	
+	//Rasterizers created so far, by symbol type and dimension
+	private final Map<SymbolType, Map<Integer, BoardRasterizer>> rasterizers = new EnumMap<>(SymbolType.class);
+	
+	//Count of images written so far, used as the output position
+	private long imageCount;
+	
+	/**
+	 * Create a writer for image files named after an output path
+	 * 
+	 * @param path Output path, its extension (if any) is replaced by the image file extension
+	 * @param extension Image file extension, which determines the image format
+	 * @param symbolTypes Symbols the puzzles' cell values may be shown with
+	 */
+	public ImagePuzzleExportWriter(final Path path, final String extension, 
+			final List<SymbolType> symbolTypes) {
+		this.extension = extension;
+		this.symbolTypes = symbolTypes;
+		
+		final String fileName = path.getFileName().toString();
+		final int extensionStart = fileName.lastIndexOf('.');
+		basePath = extensionStart > 0? path.resolveSibling(
+				fileName.substring(0, extensionStart)).toString() : path.toString();
+		
+		final int encoderCount = Runtime.getRuntime().availableProcessors();
+		encoders = Executors.newFixedThreadPool(encoderCount, runnable -> {
+			final Thread encoder = new Thread(runnable, "image-export-worker");
+			encoder.setDaemon(true);
+			return encoder;
+		});
+		
+		//Allow queuing a few images ahead of the workers
+		bufferCount = encoderCount * 2;
+		imageBuffers = new ArrayBlockingQueue<>(bufferCount);
+		for(int i = 0; i < bufferCount; ++i) {
+			imageBuffers.add(new ImageBuffer());
+		}
+	}
+
+	@Override
+	public void writePuzzle(final int number, final GeneratorResult puzzle) throws IOException {
+		writeImage(number, "", puzzle.getDimension(), puzzle.getPuzzle());
+	}
+
+	@Override
+	public void writeSolution(final int number, final int dimension, final int[] solution) 
+			throws IOException {
+		writeImage(number, SOLUTION_SUFFIX, dimension, solution);
+	}
+
+	/**
+	 * Images past the position are overwritten as the export continues, so there
+	 * is no output to discard
+	 */
+	@Override
+	public void seek(final long position) throws IOException {
+		awaitPendingImages();
+		imageCount = position;
+	}
+
+	@Override
+	public long getOutputPosition() throws IOException {
+		awaitPendingImages();
+		return imageCount;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			awaitPendingImages();
+		}
+		finally {
+			encoders.shutdownNow();
+		}
+	}
+	
+	private Path getImagePath(final int number, final String suffix) {
+		return Paths.get(basePath + "_" + String.format(NUMBER_FORMAT, number) + suffix + "." + extension);
+	}
+	
+	private void writeImage(final int number, final String suffix, final int dimension, final int[] cells)
+			throws IOException {
+		checkEncodingFailure();
+		
+		final Path path = getImagePath(number, suffix);
+		final BoardRasterizer rasterizer = getRasterizer(
+				PuzzleExporter.getSymbolType(symbolTypes, number), dimension);
+		
+		//Solutions are passed in a reused array, keep a copy until the image is rasterized
+		final ImageBuffer buffer = takeImageBuffer();
+		if(buffer.cells.length < cells.length) {
+			buffer.cells = new int[cells.length];
+		}
+		System.arraycopy(cells, 0, buffer.cells, 0, cells.length);
+		
+		encoders.execute(() -> {
+			try {
+				rasterizer.renderPuzzle(buffer.cells, buffer.pixels);
+				ImageFileWriter.write(buffer.pixels, IMAGE_SIZE, IMAGE_SIZE, path);
+			}
+			catch(final IOException e) {
+				encodingFailure.compareAndSet(null, e);
+			}
+			catch(final RuntimeException e) {
+				encodingFailure.compareAndSet(null, new IOException("Failed to render an image", e));
+			}
+			finally {
+				imageBuffers.add(buffer);
+			}
+		});
+		++imageCount;
+	}
+	
+	//Symbol masks are rendered when a rasterizer is created, so each one is created only once
+	private BoardRasterizer getRasterizer(final SymbolType symbolType, final int dimension) {
+		Map<Integer, BoardRasterizer> symbolRasterizers = rasterizers.get(symbolType);
+		if(symbolRasterizers == null) {
+			symbolRasterizers = new HashMap<>();
+			rasterizers.put(symbolType, symbolRasterizers);
+		}
+		BoardRasterizer rasterizer = symbolRasterizers.get(dimension);
+		if(rasterizer == null) {
+			rasterizer = new BoardRasterizer(dimension, symbolType, IMAGE_SIZE);
+			symbolRasterizers.put(dimension, rasterizer);
+		}
+		return rasterizer;
+	}
+	
+	private ImageBuffer takeImageBuffer() throws IOException {
+		try {
+			return imageBuffers.take();
+		}
+		catch(final InterruptedException e) {
+			throw new InterruptedIOException("Interrupted while waiting for images to be encoded");
+		}
+	}
+	
+	//Wait until all of the buffers have been returned by the encoders
+	private void awaitPendingImages() throws IOException {
+		final List<ImageBuffer> buffers = new ArrayList<>(bufferCount);
+		try {
+			for(int i = 0; i < bufferCount; ++i) {
+				buffers.add(takeImageBuffer());
+			}
+		}
+		finally {
+			imageBuffers.addAll(buffers);
+		}
+		checkEncodingFailure();
+	}
+	
+	private void checkEncodingFailure() throws IOException {
+		final IOException failure = encodingFailure.get();
+		if(failure != null) {
+			throw failure;
+		}
+	}
+	
+	//Cells of an image and the pixels they are rasterized into, reused from image to image
+	private static final class ImageBuffer {
+		final int[] pixels = new int[IMAGE_SIZE * IMAGE_SIZE];
+		
+		//Grown to the largest puzzle written, smaller puzzles only use its start
+		int[] cells = new int[0];
+	}
+}
@@ -0,0 +1,151 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import com.matic.sudoku.generator.GeneratorResult;
+import com.matic.sudoku.io.PackedPuzzleFormat;
+
+/**
+ * An export writer producing a packed (binary) puzzle collection. Puzzles are packed
+ * into a reused direct buffer, which is written through a file channel whenever it
+ * can't hold another record. Solutions, if any, follow the puzzles as further records.
+ * The puzzle count in the file header is updated whenever the output is made durable.
+ * 
+ * The collection is gzip compressed if the file name has the gzip extension. The header
+ * of a compressed collection is written only once, without a puzzle count.
+ * 
+ * @author vedran
+ *
+ */
+public class PackedPuzzleExportWriter implements PuzzleExportWriter {
+	
+	//Size (in bytes) of the buffer puzzles are packed into
+	private static final int BUFFER_SIZE = 256 * 1024;
+	
+	private final ExportChannel output;
+	private final ByteBuffer buffer;
+	private final int recordSize;
+	private final int dimension;
+	
+	//How many records have been written (including the buffered ones)
+	private long puzzleCount;
+	
+	/**
+	 * Open a writer for the target file. Existing file content is kept until
+	 * the exporter positions the writer.
+	 * 
+	 * @param path Output file path
+	 * @param dimension Dimension of the written puzzles (3 for a 9x9 puzzle)
+	 * @throws IOException If the output file can't be opened
+	 */
+	public PackedPuzzleExportWriter(final Path path, final int dimension) throws IOException {
+		this.dimension = dimension;
+		recordSize = PackedPuzzleFormat.getRecordSize(dimension);
+		output = ExportChannel.open(path);
+		buffer = output.allocateBuffer(BUFFER_SIZE);
+	}
+
+	@Override
+	public void writePuzzle(final int number, final GeneratorResult puzzle) throws IOException {
+		write(puzzle.getPuzzle());
+	}
+
+	@Override
+	public void writeSolution(final int number, final int dimension, final int[] solution)
+			throws IOException {
+		write(solution);
+	}
+	
+	/**
+	 * Write a puzzle record
+	 * 
+	 * @param cells Cell values (0 for empty cells), row by row
+	 * @throws IOException If the buffered records can't be written
+	 */
+	public void write(final int[] cells) throws IOException {
+		if(buffer.remaining() < recordSize) {
+			flush();
+		}
+		PackedPuzzleFormat.pack(dimension, cells, buffer);
+		++puzzleCount;
+	}
+
+	/**
+	 * Position 0 starts a new collection, writing its header
+	 */
+	@Override
+	public void seek(final long position) throws IOException {
+		flush();
+		if(output.isCompressed()) {
+			//A compressed position is a gzip member boundary, unrelated to the record count
+			output.seek(position);
+			if(position == 0) {
+				output.write(createHeader(PackedPuzzleFormat.UNKNOWN_PUZZLE_COUNT));
+			}
+			return;
+		}
+		final long recordsStart = Math.max(position, PackedPuzzleFormat.HEADER_SIZE);
+		
+		output.seek(recordsStart);
+		puzzleCount = (recordsStart - PackedPuzzleFormat.HEADER_SIZE) / recordSize;
+		writeHeader();
+	}
+
+	@Override
+	public long getOutputPosition() throws IOException {
+		flush();
+		writeHeader();
+		return output.sync();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+			writeHeader();
+		}
+		finally {
+			output.close();
+		}
+	}
+	
+	//Update the header in place (not possible for compressed output)
+	private void writeHeader() throws IOException {
+		output.update(createHeader(puzzleCount), 0);
+	}
+	
+	private ByteBuffer createHeader(final long headerPuzzleCount) {
+		final ByteBuffer header = ByteBuffer.allocate(PackedPuzzleFormat.HEADER_SIZE);
+		PackedPuzzleFormat.putHeader(dimension, headerPuzzleCount, header);
+		header.flip();
+		return header;
+	}
+	
+	private void flush() throws IOException {
+		buffer.flip();
+		output.write(buffer);
+		buffer.clear();
+	}
+}
@@ -0,0 +1,215 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file backed store of puzzle solutions. Each solution is packed as one nibble
+ * per cell (value - 1), so that a 9x9 solution occupies 41 bytes and a 16x16
+ * solution 128 bytes. The solutions are spilled to disk as they are appended and
+ * streamed back in the same order, so the memory used by the store does not
+ * depend on the number of stored solutions. A store can either live in a
+ * temporary file or in a named file that survives the store being closed,
+ * which allows an interrupted export to continue with its stored solutions.
+ * 
+ * @author vedran
+ *
+ */
+public class PackedSolutionStore implements Closeable {
+	
+	//Size (in bytes) of the buffer used for both writing and reading solutions
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	
+	//How many cells each solution contains (81 for a 9x9 puzzle)
+	private final int cellCount;
+	
+	//How many bytes a packed solution occupies
+	private final int recordSize;
+	
+	//File offset at which the next buffered solutions will be written
+	private long writePosition;
+	
+	//How many solutions have been appended so far
+	private int size;
+	
+	/**
+	 * Create a new store backed by a temporary file, which is deleted when the store is closed
+	 * 
+	 * @param dimension Dimension of stored solutions (3 for a 9x9 puzzle)
+	 * @throws IOException If the temporary file can't be created
+	 */
+	public PackedSolutionStore(final int dimension) throws IOException {
+		final int unit = dimension * dimension;
+		cellCount = unit * unit;
+		recordSize = (cellCount + 1) / 2;
+		
+		final Path path = Files.createTempFile("sudonkey", ".solutions");
+		channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.DELETE_ON_CLOSE);
+		
+		//Only keep whole records in the buffer
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE - BUFFER_SIZE % recordSize);
+		writePosition = 0;
+		size = 0;
+	}
+	
+	/**
+	 * Open a store backed by a named file, keeping the first solutions already stored in it
+	 * 
+	 * @param dimension Dimension of stored solutions (3 for a 9x9 puzzle)
+	 * @param path Path of the backing file, created if it doesn't exist
+	 * @param keptCount How many of the previously stored solutions to keep
+	 * @throws IOException If the file can't be opened or doesn't contain enough solutions
+	 */
+	public PackedSolutionStore(final int dimension, final Path path, final int keptCount)
+			throws IOException {
+		final int unit = dimension * dimension;
+		cellCount = unit * unit;
+		recordSize = (cellCount + 1) / 2;
+		
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		
+		writePosition = (long)keptCount * recordSize;
+		if(channel.size() < writePosition) {
+			channel.close();
+			throw new IOException("Solution store " + path + " holds fewer than " 
+					+ keptCount + " solutions");
+		}
+		channel.truncate(writePosition);
+		
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE - BUFFER_SIZE % recordSize);
+		size = keptCount;
+	}
+	
+	/**
+	 * Append a solution to the end of this store
+	 * 
+	 * @param solution Solution values (1 - unit), row by row
+	 * @throws IOException If the buffered solutions can't be written to the file
+	 */
+	public void append(final int[] solution) throws IOException {
+		if(buffer.remaining() < recordSize) {
+			flush();
+		}
+		for(int i = 0; i < cellCount; i += 2) {
+			final int high = solution[i] - 1;
+			final int low = i + 1 < cellCount? solution[i + 1] - 1 : 0;
+			buffer.put((byte)((high << 4) | low));
+		}
+		++size;
+	}
+	
+	/**
+	 * Stream all of the stored solutions back, in the order they were appended. The
+	 * solution array passed to the consumer is reused between the calls.
+	 * 
+	 * @param consumer Consumer of the stored solutions
+	 * @throws IOException If the solutions can't be read back
+	 */
+	public void forEach(final SolutionConsumer consumer) throws IOException {
+		flush();
+		
+		final int[] solution = new int[cellCount];
+		long readPosition = 0;
+		int index = 0;
+		
+		while(index < size) {
+			buffer.clear();
+			while(buffer.hasRemaining() && channel.read(buffer, readPosition + buffer.position()) > 0);
+			buffer.flip();
+			
+			if(buffer.remaining() < recordSize) {
+				throw new IOException("Unexpected end of the solution store at solution " + index);
+			}
+			
+			readPosition += buffer.remaining();
+			while(buffer.remaining() >= recordSize && index < size) {
+				for(int i = 0; i < cellCount; i += 2) {
+					final int packed = buffer.get();
+					solution[i] = ((packed >> 4) & 0x0F) + 1;
+					if(i + 1 < cellCount) {
+						solution[i + 1] = (packed & 0x0F) + 1;
+					}
+				}
+				consumer.accept(index++, solution);
+			}
+		}
+		buffer.clear();
+	}
+	
+	/**
+	 * Write all of the appended solutions to the backing file and force them to the storage device
+	 * 
+	 * @throws IOException If the solutions can't be written
+	 */
+	public void sync() throws IOException {
+		flush();
+		channel.force(false);
+	}
+	
+	/**
+	 * Get the number of stored solutions
+	 * 
+	 * @return Stored solution count
+	 */
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+	
+	private void flush() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			writePosition += channel.write(buffer, writePosition);
+		}
+		buffer.clear();
+	}
+	
+	/**
+	 * A consumer of solutions streamed back from the store
+	 */
+	public interface SolutionConsumer {
+		
+		/**
+		 * Consume a single solution
+		 * 
+		 * @param index Solution index, starting from 0
+		 * @param solution Solution values, row by row
+		 * @throws IOException If an error occurs while processing the solution
+		 */
+		void accept(int index, int[] solution) throws IOException;
+	}
+}
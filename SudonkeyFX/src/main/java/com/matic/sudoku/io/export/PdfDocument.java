@@ -0,0 +1,324 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+package com.matic.sudoku.io.export;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A minimal writer of vector PDF documents, just capable enough for printing puzzles:
+ * A4 pages with lines and single-line text in the standard Helvetica fonts. Pages are
+ * written as soon as they are added, only the page tree and the cross-reference table
+ * are written when the document is closed.
+ * 
+ * @author vedran
+ *
+ */
+final class PdfDocument implements Closeable {
+	
+	//A4 page size in points
+	static final float PAGE_WIDTH = 595;
+	static final float PAGE_HEIGHT = 842;
+	
+	//Height of a capital letter or a digit, relative to the font size (same for both fonts)
+	static final float CAP_HEIGHT = 0.718f;
+	
+	//Catalog, page tree and font objects come first, followed by the pages
+	private static final int CATALOG_OBJECT = 1;
+	private static final int PAGES_OBJECT = 2;
+	private static final int REGULAR_FONT_OBJECT = 3;
+	private static final int BOLD_FONT_OBJECT = 4;
+	
+	//Header comment with binary characters, marking the file as binary to file transfer tools
+	private static final String HEADER = "%PDF-1.4\n%\u00e2\u00e3\u00cf\u00d3\n";
+	
+	//Glyph widths (in 1/1000 of the font size) of the upper case letters A to P
+	private static final int[] REGULAR_LETTER_WIDTHS = {667, 667, 722, 722, 667, 611, 778, 722, 
+			278, 500, 667, 556, 833, 722, 778, 667};
+	private static final int[] BOLD_LETTER_WIDTHS = {722, 722, 722, 722, 667, 611, 778, 722, 
+			278, 556, 722, 611, 833, 722, 778, 667};
+	
+	//Width of a digit (in 1/1000 of the font size) in both fonts
+	private static final int DIGIT_WIDTH = 556;
+	
+	private static final Charset WIN_ANSI = Charset.forName("windows-1252");
+	
+	private final OutputStream output;
+	
+	//File offsets of the written objects, indexed by object number - 1
+	private final List<Long> objectOffsets = new ArrayList<>();
+	private final List<Integer> pageObjects = new ArrayList<>();
+	
+	//How many bytes have been written so far
+	private long offset = 0;
+	
+	/**
+	 * Create a new document, replacing any existing file
+	 * 
+	 * @param path Document file path
+	 * @throws IOException If the file can't be created
+	 */
+	PdfDocument(final Path path) throws IOException {
+		output = new BufferedOutputStream(Files.newOutputStream(path));
+		
+		//Reserve the numbers of the objects written last
+		for(int i = CATALOG_OBJECT; i <= BOLD_FONT_OBJECT; ++i) {
+			objectOffsets.add(null);
+		}
+		write(HEADER.getBytes(StandardCharsets.ISO_8859_1));
+	}
+	
+	/**
+	 * Get the width of text written with one of the document fonts. Only the digits and
+	 * the letters used as cell symbols are measured exactly.
+	 * 
+	 * @param text Text to measure
+	 * @param bold Whether the text is written in bold
+	 * @param size Font size
+	 * @return Text width in points
+	 */
+	static float getTextWidth(final String text, final boolean bold, final float size) {
+		final int[] letterWidths = bold? BOLD_LETTER_WIDTHS : REGULAR_LETTER_WIDTHS;
+		int width = 0;
+		for(int i = 0; i < text.length(); ++i) {
+			final int letter = text.charAt(i) - 'A';
+			width += letter >= 0 && letter < letterWidths.length? letterWidths[letter] : DIGIT_WIDTH;
+		}
+		return width * size / 1000;
+	}
+	
+	/**
+	 * Write a page to the document
+	 * 
+	 * @param page Page to write
+	 * @throws IOException If the page can't be written
+	 */
+	void addPage(final Page page) throws IOException {
+		final byte[] content = compress(page.content.toString().getBytes(StandardCharsets.US_ASCII));
+		final int contentObject = startObject();
+		write("<< /Length " + content.length + " /Filter /FlateDecode >>\nstream\n");
+		write(content);
+		write("\nendstream");
+		endObject();
+		
+		final int pageObject = startObject();
+		write("<< /Type /Page /Parent " + PAGES_OBJECT + " 0 R /MediaBox [0 0 " + 
+				(int)PAGE_WIDTH + " " + (int)PAGE_HEIGHT + "] /Resources << /Font << /F1 " + 
+				REGULAR_FONT_OBJECT + " 0 R /F2 " + BOLD_FONT_OBJECT + " 0 R >> >> /Contents " + 
+				contentObject + " 0 R >>");
+		endObject();
+		pageObjects.add(pageObject);
+	}
+	
+	/**
+	 * Write the page tree and the cross-reference table and close the file
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			writeFont(REGULAR_FONT_OBJECT, "Helvetica");
+			writeFont(BOLD_FONT_OBJECT, "Helvetica-Bold");
+			
+			final StringBuilder kids = new StringBuilder();
+			for(final int pageObject : pageObjects) {
+				kids.append(pageObject).append(" 0 R ");
+			}
+			startObject(PAGES_OBJECT);
+			write("<< /Type /Pages /Kids [ " + kids + "] /Count " + pageObjects.size() + " >>");
+			endObject();
+			
+			startObject(CATALOG_OBJECT);
+			write("<< /Type /Catalog /Pages " + PAGES_OBJECT + " 0 R >>");
+			endObject();
+			
+			final long xrefOffset = offset;
+			final StringBuilder xref = new StringBuilder();
+			xref.append("xref\n0 ").append(objectOffsets.size() + 1).append("\n0000000000 65535 f \n");
+			for(final Long objectOffset : objectOffsets) {
+				xref.append(String.format("%010d 00000 n \n", objectOffset));
+			}
+			xref.append("trailer\n<< /Size ").append(objectOffsets.size() + 1).append(" /Root ")
+				.append(CATALOG_OBJECT).append(" 0 R >>\nstartxref\n").append(xrefOffset).append("\n%%EOF\n");
+			write(xref.toString());
+		}
+		finally {
+			output.close();
+		}
+	}
+	
+	private void writeFont(final int object, final String baseFont) throws IOException {
+		startObject(object);
+		write("<< /Type /Font /Subtype /Type1 /BaseFont /" + baseFont + 
+				" /Encoding /WinAnsiEncoding >>");
+		endObject();
+	}
+	
+	private int startObject() throws IOException {
+		objectOffsets.add(null);
+		final int object = objectOffsets.size();
+		startObject(object);
+		return object;
+	}
+	
+	private void startObject(final int object) throws IOException {
+		objectOffsets.set(object - 1, offset);
+		write(object + " 0 obj\n");
+	}
+	
+	private void endObject() throws IOException {
+		write("\nendobj\n");
+	}
+	
+	private void write(final String text) throws IOException {
+		write(text.getBytes(StandardCharsets.US_ASCII));
+	}
+	
+	private void write(final byte[] bytes) throws IOException {
+		output.write(bytes);
+		offset += bytes.length;
+	}
+	
+	private static byte[] compress(final byte[] content) throws IOException {
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 2);
+		final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+		try(final DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(compressed, deflater)) {
+			deflaterOutput.write(content);
+		}
+		finally {
+			deflater.end();
+		}
+		return compressed.toByteArray();
+	}
+	
+	/**
+	 * Content of a single page, drawn in points from the bottom left page corner
+	 */
+	static final class Page {
+		
+		private final StringBuilder content = new StringBuilder();
+		private final DecimalFormat numberFormat = new DecimalFormat("0.##", 
+				DecimalFormatSymbols.getInstance(Locale.ROOT));
+		private final CharsetEncoder textEncoder = WIN_ANSI.newEncoder();
+		
+		Page() {
+			//Square line caps, so that the crossing lines of a grid meet in clean corners
+			content.append("2 J\n");
+		}
+		
+		/**
+		 * Set the width of the lines stroked from now on
+		 * 
+		 * @param width Line width
+		 */
+		void setLineWidth(final float width) {
+			append(width).append("w\n");
+		}
+		
+		/**
+		 * Add a straight line to the current path
+		 * 
+		 * @param x1 Horizontal position of the line start
+		 * @param y1 Vertical position of the line start
+		 * @param x2 Horizontal position of the line end
+		 * @param y2 Vertical position of the line end
+		 */
+		void line(final float x1, final float y1, final float x2, final float y2) {
+			append(x1).append(' ');
+			append(y1).append("m ");
+			append(x2).append(' ');
+			append(y2).append("l\n");
+		}
+		
+		/**
+		 * Stroke the lines added since the previous stroke
+		 */
+		void stroke() {
+			content.append("S\n");
+		}
+		
+		/**
+		 * Write a line of text. Characters missing from the font encoding are replaced by
+		 * their unaccented variants, if any.
+		 * 
+		 * @param text Text to write
+		 * @param bold Whether to write the text in bold
+		 * @param size Font size
+		 * @param x Left edge of the text
+		 * @param y Text baseline
+		 */
+		void text(final String text, final boolean bold, final float size, final float x, final float y) {
+			content.append("BT /").append(bold? "F2 " : "F1 ");
+			append(size).append("Tf ");
+			append(x).append(' ');
+			append(y).append("Td (");
+			for(int i = 0; i < text.length(); ++i) {
+				appendCharacter(text.charAt(i));
+			}
+			content.append(") Tj ET\n");
+		}
+		
+		private StringBuilder append(final float value) {
+			return content.append(numberFormat.format(value)).append(' ');
+		}
+		
+		private void appendCharacter(final char character) {
+			char printable = character;
+			if(!textEncoder.canEncode(printable)) {
+				//Strip the diacritics, the letter D with stroke being the only one not decomposed
+				if(character == '\u0110' || character == '\u0111') {
+					printable = character == '\u0110'? 'D' : 'd';
+				}
+				else {
+					printable = Normalizer.normalize(String.valueOf(character), Normalizer.Form.NFD).charAt(0);
+				}
+				if(!textEncoder.canEncode(printable)) {
+					printable = '?';
+				}
+			}
+			final int code = String.valueOf(printable).getBytes(WIN_ANSI)[0] & 0xff;
+			if(code == '(' || code == ')' || code == '\\') {
+				content.append('\\').append((char)code);
+			}
+			else if(code < ' ' || code > '~') {
+				//Escape the codes outside of printable ASCII as octal numbers
+				content.append('\\').append(Integer.toOctalString(code | 0x200).substring(1));
+			}
+			else {
+				content.append((char)code);
+			}
+		}
+	}
+}
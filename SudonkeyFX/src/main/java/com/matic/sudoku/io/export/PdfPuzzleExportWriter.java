@@ -0,0 +1,325 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+package com.matic.sudoku.io.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import com.matic.sudoku.Resources;
+import com.matic.sudoku.generator.GeneratorResult;
+import com.matic.sudoku.guifx.board.BoardRasterizer;
+import com.matic.sudoku.guifx.window.PuzzleExporterOptions;
+import com.matic.sudoku.logic.LogicSolver.Grading;
+
+/**
+ * An export writer printing the puzzles to a PDF document, one, two or four puzzles
+ * per page, followed by the solutions (if any) four per page.
+ * 
+ * A PDF document can only be completed once all of its pages are known, so the puzzles
+ * are spooled to a file next to the document while being exported. The checkpointed
+ * output positions refer to the spool file, so an interrupted export resumes spooling,
+ * and the document is created from the spool file once the export has completed.
+ * 
+ * @author vedran
+ *
+ */
+public class PdfPuzzleExportWriter implements PuzzleExportWriter {
+	
+	private static final String SPOOL_FILE_SUFFIX = ".spool";
+	
+	//Spooled record: kind, puzzle number, grading (0 if none), dimension and the cell values
+	private static final int RECORD_HEADER_SIZE = 1 + Integer.BYTES + 1 + 1;
+	private static final byte PUZZLE_RECORD = 0;
+	private static final byte SOLUTION_RECORD = 1;
+	
+	//Size (in bytes) of the buffer records are collected in
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	//Page margin and the space around the puzzle grids (in points)
+	private static final float PAGE_MARGIN = 36;
+	private static final float GRID_SPACING = 24;
+	
+	//Size of the labels above the puzzle grids (in points)
+	private static final float LABEL_FONT_SIZE = 11;
+	private static final float LABEL_HEIGHT = 18;
+	
+	//Widths of the lines separating the cells and the boxes (in points)
+	private static final float CELL_LINE_WIDTH = 0.5f;
+	private static final float BOX_LINE_WIDTH = 2;
+	
+	//Font sizes of the cell values and the pencilmarks, relative to the cell size
+	private static final float VALUE_FONT_SCALE = 0.6f;
+	private static final float PENCILMARK_FONT_SCALE = 0.75f;
+	
+	private static final int SOLUTIONS_PER_PAGE = 4;
+	
+	private final PuzzleExporterOptions options;
+	private final Path path;
+	private final Path spoolPath;
+	private final FileChannel spool;
+	private final ByteBuffer buffer;
+	
+	/**
+	 * Open a writer for the target document. An existing spool file is kept until
+	 * the exporter positions the writer.
+	 * 
+	 * @param path Output document path
+	 * @param options Export options, determining the document layout
+	 * @throws IOException If the spool file can't be opened
+	 */
+	public PdfPuzzleExportWriter(final Path path, final PuzzleExporterOptions options) 
+			throws IOException {
+		this.path = path;
+		this.options = options;
+		spoolPath = Paths.get(path.toString() + SPOOL_FILE_SUFFIX);
+		spool = FileChannel.open(spoolPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	}
+
+	@Override
+	public void writePuzzle(final int number, final GeneratorResult puzzle) throws IOException {
+		final Grading grading = puzzle.getGrading();
+		writeRecord(PUZZLE_RECORD, number, grading == null? 0 : grading.ordinal() + 1, 
+				puzzle.getDimension(), puzzle.getPuzzle());
+	}
+
+	@Override
+	public void writeSolution(final int number, final int dimension, final int[] solution)
+			throws IOException {
+		writeRecord(SOLUTION_RECORD, number, 0, dimension, solution);
+	}
+
+	@Override
+	public void seek(final long position) throws IOException {
+		flush();
+		spool.truncate(position);
+		spool.position(position);
+	}
+
+	@Override
+	public long getOutputPosition() throws IOException {
+		flush();
+		spool.force(false);
+		return spool.position();
+	}
+	
+	/**
+	 * Print the spooled puzzles to the document, replacing the spool file
+	 */
+	@Override
+	public void finish() throws IOException {
+		flush();
+		spool.close();
+		
+		final ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(spoolPath));
+		final Path documentPath = Paths.get(path.toString() + ".tmp");
+		try(final PdfDocument document = new PdfDocument(documentPath)) {
+			printRecords(document, records);
+		}
+		Files.move(documentPath, path, StandardCopyOption.REPLACE_EXISTING, 
+				StandardCopyOption.ATOMIC_MOVE);
+		Files.delete(spoolPath);
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		}
+		finally {
+			spool.close();
+		}
+	}
+	
+	private void writeRecord(final byte kind, final int number, final int grading, 
+			final int dimension, final int[] cells) throws IOException {
+		if(buffer.remaining() < RECORD_HEADER_SIZE + cells.length) {
+			flush();
+		}
+		buffer.put(kind);
+		buffer.putInt(number);
+		buffer.put((byte)grading);
+		buffer.put((byte)dimension);
+		for(final int value : cells) {
+			buffer.put((byte)value);
+		}
+	}
+	
+	private void flush() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			spool.write(buffer);
+		}
+		buffer.clear();
+	}
+	
+	private void printRecords(final PdfDocument document, final ByteBuffer records) throws IOException {
+		PdfDocument.Page page = null;
+		int slot = 0;
+		byte pageKind = PUZZLE_RECORD;
+		
+		while(records.hasRemaining()) {
+			final byte kind = records.get();
+			final int number = records.getInt();
+			final int grading = records.get();
+			final int dimension = records.get();
+			if(dimension < 2 || grading < 0 || grading > Grading.values().length) {
+				throw new IOException("Corrupt PDF spool file: " + spoolPath);
+			}
+			final int[] cells = new int[dimension * dimension * dimension * dimension];
+			for(int i = 0; i < cells.length; ++i) {
+				cells[i] = records.get();
+			}
+			
+			final int slotsPerPage = kind == PUZZLE_RECORD? options.getPuzzlesPerPage() : SOLUTIONS_PER_PAGE;
+			if(page != null && (slot == slotsPerPage || kind != pageKind)) {
+				document.addPage(page);
+				page = null;
+			}
+			if(page == null) {
+				page = new PdfDocument.Page();
+				pageKind = kind;
+				slot = 0;
+			}
+			
+			final String label = kind == PUZZLE_RECORD? getPuzzleLabel(number, grading) : 
+				Resources.getTranslation("export.pdf.solution") + " #" + number;
+			printGrid(page, slot++, slotsPerPage, label, number, dimension, cells, kind == PUZZLE_RECORD);
+		}
+		if(page != null) {
+			document.addPage(page);
+		}
+	}
+	
+	private String getPuzzleLabel(final int number, final int grading) {
+		final StringBuilder label = new StringBuilder();
+		if(options.isPrintPuzzleNumberings()) {
+			label.append('#').append(number);
+		}
+		if(options.isPrintPuzzleGradings() && grading > 0) {
+			if(label.length() > 0) {
+				label.append(" - ");
+			}
+			label.append(Grading.values()[grading - 1].getDescription());
+		}
+		return label.toString();
+	}
+	
+	//Print a labelled grid into one of the equally sized page slots (in two columns for four slots)
+	private void printGrid(final PdfDocument.Page page, final int slot, final int slotsPerPage, 
+			final String label, final int number, final int dimension, final int[] cells, 
+			final boolean isPuzzle) {
+		final int columns = slotsPerPage > 2? 2 : 1;
+		final int rows = (slotsPerPage + columns - 1) / columns;
+		final float slotWidth = (PdfDocument.PAGE_WIDTH - 2 * PAGE_MARGIN) / columns;
+		final float slotHeight = (PdfDocument.PAGE_HEIGHT - 2 * PAGE_MARGIN) / rows;
+		final float slotLeft = PAGE_MARGIN + (slot % columns) * slotWidth;
+		final float slotTop = PdfDocument.PAGE_HEIGHT - PAGE_MARGIN - (slot / columns) * slotHeight;
+		
+		final int unit = dimension * dimension;
+		final float gridSize = Math.min(slotWidth, slotHeight - LABEL_HEIGHT) - GRID_SPACING;
+		final float cellSize = gridSize / unit;
+		final float gridLeft = slotLeft + (slotWidth - gridSize) / 2;
+		final float gridTop = slotTop - LABEL_HEIGHT;
+		final float gridBottom = gridTop - gridSize;
+		
+		if(!label.isEmpty()) {
+			page.text(label, false, LABEL_FONT_SIZE, gridLeft, gridTop + (LABEL_HEIGHT - LABEL_FONT_SIZE) / 2);
+		}
+		
+		//Cell lines first, so that the box lines are drawn over them
+		page.setLineWidth(CELL_LINE_WIDTH);
+		for(int i = 1; i < unit; ++i) {
+			if(i % dimension != 0) {
+				addGridLines(page, i * cellSize, gridLeft, gridTop, gridSize);
+			}
+		}
+		page.stroke();
+		page.setLineWidth(BOX_LINE_WIDTH);
+		for(int i = 0; i <= unit; i += dimension) {
+			addGridLines(page, i * cellSize, gridLeft, gridTop, gridSize);
+		}
+		page.stroke();
+		
+		final String[] symbols = BoardRasterizer.getSymbols(dimension, 
+				PuzzleExporter.getSymbolType(options.getSymbolTypes(), number));
+		final float valueFontSize = cellSize * VALUE_FONT_SCALE;
+		final float pencilmarkSize = cellSize / dimension;
+		final float pencilmarkFontSize = pencilmarkSize * PENCILMARK_FONT_SCALE;
+		
+		for(int cell = 0; cell < cells.length; ++cell) {
+			final float cellLeft = gridLeft + (cell % unit) * cellSize;
+			final float cellTop = gridTop - (cell / unit) * cellSize;
+			
+			if(cells[cell] > 0) {
+				printSymbol(page, symbols[cells[cell]], isPuzzle, valueFontSize, 
+						cellLeft, cellTop, cellSize);
+			}
+			else if(isPuzzle && options.isFillPencilmarks()) {
+				for(int value = 1; value <= unit; ++value) {
+					if(isCandidate(cells, dimension, cell, value)) {
+						printSymbol(page, symbols[value], false, pencilmarkFontSize,
+								cellLeft + ((value - 1) % dimension) * pencilmarkSize, 
+								cellTop - ((value - 1) / dimension) * pencilmarkSize, pencilmarkSize);
+					}
+				}
+			}
+		}
+	}
+	
+	//Add a horizontal and a vertical grid line at the same distance from the grid's top left corner
+	private static void addGridLines(final PdfDocument.Page page, final float distance, 
+			final float gridLeft, final float gridTop, final float gridSize) {
+		page.line(gridLeft, gridTop - distance, gridLeft + gridSize, gridTop - distance);
+		page.line(gridLeft + distance, gridTop, gridLeft + distance, gridTop - gridSize);
+	}
+	
+	//Print a symbol centered within a square area given by its top left corner
+	private static void printSymbol(final PdfDocument.Page page, final String symbol, final boolean bold, 
+			final float fontSize, final float left, final float top, final float size) {
+		final float width = PdfDocument.getTextWidth(symbol, bold, fontSize);
+		page.text(symbol, bold, fontSize, left + (size - width) / 2, 
+				top - (size + PdfDocument.CAP_HEIGHT * fontSize) / 2);
+	}
+	
+	//Whether none of the cell's row, column or box givens holds the value
+	private static boolean isCandidate(final int[] cells, final int dimension, final int cell, 
+			final int value) {
+		final int unit = dimension * dimension;
+		final int row = cell / unit;
+		final int column = cell % unit;
+		final int boxRow = row - row % dimension;
+		final int boxColumn = column - column % dimension;
+		
+		for(int i = 0; i < unit; ++i) {
+			if(cells[row * unit + i] == value || cells[i * unit + column] == value ||
+					cells[(boxRow + i / dimension) * unit + boxColumn + i % dimension] == value) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
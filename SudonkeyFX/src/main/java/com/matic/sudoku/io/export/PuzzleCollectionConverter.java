@@ -0,0 +1,113 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io.export;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import com.matic.sudoku.io.CompressedInput;
+import com.matic.sudoku.io.CompressedPuzzleReader;
+import com.matic.sudoku.io.PackedPuzzleFormat;
+import com.matic.sudoku.io.PackedPuzzleReader;
+import com.matic.sudoku.io.PuzzleFormat;
+import com.matic.sudoku.io.SequentialPuzzleReader;
+
+/**
+ * Converts puzzle collections between the plain text formats and the packed format.
+ * Either collection can be gzip compressed: compressed collections are recognized by
+ * their content and created when the target file name has the gzip extension.
+ * 
+ * @author vedran
+ *
+ */
+public final class PuzzleCollectionConverter {
+	
+	//Prevent instantiation of this class
+	private PuzzleCollectionConverter() {}
+	
+	/**
+	 * Convert a plain text collection (in any of the supported text formats) to a packed one
+	 * 
+	 * @param textPath Path of the text collection to convert (also a compressed packed one)
+	 * @param packedPath Path of the packed collection to create
+	 * @return Number of converted puzzles
+	 * @throws IOException If either of the collections can't be read or written
+	 */
+	public static long toPacked(final Path textPath, final Path packedPath) throws IOException {
+		try(final SequentialPuzzleReader reader = SequentialPuzzleReader.open(textPath);
+				final PackedPuzzleExportWriter writer = new PackedPuzzleExportWriter(
+						packedPath, reader.getDimension())) {
+			writer.seek(0);
+			
+			final int[] cells = new int[PackedPuzzleFormat.getCellCount(reader.getDimension())];
+			long puzzleCount = 0;
+			while(reader.read(cells)) {
+				writer.write(cells);
+				++puzzleCount;
+			}
+			return puzzleCount;
+		}
+	}
+	
+	/**
+	 * Convert a packed collection to a plain text one
+	 * 
+	 * @param packedPath Path of the packed collection to convert
+	 * @param textPath Path of the text collection to create
+	 * @param format Format of the text collection
+	 * @return Number of converted puzzles
+	 * @throws IOException If either of the collections can't be read or written
+	 */
+	public static long toText(final Path packedPath, final Path textPath, final PuzzleFormat format)
+			throws IOException {
+		if(CompressedInput.isCompressed(packedPath)) {
+			return compressedToText(packedPath, textPath, format);
+		}
+		try(final PackedPuzzleReader reader = new PackedPuzzleReader(packedPath);
+				final TextPuzzleExportWriter writer = new TextPuzzleExportWriter(textPath, format)) {
+			writer.seek(0);
+			
+			final int[] cells = new int[PackedPuzzleFormat.getCellCount(reader.getDimension())];
+			for(long i = 0; i < reader.getPuzzleCount(); ++i) {
+				reader.read(i, cells);
+				writer.write(reader.getDimension(), cells);
+			}
+			return reader.getPuzzleCount();
+		}
+	}
+	
+	//A compressed collection can only be read sequentially
+	private static long compressedToText(final Path compressedPath, final Path textPath,
+			final PuzzleFormat format) throws IOException {
+		try(final CompressedPuzzleReader reader = new CompressedPuzzleReader(compressedPath);
+				final TextPuzzleExportWriter writer = new TextPuzzleExportWriter(textPath, format)) {
+			writer.seek(0);
+			
+			final int[] cells = new int[PackedPuzzleFormat.getCellCount(reader.getDimension())];
+			long puzzleCount = 0;
+			while(reader.read(cells)) {
+				writer.write(reader.getDimension(), cells);
+				++puzzleCount;
+			}
+			return puzzleCount;
+		}
+	}
+}
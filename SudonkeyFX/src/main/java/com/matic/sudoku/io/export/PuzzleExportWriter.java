@@ -0,0 +1,84 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import com.matic.sudoku.generator.GeneratorResult;
+
+/**
+ * A destination to which the puzzle exporter writes the created puzzles
+ * and, optionally, their solutions. All of the puzzles are written first,
+ * followed by the solutions (if any) in the same order as the puzzles.
+ * 
+ * @author vedran
+ *
+ */
+public interface PuzzleExportWriter extends Closeable {
+
+	/**
+	 * Write a single exported puzzle
+	 * 
+	 * @param number Puzzle number, starting from 1
+	 * @param puzzle Puzzle to write
+	 * @throws IOException If an error occurs while writing the puzzle
+	 */
+	void writePuzzle(int number, GeneratorResult puzzle) throws IOException;
+	
+	/**
+	 * Write a solution to a previously written puzzle
+	 * 
+	 * @param number Number of the puzzle to which the solution belongs
+	 * @param dimension Puzzle dimension (3 for a 9x9 puzzle)
+	 * @param solution Solution values, row by row
+	 * @throws IOException If an error occurs while writing the solution
+	 */
+	void writeSolution(int number, int dimension, int[] solution) throws IOException;
+	
+	/**
+	 * Discard any output past the given position and continue writing from it.
+	 * A new export is started at position 0.
+	 * 
+	 * @param position Output position previously returned by getOutputPosition()
+	 * @throws IOException If the output can't be repositioned
+	 */
+	void seek(long position) throws IOException;
+	
+	/**
+	 * Make all of the output written so far durable and return its position. The
+	 * meaning of the position is up to the writer (a byte offset for file writers).
+	 * 
+	 * @return Current output position
+	 * @throws IOException If the written output can't be flushed
+	 */
+	long getOutputPosition() throws IOException;
+	
+	/**
+	 * Complete the output once all of the puzzles and solutions have been written. Not called
+	 * for cancelled or failed exports, as their output is kept for resuming them.
+	 * 
+	 * @throws IOException If the output can't be completed
+	 */
+	default void finish() throws IOException {
+		//The output is complete as written by default
+	}
+}
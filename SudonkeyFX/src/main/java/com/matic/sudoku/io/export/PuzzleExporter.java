@@ -0,0 +1,286 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io.export;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.matic.sudoku.generator.Generator;
+import com.matic.sudoku.generator.Generator.Symmetry;
+import com.matic.sudoku.generator.GeneratorResult;
+import com.matic.sudoku.guifx.board.GameBoard;
+import com.matic.sudoku.guifx.window.PuzzleExporterOptions;
+import com.matic.sudoku.guifx.window.PuzzleExporterOptions.Ordering;
+import com.matic.sudoku.io.KeyInputManager.SymbolType;
+import com.matic.sudoku.logic.LogicSolver.Grading;
+
+/**
+ * Creates puzzles according to the player's export options and passes them to
+ * an export writer. When solutions are to be appended, they are spilled to a
+ * packed solution store during the puzzle pass and streamed back to the writer
+ * afterwards, so the memory use doesn't grow with the number of exported puzzles.
+ * 
+ * Progress is periodically checkpointed next to the output file. Every puzzle's
+ * randomness is derived from the job's seed and the puzzle's index only, so a job
+ * resumed from a checkpoint creates exactly the puzzles the original job would have.
+ * This also allows the puzzles to be created in parallel by a pool of workers, while
+ * still being written in their original order.
+ * 
+ * An export is cancelled by interrupting the thread running it. The workers are then
+ * interrupted as well and a checkpoint of the puzzles written so far is stored.
+ * 
+ * @author vedran
+ *
+ */
+public class PuzzleExporter {
+	
+	//Exported puzzles are always classic 9x9 puzzles
+	public static final int EXPORT_DIMENSION = GameBoard.DIMENSION_9x9;
+	
+	//How often (in milliseconds) to store a checkpoint of export progress
+	private static final long CHECKPOINT_INTERVAL = 10000;
+	
+	//File name suffix of the solution store kept next to the output file
+	private static final String SOLUTIONS_FILE_SUFFIX = ".solutions";
+	
+	//Used for spreading puzzle indexes over the seed bits
+	private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+	
+	//How many puzzles, per worker, may be created ahead of the puzzle being written
+	private static final int WORKER_QUEUE_DEPTH = 2;
+	
+	private final ExportProgress progress = new ExportProgress();
+	
+	private final PuzzleExporterOptions options;
+	private final Generator generator;
+	private final Random random;
+	
+	private final int workerCount;
+	
+	/**
+	 * Create a new exporter
+	 * 
+	 * @param options Player selected export options
+	 * @param generator Generator used for creating puzzles (not used for empty grids)
+	 * @param random Source of the seed for a new (not resumed) export job
+	 */
+	public PuzzleExporter(final PuzzleExporterOptions options, final Generator generator,
+			final Random random) {
+		this.options = options;
+		this.generator = generator;
+		this.random = random;
+		
+		workerCount = Runtime.getRuntime().availableProcessors();
+	}
+	
+	/**
+	 * Get the live progress counters of this exporter
+	 * 
+	 * @return Export progress
+	 */
+	public ExportProgress getProgress() {
+		return progress;
+	}
+	
+	/**
+	 * Create all of the puzzles (and possibly their solutions) and write them. If a
+	 * checkpoint stored by an interrupted export with the same options exists, the
+	 * export continues from it.
+	 * 
+	 * @param writer Destination of the exported puzzles
+	 * @throws InterruptedIOException If the export was cancelled
+	 * @throws IOException If an error occurs while writing the puzzles
+	 */
+	public void export(final PuzzleExportWriter writer) throws IOException {
+		final boolean appendSolutions = options.isAppendSolutions() && !options.isEmptyGrid();
+		final Path checkpointPath = ExportCheckpoint.getCheckpointPath(options.getOutputPath());
+		final Path solutionsPath = Paths.get(options.getOutputPath() + SOLUTIONS_FILE_SUFFIX);
+		
+		ExportCheckpoint checkpoint = ExportCheckpoint.load(checkpointPath, options);
+		if(checkpoint == null) {
+			checkpoint = new ExportCheckpoint(options, random.nextLong(), 0, 0);
+		}
+		
+		final long seed = checkpoint.getSeed();
+		final Grading[] gradings = selectGradings(new Random(seed), options.getPuzzleCount());
+		writer.seek(checkpoint.getOutputPosition());
+		progress.start(gradings.length, checkpoint.getPuzzleCount());
+		
+		final ExecutorService workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+			final Thread worker = new Thread(runnable, "puzzle-export-worker");
+			worker.setDaemon(true);
+			return worker;
+		});
+		
+		try(final PackedSolutionStore solutionStore = appendSolutions? new PackedSolutionStore(
+				EXPORT_DIMENSION, solutionsPath, checkpoint.getPuzzleCount()) : null) {
+			final Deque<Future<GeneratorResult>> pendingPuzzles = new ArrayDeque<>();
+			int nextPuzzleIndex = checkpoint.getPuzzleCount();
+			long checkpointTime = System.currentTimeMillis();
+			
+			for(int i = checkpoint.getPuzzleCount(); i < gradings.length; ++i) {
+				//Keep the workers busy with the puzzles following the one to be written next
+				while(nextPuzzleIndex < gradings.length && 
+						pendingPuzzles.size() < workerCount * WORKER_QUEUE_DEPTH) {
+					final int puzzleIndex = nextPuzzleIndex++;
+					pendingPuzzles.add(workers.submit(() -> createPuzzle(gradings[puzzleIndex],
+							new Random(seed + puzzleIndex * SEED_INCREMENT))));
+				}
+				
+				final GeneratorResult puzzle;
+				try {
+					puzzle = awaitPuzzle(pendingPuzzles.poll());
+				}
+				catch(final InterruptedIOException e) {
+					storeCheckpoint(checkpointPath, writer, solutionStore, seed, i);
+					throw e;
+				}
+				
+				writer.writePuzzle(i + 1, puzzle);
+				if(solutionStore != null) {
+					solutionStore.append(puzzle.getSolution());
+				}
+				progress.onAccepted();
+				
+				final long now = System.currentTimeMillis();
+				if(now - checkpointTime >= CHECKPOINT_INTERVAL || i == gradings.length - 1) {
+					storeCheckpoint(checkpointPath, writer, solutionStore, seed, i + 1);
+					checkpointTime = now;
+				}
+			}
+			
+			if(solutionStore != null) {
+				solutionStore.forEach((index, solution) -> {
+					if(Thread.currentThread().isInterrupted()) {
+						throw new InterruptedIOException("Export cancelled");
+					}
+					writer.writeSolution(index + 1, EXPORT_DIMENSION, solution);
+				});
+			}
+		}
+		finally {
+			workers.shutdownNow();
+		}
+		writer.finish();
+		
+		//The export has completed, nothing is left to resume
+		Files.deleteIfExists(checkpointPath);
+		Files.deleteIfExists(solutionsPath);
+	}
+	
+	/**
+	 * Choose the symbols a puzzle and its solution are shown with. The choice depends on
+	 * the puzzle number only, so that a resumed export keeps showing the same symbols.
+	 * 
+	 * @param symbolTypes Symbol types to choose from
+	 * @param number Puzzle number, starting from 1
+	 * @return Chosen symbol type
+	 */
+	public static SymbolType getSymbolType(final List<SymbolType> symbolTypes, final int number) {
+		final int hash = (int)((number * SEED_INCREMENT) >>> 32);
+		return symbolTypes.get(Math.floorMod(hash, symbolTypes.size()));
+	}
+	
+	private GeneratorResult awaitPuzzle(final Future<GeneratorResult> pendingPuzzle) throws IOException {
+		try {
+			return pendingPuzzle.get();
+		}
+		catch(final InterruptedException e) {
+			//Don't restore the interrupt status, it would close the channels needed for the checkpoint
+			throw new InterruptedIOException("Export cancelled");
+		}
+		catch(final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			throw new IOException("Puzzle creation failed", cause);
+		}
+	}
+	
+	private void storeCheckpoint(final Path checkpointPath, final PuzzleExportWriter writer, 
+			final PackedSolutionStore solutionStore, final long seed, final int puzzleCount)
+					throws IOException {
+		//The output and the solutions must be durable before the checkpoint refers to them
+		final long outputPosition = writer.getOutputPosition();
+		if(solutionStore != null) {
+			solutionStore.sync();
+		}
+		new ExportCheckpoint(options, seed, puzzleCount, outputPosition).store(checkpointPath);
+	}
+	
+	private GeneratorResult createPuzzle(final Grading grading, final Random random) {
+		if(options.isEmptyGrid()) {
+			final int unit = EXPORT_DIMENSION * EXPORT_DIMENSION;
+			return new GeneratorResult(EXPORT_DIMENSION, new int[unit * unit], null, null, null);
+		}
+		final List<Symmetry> symmetries = options.getSymmetries();
+		GeneratorResult puzzle = null;
+		while(puzzle == null) {
+			if(Thread.currentThread().isInterrupted()) {
+				//The export was cancelled, nobody is waiting for this puzzle
+				return null;
+			}
+			final Symmetry symmetry = symmetries.get(random.nextInt(symmetries.size()));
+			progress.onGenerated(grading);
+			puzzle = generator.createNew(EXPORT_DIMENSION, grading, symmetry, random);
+			
+			if(puzzle == null || puzzle.getGrading() != grading) {
+				progress.onRejected(grading);
+				puzzle = null;
+			}
+			else {
+				progress.onGraded(grading);
+			}
+		}
+		return puzzle;
+	}
+	
+	//Choose all gradings up front, so that the puzzles can be ordered by difficulty
+	private Grading[] selectGradings(final Random random, final int puzzleCount) {
+		final List<Grading> gradings = options.getGradings();
+		final Grading[] selected = new Grading[puzzleCount];
+		
+		if(options.isEmptyGrid()) {
+			return selected;
+		}
+		
+		for(int i = 0; i < puzzleCount; ++i) {
+			selected[i] = gradings.get(random.nextInt(gradings.size()));
+		}
+		if(options.getPuzzleOrder() == Ordering.DIFFICULTY) {
+			Arrays.sort(selected);
+		}
+		return selected;
+	}
+}
@@ -0,0 +1,126 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+
+package com.matic.sudoku.io.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import com.matic.sudoku.generator.GeneratorResult;
+import com.matic.sudoku.io.PuzzleFormat;
+import com.matic.sudoku.io.PuzzleTextEncoder;
+
+/**
+ * An export writer producing a plain text puzzle collection. Puzzles are encoded
+ * straight into a reused direct buffer, which is written through a file channel
+ * whenever it can't hold another puzzle. Solutions, if any, follow the puzzles in
+ * the same format, within sections of their own so that they aren't read as puzzles.
+ * The collection is gzip compressed if the file name has the gzip extension.
+ * 
+ * @author vedran
+ *
+ */
+public class TextPuzzleExportWriter implements PuzzleExportWriter {
+	
+	//Size (in bytes) of the buffer puzzles are encoded into
+	private static final int BUFFER_SIZE = 256 * 1024;
+	
+	private final PuzzleFormat format;
+	private final ExportChannel output;
+	private final ByteBuffer buffer;
+	
+	//Whether a solution has been written, all of them following the puzzles
+	private boolean hasSolutions = false;
+	
+	/**
+	 * Open a writer for the target file. Existing file content is kept until
+	 * the exporter positions the writer.
+	 * 
+	 * @param path Output file path
+	 * @param format Format to write the puzzles in
+	 * @throws IOException If the output file can't be opened
+	 */
+	public TextPuzzleExportWriter(final Path path, final PuzzleFormat format) throws IOException {
+		this.format = format;
+		output = ExportChannel.open(path);
+		buffer = output.allocateBuffer(BUFFER_SIZE);
+	}
+
+	@Override
+	public void writePuzzle(final int number, final GeneratorResult puzzle) throws IOException {
+		write(puzzle.getDimension(), puzzle.getPuzzle());
+	}
+
+	@Override
+	public void writeSolution(final int number, final int dimension, final int[] solution)
+			throws IOException {
+		ensureRemaining(dimension);
+		PuzzleTextEncoder.encodeSolution(format, dimension, solution, !hasSolutions, buffer);
+		hasSolutions = true;
+	}
+	
+	/**
+	 * Write a puzzle grid
+	 * 
+	 * @param dimension Puzzle dimension (3 for a 9x9 puzzle)
+	 * @param cells Cell values (0 for empty cells), row by row
+	 * @throws IOException If the buffered puzzles can't be written
+	 */
+	public void write(final int dimension, final int[] cells) throws IOException {
+		ensureRemaining(dimension);
+		PuzzleTextEncoder.encode(format, dimension, cells, buffer);
+	}
+
+	@Override
+	public void seek(final long position) throws IOException {
+		flush();
+		hasSolutions = false;
+		output.seek(position);
+	}
+
+	@Override
+	public long getOutputPosition() throws IOException {
+		flush();
+		return output.sync();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		}
+		finally {
+			output.close();
+		}
+	}
+	
+	private void ensureRemaining(final int dimension) throws IOException {
+		if(buffer.remaining() < PuzzleTextEncoder.getEncodedSize(format, dimension)) {
+			flush();
+		}
+	}
+	
+	private void flush() throws IOException {
+		buffer.flip();
+		output.write(buffer);
+		buffer.clear();
+	}
+}
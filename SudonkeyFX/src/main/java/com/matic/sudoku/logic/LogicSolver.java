@@ -20,8 +20,29 @@
 
 package com.matic.sudoku.logic;
 
-import com.matic.sudoku.Resources;;
+import java.util.Arrays;
 
+import com.matic.sudoku.Resources;
+
+/**
+ * Solves puzzles the way a player would, using logic techniques only, and grades them
+ * by the hardest technique needed. The techniques, from the easiest to the hardest, are:
+ * <ul>
+ * <li>EASY: naked and hidden singles</li>
+ * <li>MODERATE: locked candidates (pointing and claiming)</li>
+ * <li>HARD: naked and hidden pairs and triples</li>
+ * <li>EXPERT: X-wings, swordfish and XY-wings</li>
+ * </ul>
+ * Puzzles which can't be solved with these techniques are graded as DIABOLIC. The
+ * easiest applicable technique is always tried first, so a puzzle's grading reflects
+ * the hardest step it really requires.
+ * 
+ * A solver instance keeps its working state between calls and must not be shared
+ * between threads.
+ * 
+ * @author vedran
+ *
+ */
 public class LogicSolver {
 
 	// Puzzle grading constants
@@ -58,4 +79,492 @@ public class LogicSolver {
 			return values()[(int)(Math.random() * values().length)];
 		}
 	}
+
+	
+	//Largest subset (naked and hidden) and fish size the solver looks for
+	private static final int MAX_SUBSET_SIZE = 3;
+	
+	private final int unit;
+	
+	//Cell indexes (row * unit + column) of every row, then every column and then every box
+	private final int[][] houses;
+	
+	//Indexes of the cells sharing a row, a column or a box with each cell
+	private final int[][] peers;
+	
+	//Pairs of a box and a line (row or column) crossing it, with the cells they share
+	private final int[][] crossings;
+	private final int[][] crossingCells;
+	
+	//Candidates of each unsolved cell, bit (digit - 1) is set if the digit is a candidate
+	private final int[] candidates;
+	private final int[] values;
+	
+	private int unsolvedCount;
+	
+	/**
+	 * Create a solver for puzzles of a given dimension
+	 * 
+	 * @param dimension Puzzle dimension (3 for a 9x9 puzzle)
+	 */
+	public LogicSolver(final int dimension) {
+		unit = dimension * dimension;
+		
+		final int cellCount = unit * unit;
+		candidates = new int[cellCount];
+		values = new int[cellCount];
+		
+		houses = new int[3 * unit][unit];
+		for(int i = 0; i < unit; ++i) {
+			final int boxRow = (i / dimension) * dimension;
+			final int boxColumn = (i % dimension) * dimension;
+			for(int j = 0; j < unit; ++j) {
+				houses[i][j] = i * unit + j;
+				houses[unit + i][j] = j * unit + i;
+				houses[2 * unit + i][j] = (boxRow + j / dimension) * unit + boxColumn + j % dimension;
+			}
+		}
+		
+		peers = new int[cellCount][];
+		for(int cell = 0; cell < cellCount; ++cell) {
+			final boolean[] isPeer = new boolean[cellCount];
+			for(final int[] house : houses) {
+				if(contains(house, cell)) {
+					for(final int peer : house) {
+						isPeer[peer] = peer != cell;
+					}
+				}
+			}
+			int peerCount = 0;
+			final int[] cellPeers = new int[3 * unit];
+			for(int peer = 0; peer < cellCount; ++peer) {
+				if(isPeer[peer]) {
+					cellPeers[peerCount++] = peer;
+				}
+			}
+			peers[cell] = Arrays.copyOf(cellPeers, peerCount);
+		}
+		
+		//Each box is crossed by dimension rows and dimension columns
+		final int crossingCount = 2 * unit * dimension;
+		crossings = new int[crossingCount][];
+		crossingCells = new int[crossingCount][];
+		int crossing = 0;
+		for(int box = 2 * unit; box < houses.length; ++box) {
+			for(int line = 0; line < 2 * unit; ++line) {
+				final int[] intersection = intersect(houses[box], houses[line]);
+				if(intersection.length > 0) {
+					crossings[crossing] = new int[] {box, line};
+					crossingCells[crossing++] = intersection;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Solve a puzzle using logic only and grade it
+	 * 
+	 * @param puzzle Cell values (0 for empty cells), row by row. It is not modified
+	 * @return Puzzle grading, or null if the puzzle has no solution
+	 */
+	public Grading grade(final int[] puzzle) {
+		if(!start(puzzle)) {
+			return null;
+		}
+		Grading grading = Grading.EASY;
+		while(unsolvedCount > 0) {
+			final Grading step = applyEasiestTechnique();
+			if(step == null) {
+				//The techniques have been exhausted, or the puzzle has turned out to be invalid
+				return isConsistent()? Grading.DIABOLIC : null;
+			}
+			if(step.compareTo(grading) > 0) {
+				grading = step;
+			}
+		}
+		return grading;
+	}
+	
+	/**
+	 * Get the cell values found by the most recent call to grade(). If the puzzle couldn't
+	 * be solved with logic only, the cells the solver couldn't fill are 0.
+	 * 
+	 * @return Cell values, row by row
+	 */
+	public int[] getValues() {
+		return values.clone();
+	}
+	
+	//Place the givens, returning false if any of them conflict
+	private boolean start(final int[] puzzle) {
+		final int allCandidates = (1 << unit) - 1;
+		Arrays.fill(candidates, allCandidates);
+		Arrays.fill(values, 0);
+		unsolvedCount = candidates.length;
+		
+		for(int cell = 0; cell < puzzle.length; ++cell) {
+			final int value = puzzle[cell];
+			if(value > 0) {
+				if((candidates[cell] & (1 << (value - 1))) == 0) {
+					return false;
+				}
+				place(cell, value);
+			}
+		}
+		return true;
+	}
+	
+	//Apply the easiest technique that makes progress, returning its grading (or null if none did)
+	private Grading applyEasiestTechnique() {
+		if(findNakedSingle() || findHiddenSingle()) {
+			return Grading.EASY;
+		}
+		if(!isConsistent()) {
+			return null;
+		}
+		if(findLockedCandidates()) {
+			return Grading.MODERATE;
+		}
+		for(int size = 2; size <= MAX_SUBSET_SIZE; ++size) {
+			if(findNakedSubset(size) || findHiddenSubset(size)) {
+				return Grading.HARD;
+			}
+		}
+		for(int size = 2; size <= MAX_SUBSET_SIZE; ++size) {
+			if(findFish(size)) {
+				return Grading.EXPERT;
+			}
+		}
+		return findXyWing()? Grading.EXPERT : null;
+	}
+	
+	private void place(final int cell, final int value) {
+		final int bit = 1 << (value - 1);
+		values[cell] = value;
+		candidates[cell] = 0;
+		--unsolvedCount;
+		for(final int peer : peers[cell]) {
+			candidates[peer] &= ~bit;
+		}
+	}
+	
+	private boolean findNakedSingle() {
+		for(int cell = 0; cell < candidates.length; ++cell) {
+			if(values[cell] == 0 && Integer.bitCount(candidates[cell]) == 1) {
+				place(cell, Integer.numberOfTrailingZeros(candidates[cell]) + 1);
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private boolean findHiddenSingle() {
+		for(final int[] house : houses) {
+			//Digits seen at least once, and digits seen more than once in this house
+			int seenOnce = 0;
+			int seenMore = 0;
+			for(final int cell : house) {
+				seenMore |= seenOnce & candidates[cell];
+				seenOnce |= candidates[cell];
+			}
+			final int hiddenSingles = seenOnce & ~seenMore;
+			if(hiddenSingles != 0) {
+				final int bit = Integer.lowestOneBit(hiddenSingles);
+				for(final int cell : house) {
+					if((candidates[cell] & bit) != 0) {
+						place(cell, Integer.numberOfTrailingZeros(bit) + 1);
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+	
+	//Check that every empty cell has a candidate and every house has a place for each missing digit
+	private boolean isConsistent() {
+		for(int cell = 0; cell < candidates.length; ++cell) {
+			if(values[cell] == 0 && candidates[cell] == 0) {
+				return false;
+			}
+		}
+		final int allDigits = (1 << unit) - 1;
+		for(final int[] house : houses) {
+			int covered = 0;
+			for(final int cell : house) {
+				covered |= candidates[cell] | (values[cell] > 0? 1 << (values[cell] - 1) : 0);
+			}
+			if(covered != allDigits) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	//Pointing: a box's candidates within one row or column. Claiming: a line's candidates within one box
+	private boolean findLockedCandidates() {
+		for(int crossing = 0; crossing < crossings.length; ++crossing) {
+			final int[] box = houses[crossings[crossing][0]];
+			final int[] line = houses[crossings[crossing][1]];
+			final int[] intersection = crossingCells[crossing];
+			
+			final int intersectionCandidates = getCandidates(intersection);
+			final int boxRest = getCandidatesOutside(box, intersection);
+			final int lineRest = getCandidatesOutside(line, intersection);
+			
+			//Digits confined to the intersection within the box can be removed from the rest of the line
+			if(eliminate(line, intersection, intersectionCandidates & ~boxRest & lineRest) ||
+					eliminate(box, intersection, intersectionCandidates & ~lineRest & boxRest)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	//Cells of a house whose candidates, taken together, are limited to as many digits as there are cells
+	private boolean findNakedSubset(final int size) {
+		for(final int[] house : houses) {
+			final int[] cellMasks = new int[unit];
+			for(int i = 0; i < unit; ++i) {
+				final int count = Integer.bitCount(candidates[house[i]]);
+				cellMasks[i] = count >= 2 && count <= size? candidates[house[i]] : 0;
+			}
+			final int[] subset = findSubset(cellMasks, size);
+			for(int found = 0; found < subset.length; found += 2) {
+				final int subsetCells = subset[found];
+				final int digits = subset[found + 1];
+				boolean eliminated = false;
+				for(int i = 0; i < unit; ++i) {
+					final int cell = house[i];
+					if((subsetCells & (1 << i)) == 0 && (candidates[cell] & digits) != 0) {
+						candidates[cell] &= ~digits;
+						eliminated = true;
+					}
+				}
+				if(eliminated) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	//Digits of a house which, taken together, fit in only as many cells as there are digits
+	private boolean findHiddenSubset(final int size) {
+		for(final int[] house : houses) {
+			//Positions (within the house) of each digit
+			final int[] digitMasks = new int[unit];
+			for(int digit = 0; digit < unit; ++digit) {
+				int positions = 0;
+				for(int i = 0; i < unit; ++i) {
+					if((candidates[house[i]] & (1 << digit)) != 0) {
+						positions |= 1 << i;
+					}
+				}
+				final int count = Integer.bitCount(positions);
+				digitMasks[digit] = count >= 2 && count <= size? positions : 0;
+			}
+			final int[] subset = findSubset(digitMasks, size);
+			for(int found = 0; found < subset.length; found += 2) {
+				final int digits = subset[found];
+				final int positions = subset[found + 1];
+				boolean eliminated = false;
+				for(int i = 0; i < unit; ++i) {
+					final int cell = house[i];
+					if((positions & (1 << i)) != 0 && (candidates[cell] & ~digits) != 0) {
+						candidates[cell] &= digits;
+						eliminated = true;
+					}
+				}
+				if(eliminated) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	//A digit confined to the same columns in as many rows as there are columns (or vice versa)
+	private boolean findFish(final int size) {
+		for(int digit = 0; digit < unit; ++digit) {
+			final int bit = 1 << digit;
+			for(int baseStart = 0; baseStart <= unit; baseStart += unit) {
+				//Base lines are rows (0) or columns (unit), cover lines are the other kind
+				final int coverStart = unit - baseStart;
+				final int[] lineMasks = new int[unit];
+				for(int line = 0; line < unit; ++line) {
+					int positions = 0;
+					final int[] house = houses[baseStart + line];
+					for(int i = 0; i < unit; ++i) {
+						if((candidates[house[i]] & bit) != 0) {
+							positions |= 1 << i;
+						}
+					}
+					final int count = Integer.bitCount(positions);
+					lineMasks[line] = count >= 2 && count <= size? positions : 0;
+				}
+				final int[] fish = findSubset(lineMasks, size);
+				for(int found = 0; found < fish.length; found += 2) {
+					final int baseLines = fish[found];
+					final int coverLines = fish[found + 1];
+					boolean eliminated = false;
+					for(int cover = 0; cover < unit; ++cover) {
+						if((coverLines & (1 << cover)) == 0) {
+							continue;
+						}
+						final int[] house = houses[coverStart + cover];
+						for(int i = 0; i < unit; ++i) {
+							if((baseLines & (1 << i)) == 0 && (candidates[house[i]] & bit) != 0) {
+								candidates[house[i]] &= ~bit;
+								eliminated = true;
+							}
+						}
+					}
+					if(eliminated) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+	
+	//A bivalue pivot {x,y} seeing bivalue pincers {x,z} and {y,z}: z is removed from cells seeing both pincers
+	private boolean findXyWing() {
+		for(int pivot = 0; pivot < candidates.length; ++pivot) {
+			final int pivotCandidates = candidates[pivot];
+			if(Integer.bitCount(pivotCandidates) != 2) {
+				continue;
+			}
+			final int[] pivotPeers = peers[pivot];
+			for(int i = 0; i < pivotPeers.length; ++i) {
+				final int first = candidates[pivotPeers[i]];
+				if(Integer.bitCount(first) != 2 || Integer.bitCount(first & pivotCandidates) != 1) {
+					continue;
+				}
+				for(int j = i + 1; j < pivotPeers.length; ++j) {
+					final int second = candidates[pivotPeers[j]];
+					final int z = first & ~pivotCandidates;
+					if(second != (z | (pivotCandidates & ~first))) {
+						continue;
+					}
+					if(eliminateFromCommonPeers(pivotPeers[i], pivotPeers[j], z)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+	
+	private boolean eliminateFromCommonPeers(final int first, final int second, final int digits) {
+		boolean eliminated = false;
+		for(final int cell : peers[first]) {
+			if(cell != second && (candidates[cell] & digits) != 0 && contains(peers[second], cell)) {
+				candidates[cell] &= ~digits;
+				eliminated = true;
+			}
+		}
+		return eliminated;
+	}
+	
+	/**
+	 * Find all sets of exactly size non-zero masks whose union has exactly size bits set
+	 * 
+	 * @param masks Masks to choose from, zero masks are never chosen
+	 * @param size Number of masks in a set
+	 * @return Pairs of values: the chosen masks' indexes (as bits) followed by their union
+	 */
+	private int[] findSubset(final int[] masks, final int size) {
+		final IntList found = new IntList();
+		collectSubsets(masks, size, 0, 0, 0, found);
+		return found.toArray();
+	}
+	
+	private void collectSubsets(final int[] masks, final int remaining, final int start, 
+			final int chosen, final int union, final IntList found) {
+		if(remaining == 0) {
+			if(Integer.bitCount(union) == Integer.bitCount(chosen)) {
+				found.add(chosen);
+				found.add(union);
+			}
+			return;
+		}
+		for(int i = start; i < masks.length; ++i) {
+			final int newUnion = union | masks[i];
+			if(masks[i] != 0 && Integer.bitCount(newUnion) <= Integer.bitCount(chosen) + remaining) {
+				collectSubsets(masks, remaining - 1, i + 1, chosen | (1 << i), newUnion, found);
+			}
+		}
+	}
+	
+	private int getCandidates(final int[] cells) {
+		int union = 0;
+		for(final int cell : cells) {
+			union |= candidates[cell];
+		}
+		return union;
+	}
+	
+	private int getCandidatesOutside(final int[] house, final int[] excluded) {
+		int union = 0;
+		for(final int cell : house) {
+			if(!contains(excluded, cell)) {
+				union |= candidates[cell];
+			}
+		}
+		return union;
+	}
+	
+	//Remove digits from the cells of a house that aren't excluded, returning whether any were removed
+	private boolean eliminate(final int[] house, final int[] excluded, final int digits) {
+		if(digits == 0) {
+			return false;
+		}
+		boolean eliminated = false;
+		for(final int cell : house) {
+			if(!contains(excluded, cell) && (candidates[cell] & digits) != 0) {
+				candidates[cell] &= ~digits;
+				eliminated = true;
+			}
+		}
+		return eliminated;
+	}
+	
+	private static int[] intersect(final int[] first, final int[] second) {
+		int count = 0;
+		final int[] intersection = new int[first.length];
+		for(final int cell : first) {
+			if(contains(second, cell)) {
+				intersection[count++] = cell;
+			}
+		}
+		return Arrays.copyOf(intersection, count);
+	}
+	
+	private static boolean contains(final int[] cells, final int cell) {
+		for(final int value : cells) {
+			if(value == cell) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	//A minimal growable list of ints
+	private static final class IntList {
+		private int[] items = new int[8];
+		private int size = 0;
+		
+		void add(final int item) {
+			if(size == items.length) {
+				items = Arrays.copyOf(items, 2 * size);
+			}
+			items[size++] = item;
+		}
+		
+		int[] toArray() {
+			return Arrays.copyOf(items, size);
+		}
+	}
 }
@@ -0,0 +1,181 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+package com.matic.sudoku.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.matic.sudoku.guifx.board.Cell;
+
+/**
+ * Tests of restoring a game from its snapshot and a journal that may have been
+ * damaged by a crash
+ * 
+ * @author vedran
+ *
+ */
+public class GameJournalTest {
+	
+	private static final int DIMENSION = 3;
+	
+	//Journal header and record sizes, as written by GameJournal
+	private static final int HEADER_SIZE = 16;
+	private static final int RECORD_SIZE = 8;
+	
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+	
+	private Path snapshotPath;
+	private Path journalPath;
+	private SavedGame game;
+	
+	@Before
+	public void setUp() throws IOException {
+		snapshotPath = folder.getRoot().toPath().resolve("game." + SavedGame.EXTENSION);
+		journalPath = folder.getRoot().toPath().resolve("game." + GameJournal.EXTENSION);
+		game = SavedGame.fromPuzzle(DIMENSION, TestPuzzles.createPuzzle(DIMENSION, 0));
+	}
+	
+	@Test
+	public void restoreWithoutSnapshot() throws IOException {
+		assertNull(GameJournal.restore(snapshotPath));
+	}
+	
+	@Test
+	public void replayJournal() throws IOException {
+		writeJournal(3);
+		final SavedGame restored = GameJournal.restore(snapshotPath);
+		assertEdited(restored, 3);
+		assertEquals(DIMENSION, restored.getDimension());
+		
+		final Cell cell = restored.getCells()[0][0];
+		assertEquals(2, cell.getBackgroundColorIndex());
+		assertTrue(cell.isPencilmarkSet(4));
+	}
+	
+	@Test
+	public void ignoreTornTail() throws IOException {
+		writeJournal(2);
+		Files.write(journalPath, new byte[] {0, 1, 5}, StandardOpenOption.APPEND);
+		assertEdited(GameJournal.restore(snapshotPath), 2);
+	}
+	
+	@Test
+	public void stopAtCorruptRecord() throws IOException {
+		writeJournal(3);
+		final byte[] journal = Files.readAllBytes(journalPath);
+		//Damage the second record's digit, the records following it can't be trusted either
+		journal[HEADER_SIZE + RECORD_SIZE + 2] ^= 1;
+		Files.write(journalPath, journal);
+		assertEdited(GameJournal.restore(snapshotPath), 1);
+	}
+	
+	@Test
+	public void stopAtZeroedRecord() throws IOException {
+		writeJournal(1);
+		Files.write(journalPath, new byte[RECORD_SIZE], StandardOpenOption.APPEND);
+		assertEdited(GameJournal.restore(snapshotPath), 1);
+	}
+	
+	@Test
+	public void ignoreJournalOfOtherGeneration() throws IOException {
+		writeJournal(3);
+		final long generation = SavedGame.readGeneration(snapshotPath);
+		
+		//A crash while compacting, after the new snapshot has been stored
+		new SavedGame(DIMENSION, game.getCells(), generation + 1).store(snapshotPath);
+		assertEdited(GameJournal.restore(snapshotPath), 0);
+	}
+	
+	@Test
+	public void continueGenerationAfterRestart() throws IOException {
+		writeJournal(0);
+		final long generation = SavedGame.readGeneration(snapshotPath);
+		
+		try(final GameJournal journal = new GameJournal(snapshotPath)) {
+			journal.start(GameJournal.restore(snapshotPath));
+		}
+		assertEquals(generation + 1, SavedGame.readGeneration(snapshotPath));
+	}
+	
+	@Test
+	public void compactJournal() throws IOException {
+		try(final GameJournal journal = new GameJournal(snapshotPath)) {
+			journal.start(game);
+			edit(journal, game, 0);
+			edit(journal, game, 1);
+			journal.start(game);
+			assertEquals(0, journal.getRecordCount());
+			edit(journal, game, 2);
+		}
+		assertEquals(HEADER_SIZE + RECORD_SIZE, Files.size(journalPath));
+		assertEdited(GameJournal.restore(snapshotPath), 3);
+	}
+	
+	//Start a journal for the game and record edits of its first cells, which are left unchanged
+	private void writeJournal(final int editCount) throws IOException {
+		final SavedGame edited = SavedGame.fromPuzzle(DIMENSION, TestPuzzles.createPuzzle(DIMENSION, 0));
+		try(final GameJournal journal = new GameJournal(snapshotPath)) {
+			journal.start(game);
+			for(int edit = 0; edit < editCount; ++edit) {
+				edit(journal, edited, edit);
+			}
+			assertEquals(editCount, journal.getRecordCount());
+		}
+	}
+	
+	private static void edit(final GameJournal journal, final SavedGame target, final int edit) 
+			throws IOException {
+		final Cell cell = target.getCells()[edit][0];
+		cell.setDigit(getEditedDigit(edit));
+		cell.setGiven(false);
+		cell.setBackgroundColorIndex(2);
+		cell.setPencilmark(4, true);
+		journal.append(0, edit, cell);
+	}
+	
+	private static int getEditedDigit(final int edit) {
+		//Never equal to the puzzle's own value of the cell
+		return (edit + 4) % 9 + 1;
+	}
+	
+	//Check that exactly the first editCount edits have been restored
+	private void assertEdited(final SavedGame restored, final int editCount) {
+		final int unit = DIMENSION * DIMENSION;
+		for(int column = 0; column < unit; ++column) {
+			final Cell cell = restored.getCells()[column][0];
+			final int expected = column < editCount? getEditedDigit(column) :
+				game.getCells()[column][0].getDigit();
+			assertEquals("column " + column, expected, cell.getDigit());
+			assertEquals("column " + column, column >= editCount && cell.getDigit() > 0, cell.isGiven());
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+package com.matic.sudoku.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Round trip tests of the packed puzzle record format
+ * 
+ * @author vedran
+ *
+ */
+public class PackedPuzzleFormatTest {
+	
+	@Test
+	public void packAndUnpack9x9() {
+		assertRoundTrip(3);
+	}
+	
+	@Test
+	public void packAndUnpack16x16() {
+		assertRoundTrip(4);
+	}
+	
+	@Test
+	public void packAndUnpack4x4() {
+		assertRoundTrip(2);
+	}
+	
+	@Test
+	public void unpackRecordAtOffset() {
+		final int dimension = 4;
+		final int recordSize = PackedPuzzleFormat.getRecordSize(dimension);
+		final int[] first = TestPuzzles.createPuzzle(dimension, 0);
+		final int[] second = TestPuzzles.createPuzzle(dimension, 5);
+		
+		final ByteBuffer buffer = ByteBuffer.allocate(PackedPuzzleFormat.HEADER_SIZE + 2 * recordSize);
+		PackedPuzzleFormat.putHeader(dimension, 2, buffer);
+		PackedPuzzleFormat.pack(dimension, first, buffer);
+		PackedPuzzleFormat.pack(dimension, second, buffer);
+		assertEquals(buffer.capacity(), buffer.position());
+		
+		final int[] cells = new int[first.length];
+		PackedPuzzleFormat.unpack(dimension, buffer, PackedPuzzleFormat.HEADER_SIZE + recordSize, cells);
+		assertArrayEquals(second, cells);
+		PackedPuzzleFormat.unpack(dimension, buffer, PackedPuzzleFormat.HEADER_SIZE, cells);
+		assertArrayEquals(first, cells);
+	}
+	
+	private static void assertRoundTrip(final int dimension) {
+		final int[] puzzle = TestPuzzles.createPuzzle(dimension, 3);
+		final ByteBuffer record = ByteBuffer.allocate(PackedPuzzleFormat.getRecordSize(dimension));
+		PackedPuzzleFormat.pack(dimension, puzzle, record);
+		assertEquals(record.capacity(), record.position());
+		
+		final int[] cells = new int[puzzle.length];
+		PackedPuzzleFormat.unpack(dimension, record, 0, cells);
+		assertArrayEquals(puzzle, cells);
+	}
+}
@@ -0,0 +1,120 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+package com.matic.sudoku.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of reading single puzzles of a text collection through its (cached) index
+ * 
+ * @author vedran
+ *
+ */
+public class PuzzleCollectionIndexTest {
+	
+	private static final int PUZZLE_COUNT = 50;
+	
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+	
+	@Test
+	public void readPuzzlesInAnyOrder() throws IOException {
+		for(final PuzzleFormat format : PuzzleFormat.values()) {
+			for(int dimension = 2; dimension <= 4; ++dimension) {
+				final Path path = writeCollection(format, dimension, PUZZLE_COUNT);
+				try(final PuzzleCollectionReader reader = new PuzzleCollectionReader(path)) {
+					final PuzzleCollectionIndex index = PuzzleCollectionIndex.open(reader, path);
+					final String message = format + " " + dimension;
+					assertEquals(message, PUZZLE_COUNT, index.getPuzzleCount());
+					
+					final int[] cells = new int[PackedPuzzleFormat.getCellCount(dimension)];
+					for(final int puzzle : new int[] {PUZZLE_COUNT - 1, 0, 17, 16, PUZZLE_COUNT - 1}) {
+						index.readPuzzle(reader, puzzle, cells);
+						assertArrayEquals(message, TestPuzzles.createPuzzle(dimension, puzzle), 
+								cells);
+					}
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void reuseCachedIndex() throws IOException {
+		final Path path = writeCollection(PuzzleFormat.ONE_LINE, 3, PUZZLE_COUNT);
+		assertNull(PuzzleCollectionIndex.openCached(path));
+		
+		try(final PuzzleCollectionReader reader = new PuzzleCollectionReader(path)) {
+			PuzzleCollectionIndex.open(reader, path);
+		}
+		assertTrue(Files.exists(PuzzleCollectionIndex.getIndexPath(path)));
+		
+		final PuzzleCollectionIndex cachedIndex = PuzzleCollectionIndex.openCached(path);
+		assertNotNull(cachedIndex);
+		assertEquals(PUZZLE_COUNT, cachedIndex.getPuzzleCount());
+		
+		try(final PuzzleCollectionReader reader = new PuzzleCollectionReader(path)) {
+			final int[] cells = new int[PackedPuzzleFormat.getCellCount(3)];
+			cachedIndex.readPuzzle(reader, 42, cells);
+			assertArrayEquals(TestPuzzles.createPuzzle(3, 42), cells);
+		}
+	}
+	
+	@Test
+	public void rebuildIndexOfChangedCollection() throws IOException {
+		final Path path = writeCollection(PuzzleFormat.ONE_LINE, 3, PUZZLE_COUNT);
+		try(final PuzzleCollectionReader reader = new PuzzleCollectionReader(path)) {
+			PuzzleCollectionIndex.open(reader, path);
+		}
+		
+		writeCollection(PuzzleFormat.ONE_LINE, 3, PUZZLE_COUNT / 2);
+		assertNull(PuzzleCollectionIndex.openCached(path));
+		try(final PuzzleCollectionReader reader = new PuzzleCollectionReader(path)) {
+			assertEquals(PUZZLE_COUNT / 2, PuzzleCollectionIndex.open(reader, path).getPuzzleCount());
+		}
+	}
+	
+	private Path writeCollection(final PuzzleFormat format, final int dimension, 
+			final int puzzleCount) throws IOException {
+		final ByteBuffer content = ByteBuffer.allocate(
+				puzzleCount * PuzzleTextEncoder.getEncodedSize(format, dimension));
+		for(int puzzle = 0; puzzle < puzzleCount; ++puzzle) {
+			PuzzleTextEncoder.encode(format, dimension, TestPuzzles.createPuzzle(dimension, puzzle),
+					content);
+		}
+		final Path path = folder.getRoot().toPath().resolve("collection" + dimension + "." + 
+				format.getExtension());
+		Files.write(path, Arrays.copyOf(content.array(), content.position()));
+		return path;
+	}
+}
@@ -0,0 +1,173 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+package com.matic.sudoku.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests of decoding the plain text puzzle formats, both as written by the encoder
+ * and as written by other applications
+ * 
+ * @author vedran
+ *
+ */
+public class PuzzleTextDecoderTest {
+	
+	@Test
+	public void decodeEncodedPuzzles() {
+		for(final PuzzleFormat format : PuzzleFormat.values()) {
+			for(int dimension = 2; dimension <= 4; ++dimension) {
+				final int[] first = TestPuzzles.createPuzzle(dimension, 0);
+				final int[] second = TestPuzzles.createPuzzle(dimension, 1);
+				final int[] solution = TestPuzzles.createPuzzle(dimension, 2);
+				
+				final ByteBuffer content = ByteBuffer.allocate(
+						4 * PuzzleTextEncoder.getEncodedSize(format, dimension));
+				PuzzleTextEncoder.encode(format, dimension, first, content);
+				PuzzleTextEncoder.encode(format, dimension, second, content);
+				PuzzleTextEncoder.encodeSolution(format, dimension, solution, true, content);
+				PuzzleTextEncoder.encodeSolution(format, dimension, solution, false, content);
+				content.flip();
+				
+				final String message = format + " " + dimension;
+				assertEquals(message, dimension, PuzzleTextDecoder.detectDimension(content));
+				
+				//The solutions are within sections of their own and must not be decoded
+				final List<int[]> puzzles = decode(dimension, content);
+				assertEquals(message, 2, puzzles.size());
+				assertArrayEquals(message, first, puzzles.get(0));
+				assertArrayEquals(message, second, puzzles.get(1));
+			}
+		}
+	}
+	
+	@Test
+	public void decodeOneLineWithRatings() {
+		final String content = 
+				"4.....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......  ; 11.0\r\n" +
+				"52...6.........7.13...........4..8..6......5...........418.........3..2...87..... 9.3";
+		final List<int[]> puzzles = decode(3, content);
+		assertEquals(2, puzzles.size());
+		assertEquals(4, puzzles.get(0)[0]);
+		assertEquals(5, puzzles.get(0)[8]);
+		assertEquals(0, puzzles.get(0)[80]);
+		assertEquals(5, puzzles.get(1)[0]);
+		assertEquals(0, puzzles.get(1)[80]);
+	}
+	
+	@Test
+	public void decodeSdkWithStateSection() {
+		final String content = 
+				"#A SudoCue comment with digits 123\n" +
+				"[Puzzle]\n" +
+				"4.....8.5\n.3.......\n...7.....\n.2.....6.\n....8.4..\n" +
+				"....1....\n...6.3.7.\n5..2.....\n1.4......\n" +
+				"[State]\n" +
+				"417369825\n632158947\n958724316\n825437169\n791586432\n" +
+				"346912758\n289643571\n573291684\n164875293\n";
+		final ByteBuffer bytes = toBuffer(content);
+		assertEquals(3, PuzzleTextDecoder.detectDimension(bytes));
+		
+		final List<int[]> puzzles = decode(3, bytes);
+		assertEquals(1, puzzles.size());
+		assertEquals(4, puzzles.get(0)[0]);
+		assertEquals(3, puzzles.get(0)[10]);
+		assertEquals(0, puzzles.get(0)[80]);
+	}
+	
+	@Test
+	public void decodeSimpleSudoku() {
+		final String content = 
+				"4..|...|8.5\n.3.|...|...\n...|7..|...\n" +
+				"---+---+---\n" +
+				".2.|...|.6.\n...|.8.|4..\n...|.1.|...\n" +
+				"---+---+---\n" +
+				"...|6.3|.7.\n5..|2..|...\n1.4|...|...\n";
+		final List<int[]> puzzles = decode(3, content);
+		assertEquals(1, puzzles.size());
+		assertEquals(8, puzzles.get(0)[6]);
+		assertEquals(2, puzzles.get(0)[28]);
+		assertEquals(4, puzzles.get(0)[74]);
+	}
+	
+	@Test
+	public void discardPuzzleLeftIncompleteBySection() {
+		final String content = 
+				"[Puzzle]\n" + "4.....8.5\n.3.......\n" +
+				"[Puzzle]\n" + repeat("123456789\n", 9);
+		final List<int[]> puzzles = decode(3, content);
+		assertEquals(1, puzzles.size());
+		assertEquals(1, puzzles.get(0)[0]);
+	}
+	
+	@Test
+	public void resetResumesDecodingPuzzles() {
+		final PuzzleTextDecoder decoder = new PuzzleTextDecoder(3);
+		final ByteBuffer state = toBuffer("[State]\n12345");
+		while(state.hasRemaining()) {
+			decoder.decode(state.get());
+		}
+		decoder.reset();
+		assertTrue(decoder.isIdle());
+		
+		final List<int[]> puzzles = decode(decoder, toBuffer(repeat("987654321", 9)));
+		assertEquals(1, puzzles.size());
+		assertEquals(9, puzzles.get(0)[0]);
+	}
+	
+	private static List<int[]> decode(final int dimension, final String content) {
+		return decode(dimension, toBuffer(content));
+	}
+	
+	private static List<int[]> decode(final int dimension, final ByteBuffer content) {
+		return decode(new PuzzleTextDecoder(dimension), content);
+	}
+	
+	private static List<int[]> decode(final PuzzleTextDecoder decoder, final ByteBuffer content) {
+		final List<int[]> puzzles = new ArrayList<>();
+		for(int i = content.position(); i < content.limit(); ++i) {
+			if(decoder.decode(content.get(i))) {
+				puzzles.add(decoder.getCells().clone());
+			}
+		}
+		return puzzles;
+	}
+	
+	private static ByteBuffer toBuffer(final String content) {
+		return ByteBuffer.wrap(content.getBytes(StandardCharsets.US_ASCII));
+	}
+	
+	private static String repeat(final String text, final int count) {
+		final StringBuilder result = new StringBuilder();
+		for(int i = 0; i < count; ++i) {
+			result.append(text);
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,53 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+package com.matic.sudoku.io;
+
+/**
+ * Puzzles shared by the tests of the puzzle readers and writers
+ * 
+ * @author vedran
+ *
+ */
+public final class TestPuzzles {
+	
+	//Prevent instantiation of this class
+	private TestPuzzles() {}
+	
+	/**
+	 * Create a valid grid with some of its cells emptied, holding all of the values
+	 * (including the largest one) and an empty first and last cell
+	 * 
+	 * @param dimension Puzzle dimension (3 for a 9x9 puzzle)
+	 * @param shift Value shift, for creating different grids
+	 * @return Cell values (0 for empty cells), row by row
+	 */
+	public static int[] createPuzzle(final int dimension, final int shift) {
+		final int unit = dimension * dimension;
+		final int[] cells = new int[unit * unit];
+		for(int row = 0; row < unit; ++row) {
+			for(int column = 0; column < unit; ++column) {
+				final int cell = row * unit + column;
+				final boolean empty = cell == 0 || cell == cells.length - 1 || cell % 7 == 3;
+				cells[cell] = empty? 0 : (row * dimension + row / dimension + column + shift) % unit + 1;
+			}
+		}
+		return cells;
+	}
+}
@@ -0,0 +1,109 @@
+/*
+* This file is part of SuDonkey, an open-source Sudoku puzzle game generator and solver.
+* Copyright (C) 2015 Vedran Matic
+*
+* This program is free software; you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation; either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program; if not, write to the Free Software
+* Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+*
+*/
+package com.matic.sudoku.io.export;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.matic.sudoku.io.CompressedInput;
+import com.matic.sudoku.io.CompressedPuzzleReader;
+import com.matic.sudoku.io.PuzzleFormat;
+import com.matic.sudoku.io.TestPuzzles;
+
+/**
+ * Tests of resuming a gzip compressed text export, which continues with a new gzip
+ * member from the last durable position
+ * 
+ * @author vedran
+ *
+ */
+public class TextPuzzleExportWriterTest {
+	
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+	
+	@Test
+	public void resumeCompressedExport9x9() throws IOException {
+		for(final PuzzleFormat format : PuzzleFormat.values()) {
+			assertResumedExport(format, 3);
+		}
+	}
+	
+	@Test
+	public void resumeCompressedExport16x16() throws IOException {
+		for(final PuzzleFormat format : PuzzleFormat.values()) {
+			assertResumedExport(format, 4);
+		}
+	}
+	
+	private void assertResumedExport(final PuzzleFormat format, final int dimension) 
+			throws IOException {
+		final Path path = folder.getRoot().toPath().resolve(format.getExtension() + dimension + 
+				"." + CompressedInput.EXTENSION);
+		final List<int[]> puzzles = new ArrayList<>();
+		for(int i = 0; i < 6; ++i) {
+			puzzles.add(TestPuzzles.createPuzzle(dimension, i));
+		}
+		
+		final long resumePosition;
+		try(final TextPuzzleExportWriter writer = new TextPuzzleExportWriter(path, format)) {
+			writer.write(dimension, puzzles.get(0));
+			writer.write(dimension, puzzles.get(1));
+			resumePosition = writer.getOutputPosition();
+			writer.write(dimension, puzzles.get(2));
+			assertTrue(writer.getOutputPosition() > resumePosition);
+			
+			//Output written after the last checkpoint, to be discarded when resuming
+			writer.write(dimension, TestPuzzles.createPuzzle(dimension, 9));
+		}
+		
+		try(final TextPuzzleExportWriter writer = new TextPuzzleExportWriter(path, format)) {
+			writer.seek(resumePosition);
+			for(int i = 2; i < puzzles.size(); ++i) {
+				writer.write(dimension, puzzles.get(i));
+			}
+			writer.writeSolution(1, dimension, TestPuzzles.createPuzzle(dimension, 7));
+		}
+		
+		final String message = format + " " + dimension;
+		try(final CompressedPuzzleReader reader = new CompressedPuzzleReader(path)) {
+			assertFalse(message, reader.isPacked());
+			assertEquals(message, dimension, reader.getDimension());
+			
+			final int[] cells = new int[puzzles.get(0).length];
+			for(final int[] puzzle : puzzles) {
+				assertTrue(message, reader.read(cells));
+				assertArrayEquals(message, puzzle, cells);
+			}
+			assertFalse(message, reader.read(cells));
+		}
+	}
+}